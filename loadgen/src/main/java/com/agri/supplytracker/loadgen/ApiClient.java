@@ -0,0 +1,122 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thin JSON client for the SupplyTracker REST API, shared by all workers (HttpClient pools connections).
+ */
+final class ApiClient {
+
+    record Response(int status, String body, HttpResponse<String> raw) {
+        boolean ok() {
+            return status < 400;
+        }
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private volatile String token;
+
+    ApiClient(String baseUrl, ObjectMapper mapper) {
+        this.baseUrl = baseUrl;
+        this.mapper = mapper;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    HttpClient http() {
+        return http;
+    }
+
+    String token() {
+        return token;
+    }
+
+    void login(String username, String password) throws IOException, InterruptedException {
+        Response response = post("/api/auth/login", Map.of("username", username, "password", password));
+        if (!response.ok()) {
+            throw new IOException("Login as " + username + " failed with " + response.status() + ": " + response.body());
+        }
+        token = mapper.readTree(response.body()).path("token").asText(null);
+    }
+
+    Response get(String path, String... headers) throws IOException, InterruptedException {
+        HttpRequest.Builder request = request(path).GET();
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return send(request.build());
+    }
+
+    Response post(String path, Object body) throws IOException, InterruptedException {
+        return send(jsonPost(path, body));
+    }
+
+    CompletableFuture<Response> postAsync(String path, Object body) throws IOException {
+        return http.sendAsync(jsonPost(path, body), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> new Response(response.statusCode(), response.body(), response));
+    }
+
+    /**
+     * Single-file multipart upload, as sent by the detection UI
+     */
+    Response postFile(String path, String field, String filename, String contentType, byte[] content)
+            throws IOException, InterruptedException {
+        String boundary = "loadgen-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field + "\"; filename=\""
+                + filename + "\"\r\nContent-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return send(request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build());
+    }
+
+    JsonNode json(Response response) throws IOException {
+        return mapper.readTree(response.body());
+    }
+
+    HttpRequest.Builder request(String path) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private HttpRequest jsonPost(String path, Object body) throws IOException {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private Response send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        return new Response(response.statusCode(), response.body(), response);
+    }
+}
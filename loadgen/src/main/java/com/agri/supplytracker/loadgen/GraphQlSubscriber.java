@@ -0,0 +1,113 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * One productChanged subscription over the graphql-transport-ws protocol. Records the time from opening
+ * the socket to the server's connection_ack, and the delivery delay of every change like {@link SseSubscriber}.
+ */
+final class GraphQlSubscriber implements WebSocket.Listener {
+
+    private static final String SUBSCRIPTION = "subscription { productChanged { type sequence productId timestamp } }";
+
+    private final ApiClient client;
+    private final ObjectMapper mapper;
+    private final LatencyStats stats;
+    private final StringBuilder message = new StringBuilder();
+    private long started;
+    private long lastSequence = -1;
+    private volatile WebSocket socket;
+
+    GraphQlSubscriber(ApiClient client, ObjectMapper mapper, LatencyStats stats) {
+        this.client = client;
+        this.mapper = mapper;
+        this.stats = stats;
+    }
+
+    void start() {
+        started = System.nanoTime();
+        URI uri = URI.create(client.baseUrl().replaceFirst("^http", "ws") + "/graphql");
+        client.http().newWebSocketBuilder()
+                .subprotocols("graphql-transport-ws")
+                .buildAsync(uri, this)
+                .whenComplete((ws, error) -> {
+                    if (error != null) {
+                        stats.error("graphql.connect");
+                    } else {
+                        socket = ws;
+                    }
+                });
+    }
+
+    void stop() {
+        WebSocket current = socket;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        Map<String, Object> payload = client.token() != null ? Map.of("Authorization", "Bearer " + client.token()) : Map.of();
+        send(webSocket, Map.of("type", "connection_init", "payload", payload));
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        message.append(data);
+        if (last) {
+            try {
+                handle(webSocket, mapper.readTree(message.toString()));
+            } catch (IOException e) {
+                stats.error("graphql.delivery");
+            }
+            message.setLength(0);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        stats.error("graphql.connect");
+    }
+
+    private void handle(WebSocket webSocket, JsonNode message) {
+        switch (message.path("type").asText()) {
+            case "connection_ack" -> {
+                stats.record("graphql.connect", started, true);
+                send(webSocket, Map.of("id", "1", "type", "subscribe", "payload", Map.of("query", SUBSCRIPTION)));
+            }
+            case "ping" -> send(webSocket, Map.of("type", "pong"));
+            case "next" -> {
+                JsonNode change = message.path("payload").path("data").path("productChanged");
+                long sequence = change.path("sequence").asLong();
+                if (lastSequence >= 0 && sequence > lastSequence + 1) {
+                    stats.error("graphql.delivery");
+                }
+                lastSequence = sequence;
+                if (change.hasNonNull("timestamp")) {
+                    stats.recordMicros("graphql.delivery", SseSubscriber.lagMicros(change.path("timestamp").asText()), true);
+                }
+            }
+            case "error", "complete" -> stats.error("graphql.delivery");
+            default -> { }
+        }
+    }
+
+    private void send(WebSocket webSocket, Map<String, Object> message) {
+        try {
+            webSocket.sendText(mapper.writeValueAsString(message), true);
+        } catch (IOException e) {
+            stats.error("graphql.connect");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.agri.supplytracker.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per operation, in microseconds. Workers record into HdrHistogram {@link Recorder}s
+ * without locking; the reporter swaps out an interval histogram every report interval and, once the
+ * warm-up is over, adds it to the run total.
+ */
+final class LatencyStats {
+
+    private static final String HEADER = String.format("%-18s %9s %9s %7s %9s %9s %9s %9s %9s",
+            "operation", "count", "ops/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+    private static final class Series {
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private final AtomicLong intervalErrors = new AtomicLong();
+        private long totalErrors;
+        private Histogram interval;
+    }
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    /**
+     * Record the time since startNanos (the intended start time when running at a fixed rate)
+     */
+    void record(String operation, long startNanos, boolean ok) {
+        recordMicros(operation, (System.nanoTime() - startNanos) / 1000, ok);
+    }
+
+    void recordMicros(String operation, long micros, boolean ok) {
+        Series s = series.computeIfAbsent(operation, name -> new Series());
+        s.recorder.recordValue(Math.max(1, micros));
+        if (!ok) {
+            s.intervalErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Errors that have no meaningful latency, such as a dropped connection
+     */
+    void error(String operation) {
+        series.computeIfAbsent(operation, name -> new Series()).intervalErrors.incrementAndGet();
+    }
+
+    /**
+     * Print the interval just ended; its samples count towards the total only when measuring
+     */
+    synchronized void interval(double seconds, boolean measuring, PrintStream out) {
+        out.println(HEADER);
+        series.forEach((name, s) -> {
+            s.interval = s.recorder.getIntervalHistogram(s.interval);
+            long errors = s.intervalErrors.getAndSet(0);
+            if (measuring) {
+                s.total.add(s.interval);
+                s.totalErrors += errors;
+            }
+            out.println(line(name, s.interval, errors, seconds));
+        });
+        out.println();
+    }
+
+    synchronized void report(double seconds, PrintStream out) {
+        out.println(HEADER);
+        series.forEach((name, s) -> out.println(line(name, s.total, s.totalErrors, seconds)));
+    }
+
+    /**
+     * One .hgrm percentile distribution per operation, for plotting with HdrHistogram's plotter
+     */
+    synchronized void writeHgrm(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                // Values are microseconds, scaled to milliseconds in the output
+                entry.getValue().total.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static String line(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-18s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f",
+                name, histogram.getTotalCount(), seconds > 0 ? histogram.getTotalCount() / seconds : 0, errors,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for a locally running SupplyTracker instance.
+ *
+ * <pre>
+ * java -jar supplytracker-loadgen.jar run --mix dashboard --workers 32 --duration 120 --sse 50
+ * java -jar supplytracker-loadgen.jar stub-yolo --port 8000 --latency-ms 150
+ * java -jar supplytracker-loadgen.jar render-bench --product P1 --iterations 20000
+ * </pre>
+ *
+ * Workers pick operations from a weighted mix, either as fast as responses come back (closed loop) or at a
+ * fixed total rate (--rate, latency measured from the intended start so stalls are not hidden). SSE and
+ * GraphQL subscribers stay connected for the whole run. Throughput and latency percentiles per operation
+ * are printed every report interval and for the measured part of the run after the warm-up.
+ */
+public final class LoadGenerator {
+
+    private static final PrintStream out = System.out;
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+            options.weights();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+            return;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        switch (options.command) {
+            case "run" -> run(options, mapper);
+            case "render-bench" -> renderBench(options, mapper);
+            case "stub-yolo" -> {
+                new StubYoloServer(mapper, options.latencyMillis, options.jitterMillis).start(options.port);
+                out.printf("Stub YOLO service listening on port %d (%d ms + up to %d ms jitter)%n",
+                        options.port, options.latencyMillis, options.jitterMillis);
+                Thread.currentThread().join();
+            }
+            default -> {
+                usage();
+                System.exit(2);
+            }
+        }
+    }
+
+    private static void renderBench(Options options, ObjectMapper mapper) throws Exception {
+        ApiClient client = new ApiClient(options.baseUrl, mapper);
+        String productId = options.productId;
+        if (productId == null) {
+            Workload workload = new Workload(options, client, new LatencyStats());
+            workload.prepare(out);
+            productId = workload.productIds.get(0);
+        } else {
+            client.login(options.username, options.password);
+        }
+        new RenderBenchmark().run(client, productId, Math.max(1, options.iterations), out);
+    }
+
+    private static void run(Options options, ObjectMapper mapper) throws Exception {
+        LatencyStats stats = new LatencyStats();
+        ApiClient client = new ApiClient(options.baseUrl, mapper);
+        Workload workload = new Workload(options, client, stats);
+        workload.prepare(out);
+
+        List<SseSubscriber> sseSubscribers = new ArrayList<>();
+        for (int i = 0; i < options.sseSubscribers; i++) {
+            SseSubscriber subscriber = new SseSubscriber(client, mapper, stats, options.sseSnapshot);
+            sseSubscribers.add(subscriber);
+            Thread thread = new Thread(subscriber, "sse-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        List<GraphQlSubscriber> graphQlSubscribers = new ArrayList<>();
+        for (int i = 0; i < options.graphqlSubscribers; i++) {
+            GraphQlSubscriber subscriber = new GraphQlSubscriber(client, mapper, stats);
+            graphQlSubscribers.add(subscriber);
+            subscriber.start();
+        }
+
+        out.printf("Mix %s, %d workers, %s, warm-up %ds, measuring %ds%n", options.mix, options.workers,
+                options.rate > 0 ? options.rate + " ops/s" : "closed loop",
+                options.warmup.toSeconds(), options.duration.toSeconds());
+
+        long start = System.nanoTime();
+        long warmupEnd = start + options.warmup.toNanos();
+        long end = warmupEnd + options.duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(options.workers);
+        for (int i = 0; i < options.workers; i++) {
+            int worker = i;
+            workers.execute(() -> work(workload, options, worker, start, end));
+        }
+        workers.shutdown();
+
+        double measuredSeconds = 0;
+        long lastCut = start;
+        while (lastCut < end) {
+            long interval = options.reportInterval.toNanos();
+            long nextCut = lastCut < warmupEnd ? Math.min(lastCut + interval, warmupEnd) : Math.min(lastCut + interval, end);
+            sleepUntil(nextCut);
+            if (nextCut == end) {
+                // Let in-flight operations finish so they land in the last interval
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            long cut = System.nanoTime();
+            boolean measuring = lastCut >= warmupEnd;
+            double seconds = (cut - lastCut) / 1e9;
+            out.printf("[%5.0fs] %s%n", (cut - start) / 1e9, measuring ? "measuring" : "warm-up");
+            stats.interval(seconds, measuring, out);
+            if (measuring) {
+                measuredSeconds += seconds;
+            }
+            lastCut = cut;
+        }
+
+        sseSubscribers.forEach(SseSubscriber::stop);
+        graphQlSubscribers.forEach(GraphQlSubscriber::stop);
+
+        out.printf("Totals over %.1fs after warm-up%n", measuredSeconds);
+        stats.report(measuredSeconds, out);
+        if (options.hgrmDir != null) {
+            stats.writeHgrm(Path.of(options.hgrmDir));
+            out.printf("Percentile distributions written to %s%n", options.hgrmDir);
+        }
+        System.exit(0);
+    }
+
+    // At a fixed rate each worker owns an evenly spaced slice of the schedule
+    private static void work(Workload workload, Options options, int worker, long start, long end) {
+        long period = options.rate > 0 ? (long) (1e9 * options.workers / options.rate) : 0;
+        long next = start + (period > 0 ? period * worker / options.workers : 0);
+        while (System.nanoTime() < end) {
+            long intended;
+            if (period > 0) {
+                intended = next;
+                next += period;
+                if (intended >= end) {
+                    return;
+                }
+                sleepUntil(intended);
+            } else {
+                intended = System.nanoTime();
+            }
+            Operation operation = workload.next();
+            try {
+                operation.run(workload, intended);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                workload.stats.error(operation.label);
+            }
+        }
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("""
+                Usage:
+                  run [options]        drive a running instance
+                    --url http://localhost:8080   --user admin   --password admin123
+                    --mix dashboard|tracking|mixed or stats=40,page=20,search=20,product=10,tracking=5,ingest=3,detect=2
+                    --workers 16   --rate 0 (ops/s, 0 = closed loop)   --duration 60   --warmup 10   --report-interval 10
+                    --burst 10 (stages per tracking/ingest operation)   --page-size 20   --seed 200 (ensure this many products)
+                    --sse 0 (SSE subscribers)   --sse-snapshot true   --graphql-subscribers 0   --hgrm-dir <dir>
+                  render-bench [options]  time re-serializing a cached product vs writing pre-rendered bytes
+                    --url http://localhost:8080   --user admin   --password admin123
+                    --product <id> (default: first product)   --iterations 20000
+                  stub-yolo [options]  stand-in for the YOLO service
+                    --port 8000   --latency-ms 150   --jitter-ms 50""");
+    }
+}
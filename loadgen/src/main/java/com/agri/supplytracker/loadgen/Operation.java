@@ -0,0 +1,142 @@
+package com.agri.supplytracker.loadgen;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Operations a worker can pick from the mix. Each records its own latency, so bursts record one sample
+ * per request; startNanos is the intended start time, which corrects for coordinated omission at a fixed rate.
+ */
+enum Operation {
+
+    // Dashboard polling: conditional GET with the ETag of the previous poll, 304 when nothing changed
+    STATS("stats") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            String etag = workload.statsEtag.get();
+            ApiClient.Response response = etag != null
+                    ? workload.client.get("/api/products/stats", "If-None-Match", etag)
+                    : workload.client.get("/api/products/stats");
+            workload.stats.record(label, startNanos, response.ok());
+            response.raw().headers().firstValue("ETag").ifPresent(workload.statsEtag::set);
+        }
+    },
+
+    PAGE("page") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            int pages = Math.max(1, workload.catalogSize / workload.options.pageSize);
+            int page = ThreadLocalRandom.current().nextInt(pages);
+            ApiClient.Response response = workload.client.get(
+                    "/api/products?page=" + page + "&size=" + workload.options.pageSize);
+            workload.stats.record(label, startNanos, response.ok());
+        }
+    },
+
+    // Substrings of real product names, like a user typing into the search box
+    SEARCH("search") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            ApiClient.Response response = workload.client.get(
+                    "/api/products/search?q=" + URLEncoder.encode(workload.searchTerm(), StandardCharsets.UTF_8));
+            workload.stats.record(label, startNanos, response.ok());
+        }
+    },
+
+    PRODUCT("product") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            ApiClient.Response response = workload.client.get("/api/products/" + workload.randomProductId());
+            workload.stats.record(label, startNanos, response.ok());
+        }
+    },
+
+    // A scanner flushing its buffer: burst stage appends sent at once, each to a random product
+    TRACKING("tracking") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            List<CompletableFuture<ApiClient.Response>> requests = new ArrayList<>(workload.options.burst);
+            for (int i = 0; i < workload.options.burst; i++) {
+                requests.add(workload.client.postAsync("/api/products/" + workload.randomProductId() + "/tracking",
+                        stage()));
+            }
+            for (CompletableFuture<ApiClient.Response> request : requests) {
+                boolean ok;
+                try {
+                    ok = request.join().ok();
+                } catch (Exception e) {
+                    ok = false;
+                }
+                workload.stats.record(label, startNanos, ok);
+            }
+        }
+    },
+
+    // The same burst as one write-behind ingest request
+    INGEST("ingest") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            List<Map<String, Object>> scans = new ArrayList<>(workload.options.burst);
+            for (int i = 0; i < workload.options.burst; i++) {
+                Map<String, Object> scan = stage();
+                scan.put("eventId", UUID.randomUUID().toString());
+                scan.put("productId", workload.randomProductId());
+                scans.add(scan);
+            }
+            ApiClient.Response response = workload.client.post("/api/tracking/ingest", scans);
+            workload.stats.record(label, startNanos, response.ok());
+        }
+    },
+
+    // Proxied to the YOLO service (the stub when running with docker-compose.loadtest.yml)
+    DETECT("detect") {
+        @Override
+        void run(Workload workload, long startNanos) throws Exception {
+            ApiClient.Response response = workload.client.postFile("/api/detection/detect", "file", "crate.png",
+                    "image/png", workload.sampleImage);
+            workload.stats.record(label, startNanos, response.ok());
+        }
+    };
+
+    private static final String[] STAGES = {"Farm", "Processing", "Warehouse", "Distribution", "Retail"};
+    private static final String[] LOCATIONS = {
+            "Nashik Farm Gate", "Pune Processing Unit", "Mumbai Cold Store", "Thane Distribution Center",
+            "Mumbai Retail Store", "Delhi Distribution Center"
+    };
+
+    final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    abstract void run(Workload workload, long startNanos) throws Exception;
+
+    static Operation byLabel(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + label);
+    }
+
+    private static Map<String, Object> stage() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> stage = new LinkedHashMap<>();
+        stage.put("stage", STAGES[random.nextInt(STAGES.length)]);
+        stage.put("location", LOCATIONS[random.nextInt(LOCATIONS.length)]);
+        stage.put("handler", "loadgen-" + Thread.currentThread().getId());
+        stage.put("timestamp", LocalDateTime.now().toString());
+        stage.put("notes", "load test");
+        return stage;
+    }
+}
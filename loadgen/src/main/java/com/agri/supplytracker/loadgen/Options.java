@@ -0,0 +1,128 @@
+package com.agri.supplytracker.loadgen;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code --name=value} or {@code --name value}.
+ */
+final class Options {
+
+    // Named operation mixes; weights are relative
+    static final Map<String, String> PROFILES = new LinkedHashMap<>();
+
+    static {
+        PROFILES.put("dashboard", "stats=50,page=30,search=15,product=5");
+        PROFILES.put("tracking", "tracking=50,ingest=20,product=15,page=15");
+        PROFILES.put("mixed", "stats=25,page=20,search=20,product=15,tracking=15,ingest=3,detect=2");
+    }
+
+    String command = "run";
+    String baseUrl = "http://localhost:8080";
+    String username = "admin";
+    String password = "admin123";
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    Duration reportInterval = Duration.ofSeconds(10);
+    int workers = 16;
+    // Total operations per second across workers, 0 runs closed-loop (each worker as fast as it can)
+    double rate;
+    String mix = "mixed";
+    int burst = 10;
+    int pageSize = 20;
+    int seedProducts = 200;
+    int sseSubscribers;
+    boolean sseSnapshot = true;
+    int graphqlSubscribers;
+    String hgrmDir;
+
+    // render-bench: product to render (default: the first one in the catalog) and iterations per path
+    String productId;
+    int iterations = 20000;
+
+    // stub-yolo
+    int port = 8000;
+    long latencyMillis = 150;
+    long jitterMillis = 50;
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        int i = 0;
+        if (args.length > 0 && !args[0].startsWith("--")) {
+            options.command = args[0];
+            i = 1;
+        }
+        for (; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name;
+            String value;
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                name = arg.substring(2, eq);
+                value = arg.substring(eq + 1);
+            } else {
+                name = arg.substring(2);
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for --" + name);
+                }
+                value = args[++i];
+            }
+            options.set(name, value);
+        }
+        return options;
+    }
+
+    /**
+     * Operation weights of the configured mix: a profile name or a list such as {@code stats=40,search=60}
+     */
+    Map<Operation, Integer> weights() {
+        String spec = PROFILES.getOrDefault(mix, mix);
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like name=weight: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.byLabel(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "url" -> baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+            case "user" -> username = value;
+            case "password" -> password = value;
+            case "duration" -> duration = Duration.ofSeconds(Long.parseLong(value));
+            case "warmup" -> warmup = Duration.ofSeconds(Long.parseLong(value));
+            case "report-interval" -> reportInterval = Duration.ofSeconds(Long.parseLong(value));
+            case "workers" -> workers = Integer.parseInt(value);
+            case "rate" -> rate = Double.parseDouble(value);
+            case "mix" -> mix = value;
+            case "burst" -> burst = Integer.parseInt(value);
+            case "page-size" -> pageSize = Integer.parseInt(value);
+            case "seed" -> seedProducts = Integer.parseInt(value);
+            case "sse" -> sseSubscribers = Integer.parseInt(value);
+            case "sse-snapshot" -> sseSnapshot = Boolean.parseBoolean(value);
+            case "graphql-subscribers" -> graphqlSubscribers = Integer.parseInt(value);
+            case "hgrm-dir" -> hgrmDir = value;
+            case "product" -> productId = value;
+            case "iterations" -> iterations = Integer.parseInt(value);
+            case "port" -> port = Integer.parseInt(value);
+            case "latency-ms" -> latencyMillis = Long.parseLong(value);
+            case "jitter-ms" -> jitterMillis = Long.parseLong(value);
+            default -> throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares, in this JVM, the two ways the backend can answer a cached product lookup: deserializing the
+ * Redis entry and serializing the product again (the object path), or writing bytes rendered once (the
+ * render cache path). The product is fetched from a running instance, so both paths work on real data;
+ * it is read into records shaped like the backend's Product. Redis and network time are excluded, and
+ * nothing else runs in the JVM while measuring.
+ */
+final class RenderBenchmark {
+
+    // Same shapes as the backend's Product, TrackingStage and GeoJSON point
+    record Point(String type, List<Double> coordinates) {
+    }
+
+    record Stage(String stage, String location, Point position, String handler, LocalDateTime timestamp,
+                 String notes, String eventId) {
+    }
+
+    record Product(String id, String name, String type, String batchId, String harvestDate, String originFarmId,
+                   String originFarmName, String currentLocation, String destination, String status,
+                   Point position, Long version, LocalDateTime lastModifiedAt, List<Stage> trackingHistory) {
+    }
+
+    // The Redis entry of the backend's product cache
+    record CachedProduct(Product product, long expiresAt, long loadMillis) {
+    }
+
+    @FunctionalInterface
+    private interface Op {
+        void run(OutputStream sink) throws IOException;
+    }
+
+    // Responses below this size are not gzipped by the render cache (products.render-cache.gzip-min-bytes)
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    void run(ApiClient client, String productId, int iterations, PrintStream out) throws IOException, InterruptedException {
+        ApiClient.Response response = client.get("/api/products/" + productId);
+        if (!response.ok()) {
+            throw new IOException("Reading product " + productId + " failed with " + response.status() + ": " + response.body());
+        }
+        byte[] json = response.body().getBytes(StandardCharsets.UTF_8);
+        ObjectNode entry = mapper.createObjectNode();
+        entry.set("product", mapper.readTree(json));
+        entry.put("expiresAt", System.currentTimeMillis());
+        entry.put("loadMillis", 1);
+        String cachedEntry = mapper.writeValueAsString(entry);
+        byte[] gzip = json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+
+        out.printf("Product %s: %d bytes JSON%s, %d iterations per path%n", productId, json.length,
+                gzip != null ? ", " + gzip.length + " bytes gzip" : "", iterations);
+        out.printf("%-20s %12s %18s%n", "path", "ns/op", "bytes alloc/op");
+        Measurement objectPath = measure(iterations, sink -> {
+            CachedProduct cached = mapper.readValue(cachedEntry, CachedProduct.class);
+            sink.write(mapper.writeValueAsBytes(cached.product()));
+        });
+        print(out, "object", objectPath);
+        Measurement renderedPath = measure(iterations, sink -> sink.write(json));
+        print(out, "rendered", renderedPath);
+        if (gzip != null) {
+            print(out, "rendered-gzip", measure(iterations, sink -> sink.write(gzip)));
+        }
+        out.printf("Latency speedup: %.1fx%n", objectPath.nanosPerOp() / (double) Math.max(1, renderedPath.nanosPerOp()));
+    }
+
+    private record Measurement(long nanosPerOp, long bytesPerOp) {
+    }
+
+    private static Measurement measure(int iterations, Op operation) throws IOException {
+        OutputStream sink = OutputStream.nullOutputStream();
+        // Warm up so JIT compilation is not part of the measurement
+        for (int i = 0; i < Math.max(1000, iterations / 5); i++) {
+            operation.run(sink);
+        }
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run(sink);
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new Measurement(elapsed / iterations, allocatedBefore >= 0 ? allocated / iterations : -1);
+    }
+
+    private static void print(PrintStream out, String path, Measurement measurement) {
+        out.printf("%-20s %12d %18s%n", path, measurement.nanosPerOp(),
+                measurement.bytesPerOp() >= 0 ? String.valueOf(measurement.bytesPerOp()) : "n/a");
+    }
+
+    // Bytes allocated by the current thread, -1 where the JVM does not support it
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,119 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * One dashboard holding /api/products/stream open. Records how long connecting takes (including the
+ * snapshot when requested) and, for every change event, the delay between the server stamping it and
+ * this client reading it. Sequence gaps are counted as errors of "sse.delivery". Reconnects after a drop.
+ */
+final class SseSubscriber implements Runnable {
+
+    private final ApiClient client;
+    private final ObjectMapper mapper;
+    private final LatencyStats stats;
+    private final boolean snapshot;
+    private volatile boolean running = true;
+    private volatile Stream<String> lines;
+
+    SseSubscriber(ApiClient client, ObjectMapper mapper, LatencyStats stats, boolean snapshot) {
+        this.client = client;
+        this.mapper = mapper;
+        this.stats = stats;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            long started = System.nanoTime();
+            try {
+                HttpRequest request = client.request("/api/products/stream?snapshot=" + snapshot)
+                        .header("Accept", "text/event-stream")
+                        .GET()
+                        .build();
+                HttpResponse<Stream<String>> response = client.http().send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() != 200) {
+                    stats.record("sse.connect", started, false);
+                    response.body().close();
+                    pause();
+                    continue;
+                }
+                lines = response.body();
+                read(started);
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    stats.error("sse.connect");
+                    pause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void stop() {
+        running = false;
+        Stream<String> current = lines;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void read(long started) {
+        boolean[] connected = {false};
+        long[] lastSequence = {-1};
+        lines.forEach(line -> {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            try {
+                JsonNode event = mapper.readTree(line.substring(5));
+                String type = event.path("type").asText();
+                if (!connected[0] && (type.equals("SNAPSHOT") || (!snapshot && type.equals("connected")))) {
+                    stats.record("sse.connect", started, true);
+                    connected[0] = true;
+                }
+                if (!event.has("sequence")) {
+                    return;
+                }
+                long sequence = event.path("sequence").asLong();
+                if (lastSequence[0] >= 0 && sequence > lastSequence[0] + 1) {
+                    stats.error("sse.delivery");
+                }
+                lastSequence[0] = sequence;
+                if (event.hasNonNull("timestamp") && !type.equals("SNAPSHOT")) {
+                    stats.recordMicros("sse.delivery", lagMicros(event.path("timestamp").asText()), true);
+                }
+            } catch (IOException e) {
+                stats.error("sse.delivery");
+            }
+        });
+    }
+
+    /**
+     * Microseconds since a server timestamp (ISO local date-time); both ends run on the same box
+     */
+    static long lagMicros(String timestamp) {
+        long micros = Duration.between(LocalDateTime.parse(timestamp), LocalDateTime.now()).toNanos() / 1000;
+        return Math.max(1, micros);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
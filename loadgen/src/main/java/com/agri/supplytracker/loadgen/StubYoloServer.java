@@ -0,0 +1,77 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for the YOLOv3 service: same endpoints and response shapes, a fixed inference delay plus
+ * random jitter instead of a model. Lets load tests exercise /api/detection without a GPU.
+ */
+final class StubYoloServer {
+
+    private static final List<Map<String, Object>> DETECTIONS = List.of(
+            Map.of("class", "mango", "confidence", 0.93, "bbox", List.of(12, 10, 40, 42), "center", List.of(32, 31)),
+            Map.of("class", "bruised_mango", "confidence", 0.71, "bbox", List.of(50, 8, 30, 33), "center", List.of(65, 24)));
+
+    private final ObjectMapper mapper;
+    private final long latencyMillis;
+    private final long jitterMillis;
+
+    StubYoloServer(ObjectMapper mapper, long latencyMillis, long jitterMillis) {
+        this.mapper = mapper;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 256);
+        server.setExecutor(Executors.newFixedThreadPool(64));
+        server.createContext("/health", exchange -> respond(exchange, false, Map.of(
+                "status", "healthy", "model", "Stub YOLOv3", "classes", List.of("mango", "bruised_mango"),
+                "total_classes", 2, "backend", "stub")));
+        server.createContext("/detect", exchange -> respond(exchange, true, Map.of(
+                "success", true, "detections", DETECTIONS, "count", DETECTIONS.size(),
+                "image_size", Map.of("width", 64, "height", 64))));
+        server.createContext("/quality-check", exchange -> respond(exchange, true, Map.of(
+                "success", true, "quality_score", 80, "grade", "B", "detections", DETECTIONS,
+                "issues", List.of(Map.of("type", "bruised_mango", "severity", "medium", "confidence", 0.71)))));
+        server.createContext("/batch-detect", exchange -> respond(exchange, true, Map.of(
+                "success", true, "results", List.of(Map.of("detections", DETECTIONS, "count", DETECTIONS.size())))));
+        server.start();
+        return server;
+    }
+
+    private void respond(HttpExchange exchange, boolean inference, Map<String, Object> body) throws IOException {
+        try (InputStream request = exchange.getRequestBody()) {
+            request.transferTo(OutputStream.nullOutputStream());
+        }
+        if (inference) {
+            simulateInference();
+        }
+        byte[] json = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(json);
+        }
+    }
+
+    private void simulateInference() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
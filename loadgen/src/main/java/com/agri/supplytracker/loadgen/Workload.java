@@ -0,0 +1,167 @@
+package com.agri.supplytracker.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shared state for the workers: the API client, the products to operate on, and the weighted operation mix.
+ */
+final class Workload {
+
+    private static final String[] NAMES = {"Alphonso Mango", "Basmati Rice", "Red Onion", "Green Chilli",
+            "Kesar Mango", "Wheat Flour", "Toor Dal", "Pomegranate", "Banana", "Turmeric"};
+    private static final String[] TYPES = {"Fruit", "Grain", "Vegetable", "Spice", "Pulse"};
+    private static final int CATALOG_PAGE_SIZE = 100;
+
+    final Options options;
+    final ApiClient client;
+    final LatencyStats stats;
+    final List<String> productIds = new ArrayList<>();
+    final List<String> productNames = new ArrayList<>();
+    // Each worker polls /stats like one dashboard tab, with its own ETag
+    final ThreadLocal<String> statsEtag = new ThreadLocal<>();
+    final byte[] sampleImage;
+    int catalogSize;
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    Workload(Options options, ApiClient client, LatencyStats stats) throws IOException {
+        this.options = options;
+        this.client = client;
+        this.stats = stats;
+        this.sampleImage = sampleImage();
+        Map<Operation, Integer> weights = options.weights();
+        operations = weights.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Log in, create products until the catalog has the requested size, and load their ids
+     */
+    void prepare(PrintStream out) throws IOException, InterruptedException {
+        try {
+            client.login(options.username, options.password);
+        } catch (IOException e) {
+            // Fresh stand-in database: create the admin the load test runs as
+            out.printf("Login failed, registering %s as admin%n", options.username);
+            ApiClient.Response registered = client.post("/api/auth/register", Map.of(
+                    "username", options.username, "email", options.username + "@loadtest.local",
+                    "password", options.password, "roles", List.of("ROLE_ADMIN")));
+            if (!registered.ok()) {
+                throw new IOException("Registering " + options.username + " failed with " + registered.status()
+                        + ": " + registered.body());
+            }
+            client.login(options.username, options.password);
+        }
+        loadCatalog();
+        int missing = options.seedProducts - catalogSize;
+        if (missing > 0) {
+            out.printf("Seeding %d products%n", missing);
+            for (int i = 0; i < missing; i++) {
+                ApiClient.Response response = client.post("/api/products", seedProduct(catalogSize + i));
+                if (!response.ok()) {
+                    throw new IOException("Creating a product failed with " + response.status() + ": " + response.body());
+                }
+            }
+            productIds.clear();
+            productNames.clear();
+            loadCatalog();
+        }
+        if (productIds.isEmpty()) {
+            throw new IOException("No products to run against; use --seed to create some");
+        }
+        out.printf("Running against %d products (%d loaded)%n", catalogSize, productIds.size());
+    }
+
+    Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    String randomProductId() {
+        return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+    }
+
+    // Three to six characters from somewhere in a product name
+    String searchTerm() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String name = productNames.get(random.nextInt(productNames.size()));
+        int length = Math.min(name.length(), 3 + random.nextInt(4));
+        int start = random.nextInt(name.length() - length + 1);
+        return name.substring(start, start + length);
+    }
+
+    // Ids and names of up to max(seed, one page) products
+    private void loadCatalog() throws IOException, InterruptedException {
+        int wanted = Math.max(options.seedProducts, CATALOG_PAGE_SIZE);
+        for (int page = 0; productIds.size() < wanted; page++) {
+            ApiClient.Response response = client.get("/api/products?page=" + page + "&size=" + CATALOG_PAGE_SIZE);
+            if (!response.ok()) {
+                throw new IOException("Listing products failed with " + response.status() + ": " + response.body());
+            }
+            JsonNode body = client.json(response);
+            catalogSize = body.path("totalItems").asInt();
+            JsonNode products = body.path("products");
+            for (JsonNode product : products) {
+                productIds.add(product.path("id").asText());
+                productNames.add(product.path("name").asText(""));
+            }
+            if (products.size() < CATALOG_PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    private static Map<String, Object> seedProduct(int n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("name", NAMES[n % NAMES.length] + " " + n);
+        product.put("type", TYPES[random.nextInt(TYPES.length)]);
+        product.put("batchId", "LOAD-B" + (n / 25));
+        product.put("harvestDate", LocalDate.now().minusDays(random.nextInt(60)).toString());
+        product.put("originFarmId", "LOAD-F" + (n / 100));
+        product.put("originFarmName", "Load Test Farm " + (n / 100));
+        product.put("currentLocation", "Nashik Farm Gate");
+        product.put("destination", "Mumbai Retail Store");
+        product.put("status", "AT_FARM");
+        return product;
+    }
+
+    // A small PNG so detection requests carry a real image without bundling one
+    private static byte[] sampleImage() throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x2E7D32));
+        graphics.fillRect(0, 0, 64, 64);
+        graphics.setColor(new Color(0xF9A825));
+        graphics.fillOval(16, 16, 32, 32);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -1,5 +1,5 @@
 import { useEffect, useState } from "react";
-import { getProducts, createProduct, updateProduct, deleteProduct, login, register, addTrackingStage, getDashboardStats, getFarms, createFarm, updateFarm, deleteFarm } from "./api";
+import { getProducts, createProduct, updateProduct, deleteProduct, login, logout, register, addTrackingStage, getDashboardStats, getFarms, createFarm, updateFarm, deleteFarm } from "./api";
 import Homepage from "./Homepage";
 import ObjectDetection from "./components/ObjectDetection";
 import GraphQLPlayground from "./components/GraphQLPlayground";
@@ -85,12 +85,14 @@ function App() {
     const hashParams = window.location.hash ? new URLSearchParams(window.location.hash.substring(1)) : null;
     
     const urlToken = urlParams.get('token') || (hashParams && hashParams.get('token'));
+    const urlRefreshToken = urlParams.get('refreshToken') || (hashParams && hashParams.get('refreshToken'));
     const urlUsername = urlParams.get('username') || (hashParams && hashParams.get('username'));
     const urlRoles = urlParams.get('roles') || (hashParams && hashParams.get('roles'));
 
     if (urlToken && urlUsername) {
       // OAuth2 login successful
       localStorage.setItem("token", urlToken);
+      if (urlRefreshToken) localStorage.setItem("refreshToken", urlRefreshToken);
       localStorage.setItem("username", urlUsername);
       const rolesArray = urlRoles ? urlRoles.split(',') : ['ROLE_USER'];
       localStorage.setItem("roles", JSON.stringify(rolesArray));
@@ -169,6 +171,7 @@ function App() {
 
       if (response.token) {
         localStorage.setItem("token", response.token);
+        if (response.refreshToken) localStorage.setItem("refreshToken", response.refreshToken);
         localStorage.setItem("username", response.username);
         localStorage.setItem("roles", JSON.stringify(response.roles || []));
         if (response.stageProfile) localStorage.setItem("stageProfile", response.stageProfile);
@@ -199,7 +202,9 @@ function App() {
   };
 
   const handleLogout = () => {
+    logout();
     localStorage.removeItem("token");
+    localStorage.removeItem("refreshToken");
     localStorage.removeItem("username");
     localStorage.removeItem("roles");
     localStorage.removeItem("stageProfile");
@@ -27,18 +27,52 @@ apiClient.interceptors.request.use(
   }
 );
 
+// Access tokens are short-lived; concurrent 401s share one refresh
+let refreshing = null;
+
+function refreshAccessToken() {
+  if (!refreshing) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshing = (refreshToken
+      ? axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken }).then((res) => {
+          localStorage.setItem('token', res.data.token);
+          localStorage.setItem('refreshToken', res.data.refreshToken);
+          localStorage.setItem('roles', JSON.stringify(res.data.roles || []));
+          return res.data.token;
+        })
+      : Promise.reject(new Error('No refresh token'))
+    ).finally(() => {
+      refreshing = null;
+    });
+  }
+  return refreshing;
+}
+
 // Response interceptor - Handle errors globally
 apiClient.interceptors.response.use(
   (response) => {
     return response;
   },
-  (error) => {
+  async (error) => {
+    const original = error.config;
+    if (error.response?.status === 401 && original && !original._retried && !original.url?.startsWith('/auth/')) {
+      // Expired access token - refresh once and replay the request
+      original._retried = true;
+      try {
+        const token = await refreshAccessToken();
+        original.headers.Authorization = `Bearer ${token}`;
+        return apiClient(original);
+      } catch {
+        // Fall through to logging out
+      }
+    }
     if (error.response) {
       // Server responded with error status
       switch (error.response.status) {
         case 401:
           // Unauthorized - clear auth and redirect to login
           localStorage.removeItem('token');
+          localStorage.removeItem('refreshToken');
           localStorage.removeItem('username');
           localStorage.removeItem('roles');
           window.location.href = '/';
@@ -71,6 +105,14 @@ export async function login(username, password) {
   return res.data;
 }
 
+// Revokes the refresh token on the server; logging out locally goes ahead even if this fails
+export async function logout() {
+  const refreshToken = localStorage.getItem('refreshToken');
+  if (refreshToken) {
+    await apiClient.post('/auth/logout', { refreshToken }).catch(() => {});
+  }
+}
+
 export async function register(username, email, password) {
   const res = await apiClient.post('/auth/register', { username, email, password });
   return res.data;
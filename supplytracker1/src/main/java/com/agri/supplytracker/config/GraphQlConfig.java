@@ -0,0 +1,61 @@
+package com.agri.supplytracker.config;
+
+import com.agri.supplytracker.graphql.GraphQlPhaseMetricsInstrumentation;
+import com.agri.supplytracker.graphql.PersistedDocumentProvider;
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GraphQlConfig {
+
+    @Value("${graphql.document-cache.max-entries:500}")
+    private int documentCacheMaxEntries;
+
+    @Value("${graphql.limits.max-depth:8}")
+    private int maxDepth;
+
+    @Value("${graphql.limits.max-complexity:2000}")
+    private int maxComplexity;
+
+    // Cost multiplier for list fields such as products and trackingHistory
+    @Value("${graphql.limits.list-multiplier:10}")
+    private int listMultiplier;
+
+    // Distinct operation names used as metric tags, later ones are recorded as "other"
+    @Value("${graphql.metrics.max-operation-names:200}")
+    private int maxOperationNames;
+
+    @Bean
+    public GraphQlSourceBuilderCustomizer persistedDocumentCustomizer(MeterRegistry meterRegistry) {
+        PersistedDocumentProvider documentProvider = new PersistedDocumentProvider(documentCacheMaxEntries, meterRegistry);
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentProvider));
+    }
+
+    // Depth and complexity are checked before any data fetcher runs, so expensive operations are rejected up front
+    @Bean
+    public MaxQueryDepthInstrumentation maxQueryDepthInstrumentation() {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation() {
+        FieldComplexityCalculator calculator = (environment, childComplexity) -> {
+            boolean list = GraphQLTypeUtil.unwrapNonNull(environment.getFieldDefinition().getType()) instanceof GraphQLList;
+            return list ? listMultiplier * (1 + childComplexity) : 1 + childComplexity;
+        };
+        return new MaxQueryComplexityInstrumentation(maxComplexity, calculator);
+    }
+
+    @Bean
+    public GraphQlPhaseMetricsInstrumentation graphQlPhaseMetricsInstrumentation(MeterRegistry meterRegistry) {
+        return new GraphQlPhaseMetricsInstrumentation(meterRegistry, maxOperationNames);
+    }
+}
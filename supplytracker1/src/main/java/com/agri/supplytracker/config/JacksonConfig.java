@@ -0,0 +1,16 @@
+package com.agri.supplytracker.config;
+
+import com.fasterxml.jackson.databind.Module;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.geo.GeoJsonModule;
+
+@Configuration
+public class JacksonConfig {
+
+    // Read and write coordinates as GeoJSON ({"type": "Point", "coordinates": [longitude, latitude]})
+    @Bean
+    public Module geoJsonModule() {
+        return GeoJsonModule.geoJsonModule();
+    }
+}
@@ -0,0 +1,102 @@
+package com.agri.supplytracker.config;
+
+import com.agri.supplytracker.model.Farm;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.RefreshToken;
+import com.agri.supplytracker.model.StageRollup;
+import com.agri.supplytracker.model.TelemetryChunk;
+import com.agri.supplytracker.model.TelemetryWindow;
+import com.agri.supplytracker.model.User;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+/**
+ * Creates the indexes the query paths rely on (automatic index creation is off by default)
+ * and backfills fields older documents are missing
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations products = mongoTemplate.indexOps(Product.class);
+        // Batch tracking updates select every product of a batch
+        products.ensureIndex(new Index().on("batchId", Sort.Direction.ASC));
+        // Farm summaries and recall queries select a farm's products, or a batch within a farm
+        products.ensureIndex(new Index().on("originFarmId", Sort.Direction.ASC).on("batchId", Sort.Direction.ASC));
+        // Catalog snapshot catch-up reads products changed since the snapshot
+        products.ensureIndex(new Index().on("lastModifiedAt", Sort.Direction.ASC));
+        // The archiver selects products in a final status not written for a while
+        products.ensureIndex(new Index().on("status", Sort.Direction.ASC).on("lastModifiedAt", Sort.Direction.ASC));
+        // Farm renames walk a farm's products in id order
+        products.ensureIndex(new Index().on("originFarmId", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        // Proximity and area queries on coordinates (documents without a position are not indexed)
+        products.ensureIndex(new GeospatialIndex("position").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+        mongoTemplate.indexOps(Farm.class).ensureIndex(new GeospatialIndex("position").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+
+        mongoTemplate.indexOps(StageRollup.class).ensureIndex(stageRollupIndex());
+
+        // Registration relies on these instead of checking for existing users first; named like the
+        // @Indexed annotations on User so indexes created by automatic index creation are reused
+        IndexOperations users = mongoTemplate.indexOps(User.class);
+        users.ensureIndex(new Index().on("username", Sort.Direction.ASC).unique().named("username"));
+        users.ensureIndex(new Index().on("email", Sort.Direction.ASC).unique().named("email"));
+
+        // Refresh tokens are dropped once expired
+        mongoTemplate.indexOps(RefreshToken.class).ensureIndex(new Index()
+                .on("expiresAt", Sort.Direction.ASC)
+                .expire(0));
+
+        // Telemetry range queries select a batch's chunks and windows by time
+        mongoTemplate.indexOps(TelemetryChunk.class).ensureIndex(new Index()
+                .on("batchId", Sort.Direction.ASC)
+                .on("start", Sort.Direction.ASC));
+        mongoTemplate.indexOps(TelemetryWindow.class).ensureIndex(new Index()
+                .on("batchId", Sort.Direction.ASC)
+                .on("windowStart", Sort.Direction.ASC));
+    }
+
+    // Products saved before versioning have no version; Spring Data would treat them as new and insert.
+    // Products saved before auditing have no lastModifiedAt, which archiving and catalog catch-up select
+    // on; they get their last tracking time, else their harvest date, else now.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillProductVersions() {
+        mongoTemplate.updateMulti(new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L), Product.class);
+        Document harvested = new Document("$dateFromString", new Document("dateString", "$harvestDate")
+                .append("onError", "$$NOW")
+                .append("onNull", "$$NOW"));
+        Document lastModified = new Document("$ifNull", List.of(
+                new Document("$arrayElemAt", List.of("$trackingHistory.timestamp", -1)), harvested));
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class)).updateMany(
+                Filters.exists("lastModifiedAt", false),
+                List.of(new Document("$set", new Document("lastModifiedAt", lastModified))));
+    }
+
+    // Analytics queries select rollups by granularity and time range
+    public static Index stageRollupIndex() {
+        return new Index()
+                .on("granularity", Sort.Direction.ASC)
+                .on("bucketStart", Sort.Direction.ASC);
+    }
+}
@@ -0,0 +1,47 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.event.SlaBreachAlert;
+import com.agri.supplytracker.service.SlaBreachDetector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private final SlaBreachDetector slaBreachDetector;
+
+    @Autowired
+    public AlertController(SlaBreachDetector slaBreachDetector) {
+        this.slaBreachDetector = slaBreachDetector;
+    }
+
+    // GET /api/alerts?stage=Warehouse&type=Fruit
+    // Products currently over their dwell limit; new breaches are also pushed on /api/products/stream
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getActiveAlerts(
+            @RequestParam(required = false) String stage,
+            @RequestParam(required = false) String type) {
+        List<SlaBreachAlert> alerts = slaBreachDetector.activeBreaches(stage, type);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("alerts", alerts);
+        response.put("count", alerts.size());
+        response.put("trackedProducts", slaBreachDetector.trackedProducts());
+        return ResponseEntity.ok(response);
+    }
+
+    // GET configured dwell limits in seconds, keyed by stage or type/stage
+    @GetMapping("/limits")
+    public ResponseEntity<Map<String, Long>> getLimits() {
+        Map<String, Long> limits = new HashMap<>();
+        slaBreachDetector.limits().forEach((key, millis) -> limits.put(key, millis / 1000));
+        return ResponseEntity.ok(limits);
+    }
+}
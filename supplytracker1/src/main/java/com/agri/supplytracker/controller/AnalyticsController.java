@@ -0,0 +1,69 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.StageAnalyticsService;
+import com.agri.supplytracker.service.StageAnalyticsService.Granularity;
+import com.agri.supplytracker.service.StageAnalyticsService.GroupBy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final StageAnalyticsService analyticsService;
+
+    @Autowired
+    public AnalyticsController(StageAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    // GET /api/analytics/throughput?granularity=DAY&from=2024-01-01T00:00&to=2024-02-01T00:00&groupBy=FARM
+    @GetMapping("/throughput")
+    public List<Map<String, Object>> getThroughput(
+            @RequestParam(defaultValue = "DAY") Granularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String stage,
+            @RequestParam(required = false) String farmId,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "NONE") GroupBy groupBy) {
+        return analyticsService.throughput(granularity, from, to, stage, farmId, type, groupBy);
+    }
+
+    // GET /api/analytics/dwell?from=2024-01-01T00:00&to=2024-02-01T00:00&stage=Warehouse&groupBy=TYPE
+    @GetMapping("/dwell")
+    public List<Map<String, Object>> getDwellTimes(
+            @RequestParam(defaultValue = "DAY") Granularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String stage,
+            @RequestParam(required = false) String farmId,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "NONE") GroupBy groupBy) {
+        return analyticsService.dwellTimes(granularity, from, to, stage, farmId, type, groupBy);
+    }
+
+    // POST rebuild all rollups from tracking history (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill() {
+        boolean started = analyticsService.startBackfill();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(analyticsService.backfillStatus());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/backfill")
+    public Map<String, Object> getBackfillStatus() {
+        return analyticsService.backfillStatus();
+    }
+}
@@ -0,0 +1,40 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.ProductArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    private final ProductArchiveService archiveService;
+
+    @Autowired
+    public ArchiveController(ProductArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    // GET last archive run, settings and archived product count (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(archiveService.status());
+    }
+
+    // POST start an archive run now instead of waiting for the schedule (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> run() {
+        if (!archiveService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "An archive run is already in progress"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(archiveService.status());
+    }
+}
@@ -3,21 +3,17 @@ package com.agri.supplytracker.controller;
 import com.agri.supplytracker.dto.AuthResponse;
 import com.agri.supplytracker.dto.LoginRequest;
 import com.agri.supplytracker.dto.RegisterRequest;
-import com.agri.supplytracker.model.User;
-import com.agri.supplytracker.repository.UserRepository;
-import com.agri.supplytracker.security.JwtUtil;
+import com.agri.supplytracker.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -25,84 +21,55 @@ import java.util.Set;
 public class AuthController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
-
-    @Autowired
-    private UserDetailsService userDetailsService;
-
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private PasswordEncoder passwordEncoder;
+    private AuthService authService;
 
+    // Password checks complete on the hashing pool; the request thread is released meanwhile
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
-            );
-        } catch (BadCredentialsException e) {
-            return ResponseEntity.badRequest().body(new AuthResponse(null, null, null, "Invalid username or password"));
-        }
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest) {
+        return authService.authenticate(loginRequest.getUsername(), loginRequest.getPassword())
+                .<ResponseEntity<?>>thenApply(user -> user != null
+                        ? ResponseEntity.ok(authService.issueTokens(user, "Login successful"))
+                        : ResponseEntity.badRequest().body(new AuthResponse(null, null, null, "Invalid username or password")))
+                .exceptionally(AuthController::failed);
+    }
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(loginRequest.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
-        
-        User user = userRepository.findByUsername(loginRequest.getUsername()).orElse(null);
-        Set<String> roles = user != null ? user.getRoles() : new HashSet<>();
-        
-        AuthResponse response = new AuthResponse(jwt, loginRequest.getUsername(), roles, "Login successful");
-        if (user != null) {
-            response.setStageProfile(user.getStageProfile());
-            response.setLocation(user.getLocation());
-            response.setAssociatedFarmId(user.getAssociatedFarmId());
-        }
+    @PostMapping("/register")
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegisterRequest registerRequest) {
+        // Auto-login after registration
+        return authService.register(registerRequest)
+                .<ResponseEntity<?>>thenApply(user -> ResponseEntity.ok(authService.issueTokens(user, "Registration successful")))
+                .exceptionally(AuthController::failed);
+    }
 
-        return ResponseEntity.ok(response);
+    // POST /api/auth/refresh {"refreshToken": "..."}
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> body) {
+        return authService.refresh(body.get("refreshToken"))
+                .<ResponseEntity<?>>map(user -> ResponseEntity.ok(authService.issueTokens(user, "Token refreshed")))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(new AuthResponse(null, null, null, "Invalid or expired refresh token")));
     }
 
-    @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest) {
-        // Check if username exists
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
-            return ResponseEntity.badRequest().body(new AuthResponse(null, null, null, "Username already exists"));
-        }
+    // POST /api/auth/logout {"refreshToken": "..."} - the refresh token stops working; access tokens run out on their own
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody Map<String, String> body) {
+        authService.logout(body.get("refreshToken"));
+        return ResponseEntity.noContent().build();
+    }
 
-        // Check if email exists
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            return ResponseEntity.badRequest().body(new AuthResponse(null, null, null, "Email already exists"));
+    private static ResponseEntity<?> failed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(new AuthResponse(null, null, null, "Too many logins in progress, try again shortly"));
         }
-
-        // Create new user
-        User user = new User();
-        user.setUsername(registerRequest.getUsername());
-        user.setEmail(registerRequest.getEmail());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
-        
-        // Set roles - default to ROLE_USER unless specified
-        Set<String> roles = new HashSet<>();
-        if (registerRequest.getRoles() != null && !registerRequest.getRoles().isEmpty()) {
-            roles.addAll(registerRequest.getRoles());
-        } else {
-            roles.add("ROLE_USER");
+        if (cause instanceof DuplicateKeyException) {
+            // The unique index that rejected the insert is named in the message
+            String message = cause.getMessage() != null && cause.getMessage().contains("index: email")
+                    ? "Email already exists" : "Username already exists";
+            return ResponseEntity.badRequest().body(new AuthResponse(null, null, null, message));
         }
-        user.setRoles(roles);
-
-        userRepository.save(user);
-
-        // Auto-login after registration
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(registerRequest.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
-        
-        AuthResponse response = new AuthResponse(jwt, registerRequest.getUsername(), roles, "Registration successful");
-        response.setStageProfile(user.getStageProfile());
-        response.setLocation(user.getLocation());
-        response.setAssociatedFarmId(user.getAssociatedFarmId());
-
-        return ResponseEntity.ok(response);
+        throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
     }
 }
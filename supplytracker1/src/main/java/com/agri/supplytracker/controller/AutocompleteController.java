@@ -0,0 +1,55 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.AutocompleteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/autocomplete")
+public class AutocompleteController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final AutocompleteService autocompleteService;
+
+    @Autowired
+    public AutocompleteController(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    // GET /api/autocomplete?q=man&limit=10&kinds=PRODUCT,BATCH,FARM
+    // Served from memory, never touches MongoDB
+    @GetMapping
+    public ResponseEntity<?> autocomplete(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) List<String> kinds) {
+        Set<AutocompleteService.Kind> selected = EnumSet.allOf(AutocompleteService.Kind.class);
+        if (kinds != null && !kinds.isEmpty()) {
+            selected = EnumSet.noneOf(AutocompleteService.Kind.class);
+            try {
+                for (String kind : kinds) {
+                    selected.add(AutocompleteService.Kind.valueOf(kind.trim().toUpperCase()));
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "kinds must be PRODUCT, BATCH or FARM"));
+            }
+        }
+
+        AutocompleteService.Result result = autocompleteService.suggest(q, Math.max(1, Math.min(limit, MAX_LIMIT)), selected);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", q);
+        response.put("suggestions", result.suggestions());
+        response.put("truncated", result.truncated());
+        return ResponseEntity.ok(response);
+    }
+}
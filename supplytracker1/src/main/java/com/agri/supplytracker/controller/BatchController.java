@@ -0,0 +1,64 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.event.ProductChangePublisher;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import com.agri.supplytracker.repository.ProductRepository;
+import com.agri.supplytracker.security.StageAuthorization;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/batches")
+public class BatchController {
+
+    private final ProductRepository repository;
+    private final ProductChangePublisher changePublisher;
+
+    @Autowired
+    public BatchController(ProductRepository repository, ProductChangePublisher changePublisher) {
+        this.repository = repository;
+        this.changePublisher = changePublisher;
+    }
+
+    // POST add the same tracking stage to every product of a batch in one update
+    // Permissions: same role-to-stage rules as POST /api/products/{id}/tracking
+    @PreAuthorize("hasAnyRole('ADMIN', 'FARMER', 'PROCESSOR', 'WAREHOUSE_MANAGER', 'DISTRIBUTOR', 'RETAILER')")
+    @PostMapping("/{batchId}/tracking")
+    public ResponseEntity<?> addBatchTrackingStage(@PathVariable String batchId,
+                                                   @Valid @RequestBody TrackingStage trackingStage,
+                                                   Authentication authentication) {
+        if (!StageAuthorization.canAddStage(authentication, trackingStage.getStage())) {
+            return ResponseEntity.status(403).body(Map.of("error", "You are not authorized to add this tracking stage"));
+        }
+
+        List<Product> members = repository.findBatchMembers(batchId);
+        if (members.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Set timestamp if not provided
+        if (trackingStage.getTimestamp() == null) {
+            trackingStage.setTimestamp(java.time.LocalDateTime.now());
+        }
+
+        long affected = repository.appendTrackingStage(members.stream().map(Product::getId).toList(), trackingStage);
+        changePublisher.batchTrackingAppended(batchId, trackingStage, members, affected);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("batchId", batchId);
+        response.put("stage", trackingStage.getStage());
+        response.put("matched", members.size());
+        response.put("affected", affected);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,44 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.CatalogWarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/catalog/snapshot")
+public class CatalogSnapshotController {
+
+    private final CatalogWarmupService warmupService;
+
+    @Autowired
+    public CatalogSnapshotController(CatalogWarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    // GET snapshot size, record count, warm-up time and catch-up lag (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(warmupService.status());
+    }
+
+    // POST write a fresh snapshot now (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping
+    public ResponseEntity<?> writeSnapshot() {
+        try {
+            warmupService.writeSnapshot();
+            return ResponseEntity.ok(warmupService.status());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to write catalog snapshot", "message", e.getMessage()));
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.agri.supplytracker.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -22,6 +25,22 @@ public class DetectionController {
 
     private final RestTemplate restTemplate = new RestTemplate();
 
+    public DetectionController(MeterRegistry meterRegistry) {
+        // Time every call to the YOLO service by endpoint path and outcome (2xx/4xx/5xx, or IO_ERROR when no response)
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "IO_ERROR";
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                outcome = response.getStatusCode().value() / 100 + "xx";
+                return response;
+            } finally {
+                sample.stop(meterRegistry.timer("yolo.proxy.requests",
+                        "endpoint", request.getURI().getPath(), "outcome", outcome));
+            }
+        });
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
         try {
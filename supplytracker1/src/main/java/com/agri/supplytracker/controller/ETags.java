@@ -0,0 +1,69 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.model.Product;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong ETags derived from product versions, and If-None-Match matching
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String product(String id, long version) {
+        return "\"p-" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Tag for the gzip-encoded body of the same representation, which must not share the identity tag
+     */
+    static String gzip(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    static String tracking(String id, long version) {
+        return "\"t-" + id + "-" + version + "\"";
+    }
+
+    static String catalog(String catalogVersion) {
+        return "\"c-" + catalogVersion + "\"";
+    }
+
+    /**
+     * Tag for a list page: the query that produced it plus every id and version on it
+     */
+    static String page(String query, long totalItems, List<Product> products) {
+        StringBuilder key = new StringBuilder(query).append('|').append(totalItems);
+        for (Product product : products) {
+            key.append('|').append(product.getId()).append(':').append(product.getVersion());
+        }
+        return "\"l-" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tag in If-None-Match that matches either encoding of the representation, or null
+     */
+    static String matchedEncoding(String ifNoneMatch, String etag) {
+        if (matches(ifNoneMatch, etag)) {
+            return etag;
+        }
+        return etag != null && matches(ifNoneMatch, gzip(etag)) ? gzip(etag) : null;
+    }
+}
@@ -1,15 +1,26 @@
 package com.agri.supplytracker.controller;
 
+import com.agri.supplytracker.event.FarmChangeEvent;
 import com.agri.supplytracker.model.Farm;
+import com.agri.supplytracker.model.FarmRenameJob;
 import com.agri.supplytracker.repository.FarmRepository;
+import com.agri.supplytracker.service.FarmNamePropagationService;
+import com.agri.supplytracker.service.FarmSummaryService;
+import com.agri.supplytracker.service.GeoSearchService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,10 +30,23 @@ import java.util.Map;
 public class FarmController {
 
     private final FarmRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GeoSearchService geoSearchService;
+    private final FarmNamePropagationService farmNamePropagationService;
+    private final FarmSummaryService farmSummaryService;
+    private final int maxSummaryFarms;
 
     @Autowired
-    public FarmController(FarmRepository repository) {
+    public FarmController(FarmRepository repository, ApplicationEventPublisher eventPublisher,
+                          GeoSearchService geoSearchService, FarmNamePropagationService farmNamePropagationService,
+                          FarmSummaryService farmSummaryService,
+                          @Value("${farms.summary.max-farms:500}") int maxSummaryFarms) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.geoSearchService = geoSearchService;
+        this.farmNamePropagationService = farmNamePropagationService;
+        this.farmSummaryService = farmSummaryService;
+        this.maxSummaryFarms = maxSummaryFarms;
     }
 
     // GET all farms
@@ -31,6 +55,73 @@ public class FarmController {
         return repository.findAll();
     }
 
+    // GET /api/farms/near?latitude=19.07&longitude=72.87&maxDistanceKm=50&page=0&size=20
+    // Farms with coordinates within maxDistanceKm, nearest first, each with its distanceKm
+    @GetMapping("/near")
+    public ResponseEntity<?> getFarmsNear(@RequestParam double latitude,
+                                          @RequestParam double longitude,
+                                          @RequestParam(defaultValue = "50") double maxDistanceKm,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(geoSearchService.farmsNear(latitude, longitude, maxDistanceKm, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // GET /api/farms/within?minLatitude=18.9&minLongitude=72.7&maxLatitude=19.3&maxLongitude=73.1&page=0&size=20
+    @GetMapping("/within")
+    public ResponseEntity<?> getFarmsWithin(@RequestParam double minLatitude,
+                                            @RequestParam double minLongitude,
+                                            @RequestParam double maxLatitude,
+                                            @RequestParam double maxLongitude,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(geoSearchService.farmsWithin(
+                    new GeoSearchService.Area(minLatitude, minLongitude, maxLatitude, maxLongitude), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // GET /api/farms/summary?ids=F1,F2, or /api/farms/summary?page=0&size=100 for every farm a page at a time
+    // Product counts by type and status plus the latest harvests, per farm. Without ids, registered farms are
+    // paged in id order and the summaries come with currentPage, totalItems and totalPages.
+    @GetMapping("/summary")
+    public ResponseEntity<?> getFarmSummaries(@RequestParam(required = false) List<String> ids,
+                                              @RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "100") int size) {
+        if (ids != null) {
+            if (ids.size() > maxSummaryFarms) {
+                return ResponseEntity.badRequest().body(Map.of("error", "At most " + maxSummaryFarms + " farms per request"));
+            }
+            return ResponseEntity.ok(farmSummaryService.summaries(ids).values());
+        }
+        if (page < 0 || size < 1 || size > maxSummaryFarms) {
+            return ResponseEntity.badRequest().body(Map.of("error", "page must be >= 0 and size between 1 and " + maxSummaryFarms));
+        }
+        Page<Farm> farms = repository.findAll(PageRequest.of(page, size, Sort.by("id")));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("summaries", farmSummaryService.summaries(farms.map(Farm::getId).getContent()).values());
+        response.put("currentPage", farms.getNumber());
+        response.put("totalItems", farms.getTotalElements());
+        response.put("totalPages", farms.getTotalPages());
+        return ResponseEntity.ok(response);
+    }
+
+    // GET /api/farms/{id}/summary
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<FarmSummaryService.FarmSummary> getFarmSummary(@PathVariable String id) {
+        FarmSummaryService.FarmSummary summary = farmSummaryService.summary(id);
+        // Products may name farms that are not registered; only an unknown farm without products is missing
+        if (summary.totalProducts() == 0 && !repository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(summary);
+    }
+
     // GET farm by id
     @GetMapping("/{id}")
     public ResponseEntity<Farm> getFarmById(@PathVariable String id) {
@@ -39,12 +130,30 @@ public class FarmController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // GET /api/farms/{id}/rename-job
+    // Progress of copying the farm's latest name to its products (status, total, updated, lastProductId)
+    @GetMapping("/{id}/rename-job")
+    public ResponseEntity<FarmRenameJob> getRenameJob(@PathVariable String id) {
+        FarmRenameJob job = farmNamePropagationService.status(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    // POST /api/farms/{id}/rename-job/resume (Admin only)
+    // Restarts a FAILED rename job from where it stopped; other jobs are returned unchanged
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/{id}/rename-job/resume")
+    public ResponseEntity<FarmRenameJob> resumeRenameJob(@PathVariable String id) {
+        FarmRenameJob job = farmNamePropagationService.resume(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
     // POST create farm (Admin only)
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
     public ResponseEntity<?> createFarm(@Valid @RequestBody Farm farm) {
         try {
             Farm savedFarm = repository.save(farm);
+            eventPublisher.publishEvent(new FarmChangeEvent(FarmChangeEvent.Type.CREATED, savedFarm.getId(), null, savedFarm));
             return ResponseEntity.status(HttpStatus.CREATED).body(savedFarm);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -55,17 +164,21 @@ public class FarmController {
     }
 
     // PUT update farm (Admin only)
+    // A new name reaches the farm's products in the background, see GET /api/farms/{id}/rename-job
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
     public ResponseEntity<?> updateFarm(@PathVariable String id, @Valid @RequestBody Farm updatedFarm) {
         return repository.findById(id)
                 .map(existing -> {
+                    String previousName = existing.getName();
                     existing.setName(updatedFarm.getName());
                     existing.setLocation(updatedFarm.getLocation());
+                    existing.setPosition(updatedFarm.getPosition());
                     existing.setOwner(updatedFarm.getOwner());
                     existing.setContactInfo(updatedFarm.getContactInfo());
                     existing.setDescription(updatedFarm.getDescription());
                     Farm saved = repository.save(existing);
+                    eventPublisher.publishEvent(new FarmChangeEvent(FarmChangeEvent.Type.UPDATED, id, previousName, saved));
                     return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -75,10 +188,12 @@ public class FarmController {
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteFarm(@PathVariable String id) {
-        if (!repository.existsById(id)) {
-            return ResponseEntity.notFound().build();
-        }
-        repository.deleteById(id);
-        return ResponseEntity.noContent().build();
+        return repository.findById(id)
+                .map(farm -> {
+                    repository.delete(farm);
+                    eventPublisher.publishEvent(new FarmChangeEvent(FarmChangeEvent.Type.DELETED, id, farm.getName(), null));
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
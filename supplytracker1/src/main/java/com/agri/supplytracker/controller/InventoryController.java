@@ -0,0 +1,52 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.InventoryCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    private final InventoryCounterService inventoryCounterService;
+
+    @Autowired
+    public InventoryController(InventoryCounterService inventoryCounterService) {
+        this.inventoryCounterService = inventoryCounterService;
+    }
+
+    // GET /api/inventory?location=Pune Warehouse&status=IN_WAREHOUSE  or  ?farmId=FARM001
+    @GetMapping
+    public ResponseEntity<?> getInventory(@RequestParam(required = false) String location,
+                                          @RequestParam(required = false) String farmId,
+                                          @RequestParam(required = false) String status) {
+        boolean byLocation = location != null && !location.isBlank();
+        boolean byFarm = farmId != null && !farmId.isBlank();
+        if (byLocation == byFarm) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Specify exactly one of location or farmId"));
+        }
+
+        Map<String, Long> counts = byLocation
+                ? inventoryCounterService.countsForLocation(location, status)
+                : inventoryCounterService.countsForFarm(farmId, status);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put(byLocation ? "location" : "farmId", byLocation ? location : farmId);
+        response.put("counts", counts);
+        response.put("total", counts.values().stream().mapToLong(Long::longValue).sum());
+        return ResponseEntity.ok(response);
+    }
+
+    // POST force a reconciliation against Mongo (Admin only)
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/reconcile")
+    public Map<String, Object> reconcile() {
+        return Map.of("corrected", inventoryCounterService.reconcile());
+    }
+}
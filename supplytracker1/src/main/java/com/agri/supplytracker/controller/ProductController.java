@@ -1,17 +1,24 @@
 package com.agri.supplytracker.controller;
 
+import com.agri.supplytracker.event.ProductChangePublisher;
 import com.agri.supplytracker.exception.ProductNotFoundException;
 import com.agri.supplytracker.model.Product;
 import com.agri.supplytracker.repository.ProductRepository;
+import com.agri.supplytracker.security.StageAuthorization;
+import com.agri.supplytracker.service.DuplicateFilter;
+import com.agri.supplytracker.service.GeoSearchService;
+import com.agri.supplytracker.service.ProductLookupService;
+import com.agri.supplytracker.service.ProductSearchIndex;
+import com.agri.supplytracker.service.RenderedProductCache;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -29,17 +36,38 @@ import org.springframework.security.core.Authentication;
 public class ProductController {
 
     private final ProductRepository repository;
-    private final ProductStreamController streamController;
+    private final ProductChangePublisher changePublisher;
+    private final ProductSearchIndex searchIndex;
+    private final ProductLookupService lookupService;
+    private final RenderedProductCache renderCache;
+    private final GeoSearchService geoSearchService;
+    private final DuplicateFilter duplicateFilter;
 
     @Autowired
-    public ProductController(ProductRepository repository, ProductStreamController streamController) {
+    public ProductController(ProductRepository repository, ProductChangePublisher changePublisher,
+                             ProductSearchIndex searchIndex, ProductLookupService lookupService,
+                             RenderedProductCache renderCache, GeoSearchService geoSearchService,
+                             DuplicateFilter duplicateFilter) {
         this.repository = repository;
-        this.streamController = streamController;
+        this.changePublisher = changePublisher;
+        this.searchIndex = searchIndex;
+        this.lookupService = lookupService;
+        this.renderCache = renderCache;
+        this.geoSearchService = geoSearchService;
+        this.duplicateFilter = duplicateFilter;
     }
 
     // GET dashboard statistics
+    // ETag follows the catalog version, so an unchanged catalog answers 304 without loading products
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+    public ResponseEntity<Map<String, Object>> getDashboardStats(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String catalogVersion = lookupService.catalogVersion();
+        String etag = catalogVersion != null ? ETags.catalog(catalogVersion) : null;
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         List<Product> allProducts = repository.findAll();
         
         Map<String, Object> stats = new HashMap<>();
@@ -82,7 +110,11 @@ public class ProductController {
             .sum();
         stats.put("totalTrackingStages", totalTrackingStages);
         
-        return ResponseEntity.ok(stats);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(stats);
     }
 
     // GET all products with pagination
@@ -91,7 +123,8 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
         Sort sort = sortDir.equalsIgnoreCase("desc") 
             ? Sort.by(sortBy).descending() 
@@ -99,6 +132,11 @@ public class ProductController {
         
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Product> productPage = repository.findAll(pageable);
+        String etag = ETags.page(page + "/" + size + "/" + sortBy + "/" + sortDir,
+                productPage.getTotalElements(), productPage.getContent());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         
         Map<String, Object> response = new HashMap<>();
         response.put("products", productPage.getContent());
@@ -106,27 +144,88 @@ public class ProductController {
         response.put("totalItems", productPage.getTotalElements());
         response.put("totalPages", productPage.getTotalPages());
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).body(response);
     }
 
-    // GET by id
-    @Cacheable(value = "products", key = "#id")
+    // GET by id (Redis cached, concurrent misses share one load)
+    // If-None-Match is checked against the cached version first, without reading the product.
+    // With the render cache on, a hit for the current version writes pre-rendered (optionally gzipped) bytes;
+    // gzipped bodies carry their own "-gz" ETag, and If-None-Match accepts either encoding's tag.
     @GetMapping("/{id}")
-    public Product getProductById(@PathVariable String id) {
-        return repository.findById(id)
-                .orElseThrow(() -> new ProductNotFoundException(id));
+    public ResponseEntity<?> getProductById(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean useRenderCache = renderCache.isEnabled();
+        Long cachedVersion = ifNoneMatch != null || useRenderCache ? lookupService.cachedVersion(id) : null;
+        if (cachedVersion != null) {
+            String etag = ETags.product(id, cachedVersion);
+            String matched = ETags.matchedEncoding(ifNoneMatch, etag);
+            if (matched != null) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(matched).build();
+            }
+            RenderedProductCache.Rendered rendered = useRenderCache ? renderCache.get(id, cachedVersion) : null;
+            if (rendered != null) {
+                return renderedResponse(rendered, etag, acceptEncoding);
+            }
+        }
+
+        Product product = lookupService.findById(id);
+        if (product == null) {
+            throw new ProductNotFoundException(id);
+        }
+        if (product.getVersion() == null) {
+            return ResponseEntity.ok(product);
+        }
+        String etag = ETags.product(id, product.getVersion());
+        String matched = ETags.matchedEncoding(ifNoneMatch, etag);
+        if (matched != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(matched).build();
+        }
+        if (useRenderCache) {
+            return renderedResponse(renderCache.render(product), etag, acceptEncoding);
+        }
+        return ResponseEntity.ok().eTag(etag).body(product);
+    }
+
+    private static ResponseEntity<byte[]> renderedResponse(RenderedProductCache.Rendered rendered, String etag,
+                                                           String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (rendered.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.eTag(ETags.gzip(etag)).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(rendered.gzip());
+        }
+        return response.eTag(etag).body(rendered.json());
     }
 
     // GET /api/products/search?name=Mango&type=Fruit&originFarmId=FARM001 ...
+    // q matches name, type or batchId anywhere; name/q results are ordered by relevance
 @GetMapping("/search")
 public List<Product> searchProducts(
+        @RequestParam(required = false) String q,
         @RequestParam(required = false) String name,
         @RequestParam(required = false) String type,
         @RequestParam(required = false) String batchId,
         @RequestParam(required = false) String originFarmId) {
 
-    // Start with all products
-    List<Product> results = repository.findAll();
+    List<Product> results;
+    if (searchIndex.isReady() && q != null && !q.isBlank()) {
+        results = searchIndex.findProducts(q, 0);
+    } else if (searchIndex.isReady() && name != null && !name.isBlank()) {
+        // Substring match served by the trigram index instead of scanning every product
+        results = searchIndex.findProducts(name, 0, ProductSearchIndex.Field.NAME);
+    } else {
+        // Start with all products
+        results = repository.findAll();
+    }
+
+    if (q != null && !q.isBlank()) {
+        String keyword = q.toLowerCase();
+        results = results.stream()
+                .filter(p -> contains(p.getName(), keyword) || contains(p.getType(), keyword) ||
+                             contains(p.getBatchId(), keyword))
+                .toList();
+    }
 
     if (name != null && !name.isBlank()) {
         results = results.stream()
@@ -156,16 +255,57 @@ public List<Product> searchProducts(
     return results;
 }
 
+    private static boolean contains(String value, String lowerKeyword) {
+        return value != null && value.toLowerCase().contains(lowerKeyword);
+    }
+
+    // GET /api/products/near?latitude=19.07&longitude=72.87&maxDistanceKm=50&page=0&size=20
+    // Products whose current position is within maxDistanceKm, nearest first, each with its distanceKm
+    @GetMapping("/near")
+    public ResponseEntity<?> getProductsNear(@RequestParam double latitude,
+                                             @RequestParam double longitude,
+                                             @RequestParam(defaultValue = "50") double maxDistanceKm,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(geoSearchService.productsNear(latitude, longitude, maxDistanceKm, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // GET /api/products/within?minLatitude=18.9&minLongitude=72.7&maxLatitude=19.3&maxLongitude=73.1&page=0&size=20
+    // Products whose current position is inside the box, by name
+    @GetMapping("/within")
+    public ResponseEntity<?> getProductsWithin(@RequestParam double minLatitude,
+                                               @RequestParam double minLongitude,
+                                               @RequestParam double maxLatitude,
+                                               @RequestParam double maxLongitude,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(geoSearchService.productsWithin(
+                    new GeoSearchService.Area(minLatitude, minLongitude, maxLatitude, maxLongitude), page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
 
     // POST create with validation (Admin only)
-    @CacheEvict(value = "products", allEntries = true)
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody Product product) {
+        // Re-imported CSV rows: same name, type, batch, harvest date and farm as a stored product
+        if (duplicateFilter.isDuplicate(product)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Product already exists"));
+        }
         try {
+            // Versions are assigned by the server, a client supplied one would turn the insert into an update
+            product.setVersion(null);
             Product savedProduct = repository.save(product);
-            // Broadcast to SSE subscribers
-            streamController.broadcastProductUpdate(savedProduct);
+            // Publish change event to SSE/GraphQL subscribers
+            changePublisher.created(savedProduct);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedProduct);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -183,14 +323,15 @@ public List<Product> searchProducts(
 
         return repository.findById(id)
                 .map(existing -> {
+                    Map<String, Object> previous = ProductChangePublisher.fieldsOf(existing);
                     existing.setName(updatedProduct.getName());
                     existing.setType(updatedProduct.getType());
                     existing.setBatchId(updatedProduct.getBatchId());
                     existing.setHarvestDate(updatedProduct.getHarvestDate());
                     existing.setOriginFarmId(updatedProduct.getOriginFarmId());
                     Product saved = repository.save(existing);
-                    // Broadcast to SSE subscribers
-                    streamController.broadcastProductUpdate(saved);
+                    // Publish only the changed fields to subscribers
+                    changePublisher.updated(previous, saved);
                     return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -204,6 +345,7 @@ public List<Product> searchProducts(
 
         Product product = repository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException(id));
+        Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
 
         if (updates.containsKey("name")) {
             product.setName((String) updates.get("name"));
@@ -222,8 +364,8 @@ public List<Product> searchProducts(
         }
 
         Product saved = repository.save(product);
-        // Broadcast to SSE subscribers
-        streamController.broadcastProductUpdate(saved);
+        // Publish only the changed fields to subscribers
+        changePublisher.updated(previous, saved);
         return saved;
     }
 
@@ -232,13 +374,14 @@ public List<Product> searchProducts(
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable String id) {
         // If product doesn't exist → 404
-        if (!repository.existsById(id)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        // Delete and return 204 No Content
-        repository.deleteById(id);
-        return ResponseEntity.noContent().build();
+        return repository.findById(id)
+                .map(product -> {
+                    // Delete and return 204 No Content
+                    repository.delete(product);
+                    changePublisher.deleted(product);
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     // POST add tracking stage to a product
@@ -249,30 +392,19 @@ public List<Product> searchProducts(
                                                @Valid @RequestBody com.agri.supplytracker.model.TrackingStage trackingStage,
                                                Authentication authentication) {
         // Validate user can add this specific stage based on their role
-        String userRole = authentication.getAuthorities().stream()
-            .map(auth -> auth.getAuthority())
-            .filter(auth -> auth.startsWith("ROLE_"))
-            .findFirst()
-            .orElse("");
-        
-        // Check if user's role matches the stage they're trying to add
-        if (!userRole.equals("ROLE_ADMIN")) {
-            boolean authorized = false;
-            String stage = trackingStage.getStage();
-            
-            if (userRole.equals("ROLE_FARMER") && stage.equalsIgnoreCase("Farm")) authorized = true;
-            else if (userRole.equals("ROLE_PROCESSOR") && (stage.equalsIgnoreCase("Processing") || stage.equalsIgnoreCase("Quality Check"))) authorized = true;
-            else if (userRole.equals("ROLE_WAREHOUSE_MANAGER") && stage.equalsIgnoreCase("Warehouse")) authorized = true;
-            else if (userRole.equals("ROLE_DISTRIBUTOR") && stage.equalsIgnoreCase("Distribution")) authorized = true;
-            else if (userRole.equals("ROLE_RETAILER") && stage.equalsIgnoreCase("Retail")) authorized = true;
-            
-            if (!authorized) {
-                return ResponseEntity.status(403).body(Map.of("error", "You are not authorized to add this tracking stage"));
-            }
+        if (!StageAuthorization.canAddStage(authentication, trackingStage.getStage())) {
+            return ResponseEntity.status(403).body(Map.of("error", "You are not authorized to add this tracking stage"));
         }
         
         return repository.findById(id)
                 .map(product -> {
+                    // A retried scan with the same eventId is already in the history
+                    if (trackingStage.getEventId() != null && product.getTrackingHistory().stream()
+                            .anyMatch(stage -> trackingStage.getEventId().equals(stage.getEventId()))) {
+                        return ResponseEntity.ok(product);
+                    }
+                    Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
+
                     // Set timestamp if not provided
                     if (trackingStage.getTimestamp() == null) {
                         trackingStage.setTimestamp(java.time.LocalDateTime.now());
@@ -284,19 +416,39 @@ public List<Product> searchProducts(
                     // Update product's current location and status
                     product.setCurrentLocation(trackingStage.getLocation());
                     product.setStatus(trackingStage.getStage());
+                    if (trackingStage.getPosition() != null) {
+                        product.setPosition(trackingStage.getPosition());
+                    }
                     
                     Product saved = repository.save(product);
+                    // Publish the appended stage rather than the whole history
+                    changePublisher.trackingAppended(previous, saved, trackingStage);
                     return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // GET tracking history for a product
+    // GET tracking history for a product (ETag from the product version)
     @GetMapping("/{id}/tracking")
-    public ResponseEntity<?> getTrackingHistory(@PathVariable String id) {
-        return repository.findById(id)
-                .map(product -> ResponseEntity.ok(product.getTrackingHistory()))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> getTrackingHistory(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long cachedVersion = ifNoneMatch != null ? lookupService.cachedVersion(id) : null;
+        if (cachedVersion != null && ETags.matches(ifNoneMatch, ETags.tracking(id, cachedVersion))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.tracking(id, cachedVersion)).build();
+        }
+
+        Product product = lookupService.findById(id);
+        if (product == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (product.getVersion() == null) {
+            return ResponseEntity.ok(product.getTrackingHistory());
+        }
+        String etag = ETags.tracking(id, product.getVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(product.getTrackingHistory());
     }
 
 }
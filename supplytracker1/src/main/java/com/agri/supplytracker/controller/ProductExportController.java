@@ -0,0 +1,84 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.ProductExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/products")
+public class ProductExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductExportController.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProductExportService exportService;
+
+    @Autowired
+    public ProductExportController(ProductExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // GET /api/products/export?format=csv&stages=true&type=Fruit&harvestFrom=2024-01-01&gzip=true
+    // Streams from a Mongo cursor, memory use does not grow with the number of rows
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean stages,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String batchId,
+            @RequestParam(required = false) String originFarmId,
+            @RequestParam(required = false) String harvestFrom,
+            @RequestParam(required = false) String harvestTo) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "format must be ndjson or csv"));
+        }
+        ProductExportService.Filter filter = new ProductExportService.Filter(
+                type, status, batchId, originFarmId, harvestFrom, harvestTo);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+            long rows = exportService.export(filter, exportFormat, stages, writer);
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.info("Exported {} {} rows", rows, exportFormat);
+        };
+
+        String filename = "products" + (stages ? "-stages" : "") + (exportFormat == ProductExportService.Format.CSV ? ".csv" : ".ndjson");
+        MediaType contentType = exportFormat == ProductExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        if (gzip) {
+            filename += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
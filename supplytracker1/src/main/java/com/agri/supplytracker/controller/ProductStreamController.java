@@ -1,23 +1,45 @@
 package com.agri.supplytracker.controller;
 
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.event.ProductChangePublisher;
+import com.agri.supplytracker.event.SlaBreachAlert;
 import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.ProductRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Controller for Server-Sent Events (SSE) streaming of product updates
+ * Controller for Server-Sent Events (SSE) streaming of product updates.
+ * A full snapshot is sent on connect; after that only {@link ProductChangeEvent} deltas are sent.
+ * Every delta carries a sequence number (also used as the SSE event id) - a client that sees a gap
+ * should fetch /api/products/stream/snapshot to resync. SLA breach alerts are pushed on the same stream
+ * without an event id, so they do not affect gap detection.
  */
 @RestController
 @RequestMapping("/api/products")
@@ -26,81 +48,210 @@ public class ProductStreamController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductStreamController.class);
 
-    // List of active SSE emitters
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // List of active stream subscribers
+    private final List<StreamSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ProductRepository repository;
+    private final ProductChangePublisher changePublisher;
+    private final ObjectMapper objectMapper;
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    private final Timer changeBroadcastTimer;
+    private final Timer alertBroadcastTimer;
+    private final Timer heartbeatTimer;
+    private final Counter droppedSubscribers;
 
-    public ProductStreamController() {
+    @Autowired
+    public ProductStreamController(ProductRepository repository, ProductChangePublisher changePublisher,
+                                   ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.changePublisher = changePublisher;
+        this.objectMapper = objectMapper;
+        // Change broadcasts run on their own event lane, so a slow subscriber delays the stream, not writes
+        this.changeBroadcastTimer = Timer.builder("sse.broadcast").tag("kind", "change").register(meterRegistry);
+        this.alertBroadcastTimer = Timer.builder("sse.broadcast").tag("kind", "alert").register(meterRegistry);
+        this.heartbeatTimer = Timer.builder("sse.broadcast").tag("kind", "heartbeat").register(meterRegistry);
+        this.droppedSubscribers = meterRegistry.counter("sse.emitters.dropped");
+        Gauge.builder("sse.emitters", subscribers, List::size).register(meterRegistry);
         // Send heartbeat every 30 seconds to keep connections alive
         executor.scheduleAtFixedRate(this::sendHeartbeat, 30, 30, TimeUnit.SECONDS);
     }
 
     /**
      * SSE endpoint for streaming product updates
-     * Clients can connect to this endpoint to receive real-time product updates
+     * Clients can connect to this endpoint to receive real-time product updates.
+     * With gzip=true (and a client that accepts gzip) the whole stream is gzip-compressed.
      */
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @PreAuthorize("permitAll()") // Allow all users to subscribe
-    public SseEmitter streamProducts(@RequestParam(required = false) String token) {
-        log.info("New SSE connection established. Total connections: {}", emitters.size() + 1);
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE); // No timeout
-        
-        emitters.add(emitter);
-        
-        // Remove emitter when completed or timed out
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError((ex) -> emitters.remove(emitter));
-        
-        // Send initial connection message
+    public ResponseEntity<ResponseBodyEmitter> streamProducts(
+            @RequestParam(required = false) String token,
+            @RequestParam(defaultValue = "true") boolean snapshot,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        log.info("New SSE connection established. Total connections: {}", subscribers.size() + 1);
+
+        boolean compressed = gzip && acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseBodyEmitter emitter = compressed ? new ResponseBodyEmitter(Long.MAX_VALUE) : new SseEmitter(Long.MAX_VALUE);
+        StreamSubscriber subscriber = compressed ? new GzipSubscriber(emitter) : new PlainSubscriber((SseEmitter) emitter);
+
+        // Remove subscriber when completed or timed out
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError((ex) -> subscribers.remove(subscriber));
+
         try {
-            emitter.send(SseEmitter.event()
-                    .data("{\"type\":\"connected\",\"message\":\"Connected to product updates stream\"}"));
+            // Send initial connection message
+            subscriber.send(null, "{\"type\":\"connected\",\"message\":\"Connected to product updates stream\"}");
+            if (snapshot) {
+                // Read the sequence before loading so that any write racing with the snapshot shows up as a gap
+                long sequence = changePublisher.currentSequence();
+                subscriber.send(String.valueOf(sequence), objectMapper.writeValueAsString(snapshotOf(sequence, repository.findAll())));
+            }
+            subscribers.add(subscriber);
         } catch (IOException e) {
             emitter.completeWithError(e);
         }
-        
-        return emitter;
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM);
+        if (compressed) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(emitter);
     }
 
     /**
-     * Method to broadcast product updates to all connected clients
-     * Call this when a product is created or updated
+     * Full snapshot for clients that detected a sequence gap, optionally limited to some product ids
      */
-    public void broadcastProductUpdate(Product product) {
-        log.info("Broadcasting product update to {} subscribers: {}", emitters.size(), product.getName());
-        List<SseEmitter> deadEmitters = new CopyOnWriteArrayList<>();
-        
-        emitters.forEach(emitter -> {
+    @GetMapping("/stream/snapshot")
+    public Map<String, Object> resync(@RequestParam(required = false) List<String> ids) {
+        long sequence = changePublisher.currentSequence();
+        List<Product> products = ids == null || ids.isEmpty() ? repository.findAll() : repository.findAllById(ids);
+        return snapshotOf(sequence, products);
+    }
+
+    /**
+     * Broadcast product change deltas to all connected clients
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) throws IOException {
+        log.info("Broadcasting {} for product {} to {} subscribers", event.getType(), event.getProductId(), subscribers.size());
+        long started = System.nanoTime();
+        broadcast(String.valueOf(event.getSequence()), objectMapper.writeValueAsString(event));
+        changeBroadcastTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Push SLA breach alerts to all connected clients
+     */
+    @EventListener
+    public void onSlaBreach(SlaBreachAlert alert) throws IOException {
+        long started = System.nanoTime();
+        broadcast(null, objectMapper.writeValueAsString(alert));
+        alertBroadcastTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void broadcast(String id, String data) {
+        List<StreamSubscriber> deadSubscribers = new CopyOnWriteArrayList<>();
+
+        subscribers.forEach(subscriber -> {
             try {
-                // Send as unnamed event to trigger onmessage handler
-                emitter.send(SseEmitter.event()
-                        .data(objectMapper.writeValueAsString(product)));
+                subscriber.send(id, data);
             } catch (IOException e) {
-                deadEmitters.add(emitter);
+                deadSubscribers.add(subscriber);
             }
         });
-        
-        // Remove dead emitters
-        emitters.removeAll(deadEmitters);
+
+        // Remove dead subscribers
+        subscribers.removeAll(deadSubscribers);
+        droppedSubscribers.increment(deadSubscribers.size());
     }
 
     /**
      * Send heartbeat to keep connections alive
      */
     private void sendHeartbeat() {
-        List<SseEmitter> deadEmitters = new CopyOnWriteArrayList<>();
-        
-        emitters.forEach(emitter -> {
+        long started = System.nanoTime();
+        List<StreamSubscriber> deadSubscribers = new CopyOnWriteArrayList<>();
+
+        subscribers.forEach(subscriber -> {
             try {
-                emitter.send(SseEmitter.event()
-                        .comment("heartbeat"));
+                subscriber.heartbeat();
             } catch (IOException e) {
-                deadEmitters.add(emitter);
+                deadSubscribers.add(subscriber);
             }
         });
-        
-        emitters.removeAll(deadEmitters);
+
+        subscribers.removeAll(deadSubscribers);
+        droppedSubscribers.increment(deadSubscribers.size());
+        heartbeatTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private static Map<String, Object> snapshotOf(long sequence, List<Product> products) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("type", "SNAPSHOT");
+        snapshot.put("sequence", sequence);
+        snapshot.put("products", products);
+        return snapshot;
+    }
+
+    private interface StreamSubscriber {
+        void send(String id, String data) throws IOException;
+
+        void heartbeat() throws IOException;
+    }
+
+    private static class PlainSubscriber implements StreamSubscriber {
+        private final SseEmitter emitter;
+
+        PlainSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(String id, String data) throws IOException {
+            // Send as unnamed event to trigger onmessage handler
+            SseEmitter.SseEventBuilder event = SseEmitter.event().data(data);
+            if (id != null) {
+                event.id(id);
+            }
+            emitter.send(event);
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    /**
+     * Writes the SSE wire format through one gzip stream per connection, sync-flushed after every event
+     * so the client can decode each event as soon as it arrives.
+     */
+    private static class GzipSubscriber implements StreamSubscriber {
+        private final ResponseBodyEmitter emitter;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final GZIPOutputStream gzip;
+
+        GzipSubscriber(ResponseBodyEmitter emitter) throws IOException {
+            this.emitter = emitter;
+            this.gzip = new GZIPOutputStream(buffer, true);
+        }
+
+        @Override
+        public void send(String id, String data) throws IOException {
+            write((id != null ? "id:" + id + "\n" : "") + "data:" + data + "\n\n");
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            write(":heartbeat\n\n");
+        }
+
+        private synchronized void write(String frame) throws IOException {
+            gzip.write(frame.getBytes(StandardCharsets.UTF_8));
+            gzip.flush();
+            byte[] chunk = buffer.toByteArray();
+            buffer.reset();
+            emitter.send(chunk, MediaType.APPLICATION_OCTET_STREAM);
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.service.RecallService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/recall")
+public class RecallController {
+
+    private static final Logger log = LoggerFactory.getLogger(RecallController.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RecallService recallService;
+
+    @Autowired
+    public RecallController(RecallService recallService) {
+        this.recallService = recallService;
+    }
+
+    // GET /api/recall?originFarmId=F1&batchId=B7&history=true
+    // NDJSON: a summary line, one line per affected product with its path, then every location they passed through
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping
+    public ResponseEntity<?> recall(@RequestParam(required = false) String originFarmId,
+                                    @RequestParam(required = false) String batchId,
+                                    @RequestParam(defaultValue = "true") boolean history) {
+        RecallService.Trace trace;
+        try {
+            trace = recallService.select(originFarmId, batchId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (trace.products().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No products found for the given farm or batch"));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            recallService.write(trace, history, writer);
+            log.info("Recall trace for farm {} batch {}: {} products", trace.originFarmId(), trace.batchId(),
+                    trace.products().size());
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .body(body);
+    }
+}
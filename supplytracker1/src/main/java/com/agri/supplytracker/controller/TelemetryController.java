@@ -0,0 +1,157 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.dto.TelemetryUpload;
+import com.agri.supplytracker.exception.ProductNotFoundException;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.service.ProductLookupService;
+import com.agri.supplytracker.service.TelemetryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api")
+public class TelemetryController {
+
+    public enum Resolution {
+        RAW, WINDOW
+    }
+
+    private final TelemetryService telemetryService;
+    private final ProductLookupService lookupService;
+
+    @Autowired
+    public TelemetryController(TelemetryService telemetryService, ProductLookupService lookupService) {
+        this.telemetryService = telemetryService;
+        this.lookupService = lookupService;
+    }
+
+    // POST /api/telemetry - sensor readings per batch in columnar form:
+    // [{"batchId": "B1", "timestamps": [epochMillis...], "temperature": [...], "humidity": [...]}]
+    // A null value marks a missing reading, as in the GET below
+    @PreAuthorize("hasAnyRole('ADMIN', 'FARMER', 'PROCESSOR', 'WAREHOUSE_MANAGER', 'DISTRIBUTOR', 'RETAILER')")
+    @PostMapping("/telemetry")
+    public ResponseEntity<?> ingest(@RequestBody List<TelemetryUpload> uploads) {
+        for (TelemetryUpload upload : uploads) {
+            String error = validate(upload);
+            if (error != null) {
+                return ResponseEntity.badRequest().body(Map.of("error", error, "batchId", String.valueOf(upload.getBatchId())));
+            }
+        }
+        long received = 0;
+        long accepted = 0;
+        for (TelemetryUpload upload : uploads) {
+            received += upload.getTimestamps().length;
+            accepted += telemetryService.ingest(upload);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("received", received);
+        response.put("accepted", accepted);
+        // Readings that did not fit in a full buffer; the sender should retry them
+        response.put("dropped", received - accepted);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    // GET /api/telemetry/limits - default excursion limits
+    @GetMapping("/telemetry/limits")
+    public Map<String, Object> getLimits() {
+        return telemetryService.limits();
+    }
+
+    // GET /api/products/{id}/telemetry?from=2024-01-01T00:00&to=2024-01-02T00:00&resolution=WINDOW
+    // Readings of the product's batch; defaults to the last 24 hours. Missing values are null
+    @GetMapping("/products/{id}/telemetry")
+    public Map<String, Object> getTelemetry(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "RAW") Resolution resolution) {
+        String batchId = batchOf(id);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", id);
+        response.put("batchId", batchId);
+        response.put("from", start);
+        response.put("to", end);
+        if (resolution == Resolution.WINDOW) {
+            response.put("windows", telemetryService.windows(batchId, start, end));
+            return response;
+        }
+        TelemetryService.Series series = telemetryService.readings(batchId, start, end);
+        response.put("count", series.size());
+        response.put("truncated", series.truncated());
+        response.put("timestamps", series.timestamps());
+        response.put("temperature", withNulls(series.temperature()));
+        response.put("humidity", withNulls(series.humidity()));
+        return response;
+    }
+
+    // GET /api/products/{id}/telemetry/excursions?from=...&to=...&temperatureMax=6&minDurationSeconds=300
+    // Periods outside the limits; limits not given fall back to telemetry.limits.*
+    @GetMapping("/products/{id}/telemetry/excursions")
+    public Map<String, Object> getExcursions(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double temperatureMin,
+            @RequestParam(required = false) Double temperatureMax,
+            @RequestParam(required = false) Double humidityMin,
+            @RequestParam(required = false) Double humidityMax,
+            @RequestParam(defaultValue = "0") long minDurationSeconds) {
+        String batchId = batchOf(id);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", id);
+        response.put("batchId", batchId);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("excursions", telemetryService.excursions(batchId, start, end, temperatureMin, temperatureMax,
+                humidityMin, humidityMax, minDurationSeconds));
+        return response;
+    }
+
+    private String batchOf(String productId) {
+        Product product = lookupService.findById(productId);
+        if (product == null) {
+            throw new ProductNotFoundException(productId);
+        }
+        return product.getBatchId();
+    }
+
+    private static String validate(TelemetryUpload upload) {
+        if (!StringUtils.hasText(upload.getBatchId()) || upload.getTimestamps() == null) {
+            return "batchId and timestamps are required";
+        }
+        int count = upload.getTimestamps().length;
+        if (upload.getTemperature() == null && upload.getHumidity() == null) {
+            return "temperature or humidity is required";
+        }
+        if (upload.getTemperature() != null && upload.getTemperature().length != count
+                || upload.getHumidity() != null && upload.getHumidity().length != count) {
+            return "temperature and humidity must have one value per timestamp";
+        }
+        return null;
+    }
+
+    // Missing values (NaN) as JSON nulls
+    private static Double[] withNulls(double[] values) {
+        Double[] boxed = new Double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = Double.isNaN(values[i]) ? null : values[i];
+        }
+        return boxed;
+    }
+}
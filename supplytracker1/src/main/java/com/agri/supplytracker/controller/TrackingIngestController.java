@@ -0,0 +1,90 @@
+package com.agri.supplytracker.controller;
+
+import com.agri.supplytracker.dto.TrackingScan;
+import com.agri.supplytracker.security.StageAuthorization;
+import com.agri.supplytracker.service.TrackingIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/tracking/ingest")
+public class TrackingIngestController {
+
+    private final TrackingIngestService ingestService;
+
+    @Autowired
+    public TrackingIngestController(TrackingIngestService ingestService) {
+        this.ingestService = ingestService;
+    }
+
+    // POST /api/tracking/ingest - batch of scanner uploads, answered with 202 once they are journaled
+    // Stages are written to the products shortly after; retries with the same eventId are not added twice
+    // Permissions: same role-to-stage rules as POST /api/products/{id}/tracking, checked per scan
+    @PreAuthorize("hasAnyRole('ADMIN', 'FARMER', 'PROCESSOR', 'WAREHOUSE_MANAGER', 'DISTRIBUTOR', 'RETAILER')")
+    @PostMapping
+    public ResponseEntity<?> ingest(@RequestBody List<TrackingScan> scans, Authentication authentication) {
+        if (scans == null || scans.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No scans given"));
+        }
+        if (scans.size() > ingestService.maxScansPerRequest()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "At most " + ingestService.maxScansPerRequest() + " scans per request"));
+        }
+
+        List<Map<String, Object>> invalid = new ArrayList<>();
+        for (int i = 0; i < scans.size(); i++) {
+            String error = validate(scans.get(i), authentication);
+            if (error != null) {
+                invalid.add(Map.of("index", i, "error", error));
+            }
+        }
+        if (!invalid.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid scans", "scans", invalid));
+        }
+
+        TrackingIngestService.Receipt receipt = ingestService.ingest(scans);
+        if (receipt == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Ingestion queue is full, retry later"));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("accepted", receipt.accepted());
+        response.put("sequence", receipt.sequence());
+        return ResponseEntity.accepted().body(response);
+    }
+
+    // GET /api/tracking/ingest/status (Admin only) - queue depth, journal size and checkpoint
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/status")
+    public Map<String, Object> status() throws IOException {
+        return ingestService.status();
+    }
+
+    private static String validate(TrackingScan scan, Authentication authentication) {
+        if (!StringUtils.hasText(scan.getProductId()) || !StringUtils.hasText(scan.getStage())
+                || !StringUtils.hasText(scan.getLocation()) || !StringUtils.hasText(scan.getHandler())) {
+            return "productId, stage, location and handler are required";
+        }
+        if (scan.getEventId() == null && scan.getTimestamp() == null) {
+            return "eventId or timestamp is required";
+        }
+        if (!StageAuthorization.canAddStage(authentication, scan.getStage())) {
+            return "You are not authorized to add this tracking stage";
+        }
+        return null;
+    }
+}
@@ -10,6 +10,10 @@ import java.util.Set;
 @NoArgsConstructor
 public class AuthResponse {
     private String token;
+    // Exchanged at /api/auth/refresh for a new pair once the access token expires
+    private String refreshToken;
+    // Access token lifetime in seconds
+    private Long expiresIn;
     private String username;
     private Set<String> roles;
     private String message;
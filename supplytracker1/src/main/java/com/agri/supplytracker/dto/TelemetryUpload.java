@@ -0,0 +1,16 @@
+package com.agri.supplytracker.dto;
+
+import lombok.Data;
+
+/**
+ * Readings of one batch in columnar form: parallel arrays of epoch-millisecond timestamps and values.
+ * A sensor without humidity (or temperature) omits that array; null marks a single missing value, the same
+ * way the readings endpoint returns it. Values are boxed so that null is not read as 0.
+ */
+@Data
+public class TelemetryUpload {
+    private String batchId;
+    private long[] timestamps;
+    private Double[] temperature;
+    private Double[] humidity;
+}
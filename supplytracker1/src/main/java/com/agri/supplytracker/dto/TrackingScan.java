@@ -0,0 +1,22 @@
+package com.agri.supplytracker.dto;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.time.LocalDateTime;
+
+/**
+ * One tracking stage recorded by a scanner, as uploaded to the ingestion endpoint
+ */
+@Data
+public class TrackingScan {
+    // Idempotency key; when missing it is derived from the scan itself, which then needs a timestamp
+    private String eventId;
+    private String productId;
+    private String stage;
+    private String location;
+    private GeoJsonPoint position;
+    private String handler;
+    private LocalDateTime timestamp;
+    private String notes;
+}
@@ -0,0 +1,28 @@
+package com.agri.supplytracker.event;
+
+import com.agri.supplytracker.model.Farm;
+import lombok.*;
+
+/**
+ * Published after a farm is created, updated or deleted so in-process indexes can follow farm writes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FarmChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private Type type;
+
+    private String farmId;
+
+    // Name before the change (UPDATED and DELETED)
+    private String previousName;
+
+    // Farm after the change, null when deleted
+    private Farm farm;
+}
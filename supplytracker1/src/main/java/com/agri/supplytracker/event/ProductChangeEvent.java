@@ -0,0 +1,66 @@
+package com.agri.supplytracker.event;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta describing a single change to a product.
+ * Only the changed fields (or the appended tracking stage) are sent to subscribers;
+ * the full product is included only when it is created.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, TRACKING_APPENDED, BATCH_TRACKING_APPENDED, DELETED
+    }
+
+    private Type type;
+
+    // Monotonic per-node sequence number, clients use it to detect missed events
+    private long sequence;
+
+    private String productId;
+
+    // Batch the change applies to (BATCH_TRACKING_APPENDED only)
+    private String batchId;
+
+    // Number of products changed (BATCH_TRACKING_APPENDED only)
+    private Long affected;
+
+    // Changed scalar fields mapped to their new values
+    private Map<String, Object> changes;
+
+    // Stage appended to trackingHistory (TRACKING_APPENDED and BATCH_TRACKING_APPENDED)
+    private TrackingStage appendedStage;
+
+    // Set on DELETED when the product was moved to the archive; it can still be read by id
+    private Boolean archived;
+
+    // Full product (CREATED only)
+    private Product product;
+
+    private String timestamp;
+
+    // Field values before the change, for in-process listeners only
+    @JsonIgnore
+    private Map<String, Object> previous;
+
+    // Product state after the change (or the deleted product), for in-process listeners only
+    @JsonIgnore
+    private Product current;
+
+    // Batch members before the change with only their latest stage, for in-process listeners only
+    @JsonIgnore
+    private List<Product> affectedProducts;
+}
@@ -0,0 +1,149 @@
+package com.agri.supplytracker.event;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds delta events for product writes and publishes them to in-process listeners
+ * (SSE stream, GraphQL subscriptions). Listeners run on their own lanes ({@link ProductEventMulticaster});
+ * the writer only waits for the inline ones.
+ */
+@Component
+public class ProductChangePublisher {
+
+    private final ProductEventMulticaster multicaster;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object order = new Object();
+
+    public ProductChangePublisher(ProductEventMulticaster multicaster) {
+        this.multicaster = multicaster;
+    }
+
+    /**
+     * Capture the scalar fields of a product so they can be diffed after it is modified
+     */
+    public static Map<String, Object> fieldsOf(Product product) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", product.getName());
+        fields.put("type", product.getType());
+        fields.put("batchId", product.getBatchId());
+        fields.put("harvestDate", product.getHarvestDate());
+        fields.put("originFarmId", product.getOriginFarmId());
+        fields.put("originFarmName", product.getOriginFarmName());
+        fields.put("currentLocation", product.getCurrentLocation());
+        fields.put("destination", product.getDestination());
+        fields.put("status", product.getStatus());
+        fields.put("position", product.getPosition());
+        return fields;
+    }
+
+    public long currentSequence() {
+        return sequence.get();
+    }
+
+    public ProductChangeEvent created(Product product) {
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.CREATED)
+                .productId(product.getId())
+                .product(product)
+                .current(product));
+    }
+
+    /**
+     * Publish the fields that differ from {@code previous}; nothing is sent when the write changed nothing
+     */
+    public ProductChangeEvent updated(Map<String, Object> previous, Product product) {
+        Map<String, Object> changes = diff(previous, product);
+        if (changes.isEmpty()) {
+            return null;
+        }
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.UPDATED)
+                .productId(product.getId())
+                .changes(changes)
+                .previous(previous)
+                .current(product));
+    }
+
+    public ProductChangeEvent trackingAppended(Map<String, Object> previous, Product product, TrackingStage stage) {
+        Map<String, Object> changes = diff(previous, product);
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.TRACKING_APPENDED)
+                .productId(product.getId())
+                .changes(changes.isEmpty() ? null : changes)
+                .appendedStage(stage)
+                .previous(previous)
+                .current(product));
+    }
+
+    /**
+     * One aggregated event for a stage applied to a whole batch; {@code members} are the products before the update
+     */
+    public ProductChangeEvent batchTrackingAppended(String batchId, TrackingStage stage, List<Product> members, long affected) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("currentLocation", stage.getLocation());
+        changes.put("status", stage.getStage());
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.BATCH_TRACKING_APPENDED)
+                .batchId(batchId)
+                .affected(affected)
+                .changes(changes)
+                .appendedStage(stage)
+                .affectedProducts(members));
+    }
+
+    public ProductChangeEvent deleted(Product product) {
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.DELETED)
+                .productId(product.getId())
+                .previous(fieldsOf(product))
+                .current(product));
+    }
+
+    /**
+     * A product moved out of the live catalog into the archive; listeners treat it like a delete
+     */
+    public ProductChangeEvent archived(Product product) {
+        return publish(ProductChangeEvent.builder()
+                .type(ProductChangeEvent.Type.DELETED)
+                .productId(product.getId())
+                .archived(true)
+                .previous(fieldsOf(product))
+                .current(product));
+    }
+
+    // Numbering and queueing share a lock so every lane receives events in sequence order
+    private ProductChangeEvent publish(ProductChangeEvent.ProductChangeEventBuilder builder) {
+        ProductChangeEvent event;
+        List<Runnable> inline;
+        synchronized (order) {
+            event = builder
+                    .sequence(sequence.incrementAndGet())
+                    .timestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
+                    .build();
+            inline = multicaster.dispatch(new PayloadApplicationEvent<>(this, event));
+        }
+        inline.forEach(Runnable::run);
+        return event;
+    }
+
+    private static Map<String, Object> diff(Map<String, Object> previous, Product product) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        fieldsOf(product).forEach((field, value) -> {
+            if (!Objects.equals(previous.get(field), value)) {
+                changes.put(field, value);
+            }
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.agri.supplytracker.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application event multicaster that takes {@link ProductChangeEvent} listeners off the writer's thread.
+ * Every listener gets its own single-threaded lane, so it sees events in sequence order while a slow
+ * subscriber (an SSE client, a Redis round trip) only delays itself. Listeners whose id starts with
+ * {@link #INLINE} run on the writer's thread instead, for work a client must see done when its write
+ * returns (cache eviction). A failing listener is logged and never fails the write. Other events are
+ * multicast synchronously as usual.
+ */
+@Component(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+public class ProductEventMulticaster extends SimpleApplicationEventMulticaster implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductEventMulticaster.class);
+
+    /**
+     * Prefix for {@code @EventListener(id = ...)} of listeners that must run before the write returns
+     */
+    public static final String INLINE = "inline:";
+
+    private final Map<ApplicationListener<?>, ExecutorService> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger laneCount = new AtomicInteger();
+
+    @Override
+    public void multicastEvent(ApplicationEvent event, ResolvableType eventType) {
+        if (event instanceof PayloadApplicationEvent<?> payload && payload.getPayload() instanceof ProductChangeEvent) {
+            dispatch(event).forEach(Runnable::run);
+        } else {
+            super.multicastEvent(event, eventType);
+        }
+    }
+
+    /**
+     * Queue the event on every asynchronous lane and return the inline invocations, which the caller runs
+     * once it no longer holds the lock that orders events
+     */
+    List<Runnable> dispatch(ApplicationEvent event) {
+        List<Runnable> inline = new ArrayList<>();
+        for (ApplicationListener<?> listener : getApplicationListeners(event, ResolvableType.forInstance(event))) {
+            Runnable invocation = () -> invokeSafely(listener, event);
+            if (idOf(listener).startsWith(INLINE)) {
+                inline.add(invocation);
+            } else {
+                lanes.computeIfAbsent(listener, key -> newLane()).execute(invocation);
+            }
+        }
+        return inline;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        lanes.values().forEach(ExecutorService::shutdown);
+        for (ExecutorService lane : lanes.values()) {
+            if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    private void invokeSafely(ApplicationListener<?> listener, ApplicationEvent event) {
+        try {
+            invokeListener(listener, event);
+        } catch (Exception e) {
+            log.error("Product change listener {} failed", idOf(listener), e);
+        }
+    }
+
+    private ExecutorService newLane() {
+        int lane = laneCount.incrementAndGet();
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-events-" + lane);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String idOf(ApplicationListener<?> listener) {
+        return listener instanceof SmartApplicationListener smart ? smart.getListenerId() : listener.getClass().getName();
+    }
+}
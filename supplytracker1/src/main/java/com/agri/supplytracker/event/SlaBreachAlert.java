@@ -0,0 +1,31 @@
+package com.agri.supplytracker.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Raised when a product has stayed in its current tracking stage longer than the configured dwell limit.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SlaBreachAlert {
+
+    // Lets SSE clients tell alerts apart from product change deltas
+    @Builder.Default
+    private String type = "SLA_BREACH";
+
+    private String productId;
+    private String productName;
+    private String productType;
+    private String batchId;
+    private String stage;
+    private String location;
+    private LocalDateTime enteredAt;
+    private long limitSeconds;
+    private String detectedAt;
+}
@@ -0,0 +1,72 @@
+package com.agri.supplytracker.graphql;
+
+import com.agri.supplytracker.service.GeoSearchService;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+
+/**
+ * near/within queries for products and farms, and the GeoPoint view of stored GeoJSON coordinates
+ */
+@Controller
+public class GeoGraphQLController {
+
+    private final GeoSearchService geoSearchService;
+
+    public GeoGraphQLController(GeoSearchService geoSearchService) {
+        this.geoSearchService = geoSearchService;
+    }
+
+    @QueryMapping
+    public Map<String, Object> productsNear(@Argument double latitude, @Argument double longitude,
+                                            @Argument double maxDistanceKm, @Argument int page, @Argument int size) {
+        return geoSearchService.productsNear(latitude, longitude, maxDistanceKm, page, size);
+    }
+
+    @QueryMapping
+    public Map<String, Object> productsWithin(@Argument double minLatitude, @Argument double minLongitude,
+                                              @Argument double maxLatitude, @Argument double maxLongitude,
+                                              @Argument int page, @Argument int size) {
+        return geoSearchService.productsWithin(
+                new GeoSearchService.Area(minLatitude, minLongitude, maxLatitude, maxLongitude), page, size);
+    }
+
+    @QueryMapping
+    public Map<String, Object> farmsNear(@Argument double latitude, @Argument double longitude,
+                                         @Argument double maxDistanceKm, @Argument int page, @Argument int size) {
+        return geoSearchService.farmsNear(latitude, longitude, maxDistanceKm, page, size);
+    }
+
+    @QueryMapping
+    public Map<String, Object> farmsWithin(@Argument double minLatitude, @Argument double minLongitude,
+                                           @Argument double maxLatitude, @Argument double maxLongitude,
+                                           @Argument int page, @Argument int size) {
+        return geoSearchService.farmsWithin(
+                new GeoSearchService.Area(minLatitude, minLongitude, maxLatitude, maxLongitude), page, size);
+    }
+
+    // GeoJSON stores [longitude, latitude] as x and y
+    @SchemaMapping(typeName = "GeoPoint", field = "latitude")
+    public double latitude(GeoJsonPoint point) {
+        return point.getY();
+    }
+
+    @SchemaMapping(typeName = "GeoPoint", field = "longitude")
+    public double longitude(GeoJsonPoint point) {
+        return point.getX();
+    }
+
+    // Parse a GeoPointInput, null when none is given
+    static GeoJsonPoint toPosition(Object input) {
+        if (!(input instanceof Map<?, ?> point)) {
+            return null;
+        }
+        double latitude = ((Number) point.get("latitude")).doubleValue();
+        double longitude = ((Number) point.get("longitude")).doubleValue();
+        return new GeoJsonPoint(longitude, latitude);
+    }
+}
@@ -0,0 +1,87 @@
+package com.agri.supplytracker.graphql;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records parse, validate and execute time per operation name as the graphql.operation.phase timer.
+ * Parse and validate are skipped (and not recorded) when the document comes from the document cache.
+ *
+ * Operation names are client supplied, so only names of operations that passed validation and reached
+ * execution are used as tags, at most graphql.metrics.max-operation-names of them; everything else is
+ * tagged "other".
+ */
+public class GraphQlPhaseMetricsInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final String METRIC_NAME = "graphql.operation.phase";
+
+    private static final String OTHER = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxOperationNames;
+    private final Set<String> knownOperations = ConcurrentHashMap.newKeySet();
+
+    public GraphQlPhaseMetricsInstrumentation(MeterRegistry meterRegistry, int maxOperationNames) {
+        this.meterRegistry = meterRegistry;
+        this.maxOperationNames = maxOperationNames;
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters,
+                                                       InstrumentationState state) {
+        return timed("parse", known(parameters.getOperation()));
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters,
+                                                                         InstrumentationState state) {
+        return timed("validate", known(parameters.getOperation()));
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        String operationName = parameters.getExecutionContext().getOperationDefinition().getName();
+        return timed("execute", admit(operationName));
+    }
+
+    // Name of an operation of a valid document; admitted while there is room
+    private String admit(String operationName) {
+        if (operationName == null) {
+            return null;
+        }
+        if (knownOperations.contains(operationName)
+                || (knownOperations.size() < maxOperationNames && knownOperations.add(operationName))) {
+            return operationName;
+        }
+        return OTHER;
+    }
+
+    private String known(String operationName) {
+        return operationName == null || knownOperations.contains(operationName) ? operationName : OTHER;
+    }
+
+    private <T> InstrumentationContext<T> timed(String phase, String operationName) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return SimpleInstrumentationContext.whenCompleted((result, throwable) -> sample.stop(
+                Timer.builder(METRIC_NAME)
+                        .tag("phase", phase)
+                        .tag("operation", operationName != null ? operationName : "anonymous")
+                        .tag("outcome", throwable == null ? "success" : "error")
+                        .register(meterRegistry)));
+    }
+}
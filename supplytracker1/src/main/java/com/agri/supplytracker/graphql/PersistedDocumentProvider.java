@@ -0,0 +1,118 @@
+package com.agri.supplytracker.graphql;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.ApolloPersistedQuerySupport;
+import graphql.execution.preparsed.persisted.PersistedQueryCache;
+import graphql.execution.preparsed.persisted.PersistedQueryCacheMiss;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Automatic persisted queries (sha256 hash -> document) backed by a bounded LRU of parsed and
+ * validated documents. Plain queries without the persistedQuery extension are cached by the hash
+ * of their text, so repeated operations skip parsing and validation entirely.
+ */
+public class PersistedDocumentProvider extends ApolloPersistedQuerySupport {
+
+    public PersistedDocumentProvider(int maxEntries, MeterRegistry meterRegistry) {
+        super(new BoundedDocumentCache(maxEntries, meterRegistry));
+    }
+
+    @Override
+    protected Optional<Object> getPersistedQueryId(ExecutionInput executionInput) {
+        Optional<Object> persistedQueryId = super.getPersistedQueryId(executionInput);
+        if (persistedQueryId.isPresent()) {
+            return persistedQueryId;
+        }
+        return Optional.of(sha256(executionInput.getQuery()));
+    }
+
+    private static String sha256(String query) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(query.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class BoundedDocumentCache implements PersistedQueryCache {
+        private final Map<Object, PreparsedDocumentEntry> documents;
+        private final Counter hits;
+        private final Counter misses;
+
+        BoundedDocumentCache(int maxEntries, MeterRegistry meterRegistry) {
+            // Access-ordered map evicting the least recently used document
+            this.documents = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, PreparsedDocumentEntry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+            this.hits = meterRegistry.counter("graphql.document.cache", "result", "hit");
+            this.misses = meterRegistry.counter("graphql.document.cache", "result", "miss");
+            Gauge.builder("graphql.document.cache.size", documents, this::size).register(meterRegistry);
+        }
+
+        @Override
+        public CompletableFuture<PreparsedDocumentEntry> getPersistedQueryDocumentAsync(
+                Object persistedQueryId, ExecutionInput executionInput, PersistedQueryCacheMiss onCacheMiss) {
+            return CompletableFuture.completedFuture(lookup(persistedQueryId, executionInput, onCacheMiss));
+        }
+
+        // Still the method PersistedQuerySupport calls in graphql-java 20
+        @Override
+        @Deprecated
+        public PreparsedDocumentEntry getPersistedQueryDocument(Object persistedQueryId, ExecutionInput executionInput,
+                                                                PersistedQueryCacheMiss onCacheMiss) {
+            return lookup(persistedQueryId, executionInput, onCacheMiss);
+        }
+
+        private PreparsedDocumentEntry lookup(Object persistedQueryId, ExecutionInput executionInput,
+                                              PersistedQueryCacheMiss onCacheMiss) {
+            PreparsedDocumentEntry entry;
+            synchronized (documents) {
+                entry = documents.get(persistedQueryId);
+            }
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+            misses.increment();
+
+            // Hash-only request for a document this node has not seen: the client resends the full query
+            String query = executionInput.getQuery();
+            if (query == null || query.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query)) {
+                throw new PersistedQueryNotFound(persistedQueryId);
+            }
+
+            entry = onCacheMiss.apply(query);
+            // Only cache documents that parsed and validated cleanly
+            if (!entry.hasErrors()) {
+                synchronized (documents) {
+                    documents.put(persistedQueryId, entry);
+                }
+            }
+            return entry;
+        }
+
+        private double size(Map<Object, PreparsedDocumentEntry> documents) {
+            synchronized (documents) {
+                return documents.size();
+            }
+        }
+    }
+}
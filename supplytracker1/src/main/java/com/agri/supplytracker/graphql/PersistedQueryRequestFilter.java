@@ -0,0 +1,122 @@
+package com.agri.supplytracker.graphql;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Spring GraphQL rejects HTTP requests without a "query", but automatic persisted query clients
+ * send only the hash on their first attempt. This filter fills in graphql-java's persisted query
+ * marker so the request reaches {@link PersistedDocumentProvider}.
+ */
+@Component
+public class PersistedQueryRequestFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${spring.graphql.path:/graphql}")
+    private String graphqlPath;
+
+    public PersistedQueryRequestFilter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !graphqlPath.equals(request.getServletPath());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] body = request.getInputStream().readAllBytes();
+
+        try {
+            Map<String, Object> payload = objectMapper.readValue(body, Map.class);
+            Object extensions = payload.get("extensions");
+            if (payload.get("query") == null && extensions instanceof Map
+                    && ((Map<String, Object>) extensions).containsKey("persistedQuery")) {
+                payload.put("query", PersistedQuerySupport.PERSISTED_QUERY_MARKER);
+                body = objectMapper.writeValueAsBytes(payload);
+            }
+        } catch (IOException e) {
+            // Not a JSON object, let the GraphQL handler report it
+        }
+
+        chain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory: it is available at once and then finished
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+    }
+}
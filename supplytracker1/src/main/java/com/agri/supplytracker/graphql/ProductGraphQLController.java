@@ -1,14 +1,25 @@
 package com.agri.supplytracker.graphql;
 
-import com.agri.supplytracker.controller.ProductStreamController;
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.event.ProductChangePublisher;
 import com.agri.supplytracker.model.Product;
 import com.agri.supplytracker.model.TrackingStage;
 import com.agri.supplytracker.repository.ProductRepository;
+import com.agri.supplytracker.security.StageAuthorization;
+import com.agri.supplytracker.service.DuplicateFilter;
+import com.agri.supplytracker.service.ProductLookupService;
+import com.agri.supplytracker.service.ProductSearchIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
@@ -23,17 +34,33 @@ import java.util.Map;
 public class ProductGraphQLController {
 
     private final ProductRepository productRepository;
-    private final ProductStreamController streamController;
+    private final ProductChangePublisher changePublisher;
+    private final ProductSearchIndex searchIndex;
+    private final ProductLookupService lookupService;
+    private final DuplicateFilter duplicateFilter;
     private final Sinks.Many<Product> productSink;
     private final Sinks.Many<Product> productCreatedSink;
     private final Sinks.Many<ProductStatusUpdate> statusUpdateSink;
+    private final Sinks.Many<ProductChangeEvent> changeSink;
+    private final MeterRegistry meterRegistry;
 
-    public ProductGraphQLController(ProductRepository productRepository, ProductStreamController streamController) {
+    public ProductGraphQLController(ProductRepository productRepository, ProductChangePublisher changePublisher,
+                                    ProductSearchIndex searchIndex, ProductLookupService lookupService,
+                                    DuplicateFilter duplicateFilter, MeterRegistry meterRegistry) {
         this.productRepository = productRepository;
-        this.streamController = streamController;
+        this.changePublisher = changePublisher;
+        this.searchIndex = searchIndex;
+        this.lookupService = lookupService;
+        this.duplicateFilter = duplicateFilter;
         this.productSink = Sinks.many().multicast().onBackpressureBuffer();
         this.productCreatedSink = Sinks.many().multicast().onBackpressureBuffer();
         this.statusUpdateSink = Sinks.many().multicast().onBackpressureBuffer();
+        this.changeSink = Sinks.many().multicast().onBackpressureBuffer();
+        this.meterRegistry = meterRegistry;
+        registerSubscriberGauge("productUpdated", productSink);
+        registerSubscriberGauge("productCreated", productCreatedSink);
+        registerSubscriberGauge("productStatusChanged", statusUpdateSink);
+        registerSubscriberGauge("productChanged", changeSink);
     }
 
     // ==================== QUERIES ====================
@@ -45,11 +72,14 @@ public class ProductGraphQLController {
 
     @QueryMapping
     public Product product(@Argument String id) {
-        return productRepository.findById(id).orElse(null);
+        return lookupService.findById(id);
     }
 
     @QueryMapping
     public List<Product> searchProducts(@Argument String keyword) {
+        if (searchIndex.isReady()) {
+            return searchIndex.findProducts(keyword, 0, ProductSearchIndex.Field.NAME, ProductSearchIndex.Field.TYPE);
+        }
         String lowerKeyword = keyword.toLowerCase();
         return productRepository.findAll().stream()
                 .filter(p -> p.getName().toLowerCase().contains(lowerKeyword) ||
@@ -86,16 +116,20 @@ public class ProductGraphQLController {
                 .currentLocation((String) input.get("currentLocation"))
                 .destination((String) input.get("destination"))
                 .status((String) input.getOrDefault("status", "AT_FARM"))
+                .position(GeoGraphQLController.toPosition(input.get("position")))
                 .trackingHistory(new ArrayList<>())
                 .build();
+        if (duplicateFilter.isDuplicate(product)) {
+            throw new RuntimeException("Product already exists: " + product.getName() + " in batch " + product.getBatchId());
+        }
 
         Product savedProduct = productRepository.save(product);
         
         // Emit subscription event
-        productCreatedSink.tryEmitNext(savedProduct);
+        emit("productCreated", productCreatedSink, savedProduct);
         
-        // Broadcast to SSE subscribers
-        streamController.broadcastProductUpdate(savedProduct);
+        // Publish change event to SSE/GraphQL delta subscribers
+        changePublisher.created(savedProduct);
         
         return savedProduct;
     }
@@ -105,6 +139,7 @@ public class ProductGraphQLController {
     public Product updateProduct(@Argument String id, @Argument Map<String, Object> input) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
 
         if (input.containsKey("name")) product.setName((String) input.get("name"));
         if (input.containsKey("type")) product.setType((String) input.get("type"));
@@ -115,14 +150,15 @@ public class ProductGraphQLController {
         if (input.containsKey("currentLocation")) product.setCurrentLocation((String) input.get("currentLocation"));
         if (input.containsKey("destination")) product.setDestination((String) input.get("destination"));
         if (input.containsKey("status")) product.setStatus((String) input.get("status"));
+        if (input.containsKey("position")) product.setPosition(GeoGraphQLController.toPosition(input.get("position")));
 
         Product updatedProduct = productRepository.save(product);
         
         // Emit subscription event
-        productSink.tryEmitNext(updatedProduct);
+        emit("productUpdated", productSink, updatedProduct);
         
-        // Broadcast to SSE subscribers
-        streamController.broadcastProductUpdate(updatedProduct);
+        // Publish only the changed fields to delta subscribers
+        changePublisher.updated(previous, updatedProduct);
         
         return updatedProduct;
     }
@@ -130,11 +166,13 @@ public class ProductGraphQLController {
     @MutationMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public boolean deleteProduct(@Argument String id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return productRepository.findById(id)
+                .map(product -> {
+                    productRepository.delete(product);
+                    changePublisher.deleted(product);
+                    return true;
+                })
+                .orElse(false);
     }
 
     @MutationMapping
@@ -142,42 +180,54 @@ public class ProductGraphQLController {
     public Product addTrackingStage(@Argument String productId, @Argument Map<String, Object> stage) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
 
-        // Parse timestamp string to LocalDateTime if provided, otherwise use current time
-        LocalDateTime timestamp = LocalDateTime.now();
-        if (stage.containsKey("timestamp")) {
-            String timestampStr = (String) stage.get("timestamp");
-            if (timestampStr != null && !timestampStr.isEmpty()) {
-                timestamp = LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_DATE_TIME);
-            }
-        }
-
-        TrackingStage trackingStage = TrackingStage.builder()
-                .stage((String) stage.get("stage"))
-                .location((String) stage.get("location"))
-                .timestamp(timestamp)
-                .notes((String) stage.get("description"))
-                .handler((String) stage.get("handledBy"))
-                .build();
+        TrackingStage trackingStage = toTrackingStage(stage);
 
         product.getTrackingHistory().add(trackingStage);
+        if (trackingStage.getPosition() != null) {
+            product.setPosition(trackingStage.getPosition());
+        }
         Product updatedProduct = productRepository.save(product);
         
         // Emit subscription event
-        productSink.tryEmitNext(updatedProduct);
+        emit("productUpdated", productSink, updatedProduct);
         
-        // Broadcast to SSE subscribers
-        streamController.broadcastProductUpdate(updatedProduct);
+        // Publish the appended stage rather than the whole history
+        changePublisher.trackingAppended(previous, updatedProduct, trackingStage);
         
         return updatedProduct;
     }
 
+    @MutationMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'FARMER', 'PROCESSOR', 'WAREHOUSE_MANAGER', 'DISTRIBUTOR', 'RETAILER')")
+    public BatchTrackingResult addBatchTrackingStage(@Argument String batchId, @Argument Map<String, Object> stage,
+                                                     Authentication authentication) {
+        TrackingStage trackingStage = toTrackingStage(stage);
+        if (!StageAuthorization.canAddStage(authentication, trackingStage.getStage())) {
+            throw new AccessDeniedException("You are not authorized to add this tracking stage");
+        }
+
+        List<Product> members = productRepository.findBatchMembers(batchId);
+        if (members.isEmpty()) {
+            return new BatchTrackingResult(batchId, 0, 0);
+        }
+
+        long affected = productRepository.appendTrackingStage(members.stream().map(Product::getId).toList(), trackingStage);
+
+        // One aggregated event for the whole batch
+        changePublisher.batchTrackingAppended(batchId, trackingStage, members, affected);
+
+        return new BatchTrackingResult(batchId, members.size(), affected);
+    }
+
     @MutationMapping
     @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
     public Product updateProductStatus(@Argument String id, @Argument String status, @Argument String location) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
+        Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
         String oldStatus = product.getStatus();
         product.setStatus(status);
         
@@ -188,10 +238,10 @@ public class ProductGraphQLController {
         Product updatedProduct = productRepository.save(product);
         
         // Emit subscription events
-        productSink.tryEmitNext(updatedProduct);
+        emit("productUpdated", productSink, updatedProduct);
         
-        // Broadcast to SSE subscribers
-        streamController.broadcastProductUpdate(updatedProduct);
+        // Publish only the changed fields to delta subscribers
+        changePublisher.updated(previous, updatedProduct);
         
         ProductStatusUpdate statusUpdate = new ProductStatusUpdate(
                 id,
@@ -200,7 +250,7 @@ public class ProductGraphQLController {
                 location,
                 LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME)
         );
-        statusUpdateSink.tryEmitNext(statusUpdate);
+        emit("productStatusChanged", statusUpdateSink, statusUpdate);
         
         return updatedProduct;
     }
@@ -226,6 +276,66 @@ public class ProductGraphQLController {
         return statusUpdateSink.asFlux();
     }
 
+    @SubscriptionMapping
+    public Flux<ProductChangeEvent> productChanged(@Argument String productId) {
+        if (productId != null) {
+            return changeSink.asFlux()
+                    .filter(event -> productId.equals(event.getProductId())
+                            || (event.getAffectedProducts() != null && event.getAffectedProducts().stream()
+                                    .anyMatch(member -> productId.equals(member.getId()))));
+        }
+        return changeSink.asFlux();
+    }
+
+    @SchemaMapping(typeName = "ProductChange", field = "changes")
+    public List<FieldChange> changes(ProductChangeEvent event) {
+        if (event.getChanges() == null) {
+            return null;
+        }
+        return event.getChanges().entrySet().stream()
+                .map(change -> new FieldChange(change.getKey(),
+                        change.getValue() != null ? change.getValue().toString() : null))
+                .toList();
+    }
+
+    // Forward deltas from REST and GraphQL writes to delta subscribers
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        emit("productChanged", changeSink, event);
+    }
+
+    // tryEmitNext fails silently (e.g. concurrent emits or a full buffer); count failures per sink and reason
+    private <T> void emit(String sinkName, Sinks.Many<T> sink, T value) {
+        Sinks.EmitResult result = sink.tryEmitNext(value);
+        if (result.isFailure()) {
+            meterRegistry.counter("graphql.subscription.emit.failures", "sink", sinkName, "result", result.name()).increment();
+        }
+    }
+
+    private void registerSubscriberGauge(String sinkName, Sinks.Many<?> sink) {
+        Gauge.builder("graphql.subscription.subscribers", sink, Sinks.Many::currentSubscriberCount)
+                .tag("sink", sinkName)
+                .register(meterRegistry);
+    }
+
+    // Parse a TrackingStageInput, using the current time when no timestamp is given
+    private static TrackingStage toTrackingStage(Map<String, Object> stage) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        String timestampStr = (String) stage.get("timestamp");
+        if (timestampStr != null && !timestampStr.isEmpty()) {
+            timestamp = LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_DATE_TIME);
+        }
+
+        return TrackingStage.builder()
+                .stage((String) stage.get("stage"))
+                .location((String) stage.get("location"))
+                .position(GeoGraphQLController.toPosition(stage.get("position")))
+                .timestamp(timestamp)
+                .notes((String) stage.get("notes"))
+                .handler((String) stage.get("handler"))
+                .build();
+    }
+
     // Inner class for status updates
     public record ProductStatusUpdate(
             String productId,
@@ -234,4 +344,15 @@ public class ProductGraphQLController {
             String location,
             String timestamp
     ) {}
+
+    public record BatchTrackingResult(
+            String batchId,
+            long matched,
+            long affected
+    ) {}
+
+    public record FieldChange(
+            String field,
+            String value
+    ) {}
 }
@@ -3,6 +3,7 @@ package com.agri.supplytracker.model;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document("farms")
@@ -19,6 +20,9 @@ public class Farm {
     
     @NotBlank(message = "Location is required")
     private String location;
+
+    // Optional coordinates of the farm as a GeoJSON point ([longitude, latitude])
+    private GeoJsonPoint position;
     
     @NotBlank(message = "Owner name is required")
     private String owner;
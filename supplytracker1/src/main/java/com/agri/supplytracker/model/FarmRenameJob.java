@@ -0,0 +1,56 @@
+package com.agri.supplytracker.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of copying a farm's new name into originFarmName of its products, one document per farm.
+ * A rename while a job is running restarts it for the newer name (generation is incremented).
+ */
+@Document("farm_rename_jobs")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FarmRenameJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    // The farm id
+    @Id
+    private String id;
+
+    private String previousName;
+
+    private String newName;
+
+    private long generation;
+
+    private String status;
+
+    // Products still carrying another name when the job started, and how many have been renamed since
+    private Long total;
+
+    private long updated;
+
+    // Resume point: the last product id handled, in id order
+    private String lastProductId;
+
+    private LocalDateTime requestedAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private String error;
+
+    // Node running the job and until when it holds it; an expired RUNNING job is claimed by another node
+    private String owner;
+
+    private LocalDateTime leaseUntil;
+}
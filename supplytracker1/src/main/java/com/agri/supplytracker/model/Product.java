@@ -4,8 +4,12 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,7 +49,18 @@ public class Product {
     
     // Current status: IN_TRANSIT, AT_FARM, PROCESSING, IN_WAREHOUSE, DELIVERED, etc.
     private String status;
+
+    // Current coordinates as a GeoJSON point ([longitude, latitude]), from the latest stage that had them
+    private GeoJsonPoint position;
     
+    // Incremented on every write (optimistic locking), also used as the ETag of the product
+    @Version
+    private Long version;
+
+    // Set on every write, lets the catalog snapshot catch up on products changed since it was taken
+    @LastModifiedDate
+    private LocalDateTime lastModifiedAt;
+
     @Builder.Default
     private List<TrackingStage> trackingHistory = new ArrayList<>();
 }
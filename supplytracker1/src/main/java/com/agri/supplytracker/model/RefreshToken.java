@@ -0,0 +1,29 @@
+package com.agri.supplytracker.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A refresh token that may still be exchanged, one document per login session. Refreshing replaces it
+ * with a new one and logging out removes it; expired documents are dropped by a TTL index on expiresAt.
+ */
+@Document("refresh_tokens")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RefreshToken {
+
+    // The token's jti
+    @Id
+    private String id;
+
+    private String username;
+
+    private Date issuedAt;
+
+    private Date expiresAt;
+}
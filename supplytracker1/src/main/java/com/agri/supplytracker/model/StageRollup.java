@@ -0,0 +1,45 @@
+package com.agri.supplytracker.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated tracking statistics for one stage, farm and product type in one hour or day.
+ * Dwell times are attributed to the stage being left, in the bucket of the next stage's timestamp.
+ */
+@Document("stage_rollups")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StageRollup {
+    @Id
+    private String id;
+
+    private String granularity; // HOUR or DAY
+
+    private LocalDateTime bucketStart;
+
+    private String stage;
+
+    private String originFarmId;
+
+    private String productType;
+
+    // Products that entered this stage during the bucket
+    private long arrivals;
+
+    // Products that left this stage during the bucket, with their total time spent in it
+    private long dwellSamples;
+
+    private long dwellTotalSeconds;
+
+    // Log-scale histogram of dwell seconds (bucket index -> count), see StageAnalyticsService.histogramBucket
+    @Builder.Default
+    private Map<String, Long> dwellHistogram = new HashMap<>();
+}
@@ -0,0 +1,45 @@
+package com.agri.supplytracker.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run of sensor readings for one batch, compressed with TelemetryCodec: timestamps as delta-of-delta
+ * varints, values as fixed-point deltas with a presence bitmap. The min/max summaries let range and
+ * excursion queries skip chunks without decoding them.
+ */
+@Document("telemetry_chunks")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TelemetryChunk {
+    @Id
+    private String id;
+
+    private String batchId;
+
+    private LocalDateTime start;
+
+    private LocalDateTime end;
+
+    private int count;
+
+    private byte[] timestamps;
+
+    private byte[] temperature;
+
+    private byte[] humidity;
+
+    // Null when the chunk has no reading of that metric
+    private Double temperatureMin;
+
+    private Double temperatureMax;
+
+    private Double humidityMin;
+
+    private Double humidityMax;
+}
@@ -0,0 +1,41 @@
+package com.agri.supplytracker.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Downsampled sensor readings of one batch in one fixed window: count, min, max and sum per metric.
+ * Windows are upserted incrementally as chunks are flushed, so late readings merge into their window.
+ */
+@Document("telemetry_windows")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TelemetryWindow {
+    @Id
+    private String id;
+
+    private String batchId;
+
+    private LocalDateTime windowStart;
+
+    private long temperatureCount;
+
+    private Double temperatureMin;
+
+    private Double temperatureMax;
+
+    private double temperatureSum;
+
+    private long humidityCount;
+
+    private Double humidityMin;
+
+    private Double humidityMax;
+
+    private double humiditySum;
+}
@@ -2,6 +2,7 @@ package com.agri.supplytracker.model;
 
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 
 import java.time.LocalDateTime;
 
@@ -16,6 +17,9 @@ public class TrackingStage {
     
     @NotBlank(message = "Location is required")
     private String location;
+
+    // Optional coordinates of the location as a GeoJSON point ([longitude, latitude])
+    private GeoJsonPoint position;
     
     @NotBlank(message = "Handler is required")
     private String handler; // Person or company handling at this stage
@@ -23,4 +27,7 @@ public class TrackingStage {
     private LocalDateTime timestamp;
     
     private String notes; // Optional additional information
+
+    // Idempotency key from the scanner, a stage with a key already in the history is not added again
+    private String eventId;
 }
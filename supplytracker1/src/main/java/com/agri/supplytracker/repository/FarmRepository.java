@@ -1,6 +1,12 @@
 package com.agri.supplytracker.repository;
 
 import com.agri.supplytracker.model.Farm;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoPage;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +15,8 @@ import java.util.Optional;
 @Repository
 public interface FarmRepository extends MongoRepository<Farm, String> {
     Optional<Farm> findByName(String name);
+
+    // Served by the 2dsphere index on position
+    GeoPage<Farm> findByPositionNear(GeoJsonPoint point, Distance maxDistance, Pageable pageable);
+    Page<Farm> findByPositionWithin(GeoJsonPolygon area, Pageable pageable);
 }
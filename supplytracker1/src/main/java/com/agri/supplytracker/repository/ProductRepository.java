@@ -1,10 +1,16 @@
 package com.agri.supplytracker.repository;
 
 import com.agri.supplytracker.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoPage;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
 
     // already have: extends MongoRepository...
 
@@ -12,6 +18,13 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     List<Product> findByType(String type);
     List<Product> findByBatchId(String batchId);
     List<Product> findByOriginFarmId(String originFarmId);
+    // Natural key of a product, confirms possible duplicates reported by DuplicateFilter
+    boolean existsByNameAndTypeAndBatchIdAndHarvestDateAndOriginFarmId(String name, String type, String batchId,
+                                                                       String harvestDate, String originFarmId);
+
+    // Served by the 2dsphere index on position: nearest first with the distance, or inside an area
+    GeoPage<Product> findByPositionNear(GeoJsonPoint point, Distance maxDistance, Pageable pageable);
+    Page<Product> findByPositionWithin(GeoJsonPolygon area, Pageable pageable);
 }
 
 
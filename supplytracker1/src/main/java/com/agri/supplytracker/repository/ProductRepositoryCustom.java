@@ -0,0 +1,23 @@
+package com.agri.supplytracker.repository;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    // Products of a batch with scalar fields and only the latest tracking stage
+    List<Product> findBatchMembers(String batchId);
+
+    // Append one stage to all given products with a single updateMany, returns the modified count
+    long appendTrackingStage(Collection<String> productIds, TrackingStage stage);
+
+    // Up to limit products of a farm whose originFarmName differs from name, after afterId in id order,
+    // with scalar fields and only the latest tracking stage
+    List<Product> findFarmProductsToRename(String farmId, String name, String afterId, int limit);
+
+    // Set originFarmName on the given products of a farm with a single updateMany, returns the modified count
+    long renameOriginFarm(Collection<String> productIds, String farmId, String name);
+}
@@ -0,0 +1,71 @@
+package com.agri.supplytracker.repository;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ProductRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Product> findBatchMembers(String batchId) {
+        Query query = new Query(Criteria.where("batchId").is(batchId));
+        query.fields()
+                .include("name", "type", "batchId", "originFarmId", "originFarmName", "currentLocation", "status")
+                .slice("trackingHistory", -1);
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    @Override
+    public long appendTrackingStage(Collection<String> productIds, TrackingStage stage) {
+        Query query = new Query(Criteria.where("_id").in(productIds));
+        Update update = new Update()
+                .push("trackingHistory", stage)
+                .set("currentLocation", stage.getLocation())
+                .set("status", stage.getStage())
+                .set("lastModifiedAt", LocalDateTime.now())
+                .inc("version", 1);
+        if (stage.getPosition() != null) {
+            update.set("position", stage.getPosition());
+        }
+        return mongoTemplate.updateMulti(query, update, Product.class).getModifiedCount();
+    }
+
+    @Override
+    public List<Product> findFarmProductsToRename(String farmId, String name, String afterId, int limit) {
+        Criteria criteria = Criteria.where("originFarmId").is(farmId).and("originFarmName").ne(name);
+        if (afterId != null) {
+            // Ids are stored as ObjectIds unless they were assigned in another format
+            criteria = criteria.and("_id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId);
+        }
+        Query query = new Query(criteria).with(Sort.by("_id")).limit(limit);
+        query.fields()
+                .include("name", "type", "batchId", "originFarmId", "originFarmName", "currentLocation", "status")
+                .slice("trackingHistory", -1);
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    @Override
+    public long renameOriginFarm(Collection<String> productIds, String farmId, String name) {
+        Query query = new Query(Criteria.where("_id").in(productIds).and("originFarmId").is(farmId));
+        Update update = new Update()
+                .set("originFarmName", name)
+                .set("lastModifiedAt", LocalDateTime.now())
+                .inc("version", 1);
+        return mongoTemplate.updateMulti(query, update, Product.class).getModifiedCount();
+    }
+}
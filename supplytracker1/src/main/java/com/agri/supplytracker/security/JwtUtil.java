@@ -1,6 +1,7 @@
 package com.agri.supplytracker.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -9,22 +10,40 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    // Access tokens carry the user's roles so requests authenticate without a user lookup;
+    // refresh tokens only name the user, carry the id RefreshTokenService stored them under and are exchanged
+    // at /api/auth/refresh
+    public static final String TYPE_CLAIM = "typ";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
     @Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatIsAtLeast256BitsLong12345678}")
     private String SECRET_KEY;
 
-    @Value("${jwt.expiration:86400000}") // 24 hours
+    @Value("${jwt.expiration:900000}") // 15 minutes
     private Long jwtExpiration;
 
+    @Value("${jwt.refresh-expiration:604800000}") // 7 days
+    private Long refreshExpiration;
+
+    private Key signingKey;
+
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        if (signingKey == null) {
+            signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        }
+        return signingKey;
     }
 
     public String extractUsername(String token) {
@@ -52,22 +71,72 @@ public class JwtUtil {
         return extractExpiration(token).before(new Date());
     }
 
-    public String generateToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername());
+    /**
+     * Claims of a valid, unexpired access token, or null. Tokens issued before the type claim existed count as access tokens.
+     */
+    public Claims parseAccessToken(String token) {
+        Claims claims = parse(token);
+        return claims != null && !REFRESH.equals(claims.get(TYPE_CLAIM)) ? claims : null;
+    }
+
+    /**
+     * Claims of a valid, unexpired refresh token, or null
+     */
+    public Claims parseRefreshToken(String token) {
+        Claims claims = parse(token);
+        return claims != null && REFRESH.equals(claims.get(TYPE_CLAIM)) ? claims : null;
+    }
+
+    // Signature and expiry are checked while parsing
+    private Claims parse(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Roles carried by an access token, or null when it was issued without them
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> extractRoles(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        return roles instanceof List<?> ? (List<String>) roles : null;
     }
 
-    public String generateToken(String username) {
+    public String generateAccessToken(String username, Collection<String> roles) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username);
+        claims.put(TYPE_CLAIM, ACCESS);
+        claims.put(ROLES_CLAIM, List.copyOf(roles));
+        return createToken(claims, username, jwtExpiration);
+    }
+
+    public String generateRefreshToken(String username, String id, Date issuedAt, Date expiresAt) {
+        return Jwts.builder()
+                .claim(TYPE_CLAIM, REFRESH)
+                .setId(id)
+                .setSubject(username)
+                .setIssuedAt(issuedAt)
+                .setExpiration(expiresAt)
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public long getAccessTokenExpirationSeconds() {
+        return jwtExpiration / 1000;
+    }
+
+    public long getRefreshTokenExpirationMillis() {
+        return refreshExpiration;
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, long expiration) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
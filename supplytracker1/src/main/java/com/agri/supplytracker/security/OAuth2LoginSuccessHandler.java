@@ -2,6 +2,7 @@ package com.agri.supplytracker.security;
 
 import com.agri.supplytracker.model.User;
 import com.agri.supplytracker.repository.UserRepository;
+import com.agri.supplytracker.service.RefreshTokenService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -12,7 +13,8 @@ import org.springframework.security.web.authentication.SimpleUrlAuthenticationSu
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 @Component
@@ -24,6 +26,9 @@ public class OAuth2LoginSuccessHandler extends SimpleUrlAuthenticationSuccessHan
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
                                         Authentication authentication) throws IOException, ServletException {
@@ -42,14 +47,20 @@ public class OAuth2LoginSuccessHandler extends SimpleUrlAuthenticationSuccessHan
             return userRepository.save(newUser);
         });
 
-        // Generate JWT token
-        String jwt = jwtUtil.generateToken(user.getUsername());
+        // Generate access and refresh tokens
+        String jwt = jwtUtil.generateAccessToken(user.getUsername(), user.getRoles());
+        String refreshToken = refreshTokenService.issue(user.getUsername());
         
-        // Redirect to frontend main page with token and roles
+        // Redirect to frontend main page with tokens and roles in the fragment, which browsers never send
+        // to servers or in Referer headers, so the tokens stay out of access logs
         String roles = String.join(",", user.getRoles());
-        String redirectUrl = String.format("http://localhost:5173/?token=%s&username=%s&roles=%s",
-                jwt, user.getUsername(), roles);
+        String redirectUrl = String.format("http://localhost:5173/#token=%s&refreshToken=%s&username=%s&roles=%s",
+                jwt, refreshToken, encode(user.getUsername()), encode(roles));
         
         getRedirectStrategy().sendRedirect(request, response, redirectUrl);
     }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,77 @@
+package com.agri.supplytracker.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Applies {@link RateLimiter} after JWT authentication so callers are keyed by username, or by client
+ * IP when anonymous. Behind a proxy the client IP comes from X-Forwarded-For, which Tomcat applies to
+ * getRemoteAddr() when server.forward-headers-strategy is native. Not a bean on purpose: it must only run
+ * inside the security filter chain.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String group = "OPTIONS".equals(request.getMethod()) ? null : rateLimiter.groupFor(pathOf(request));
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean authenticated = authentication != null && authentication.isAuthenticated()
+                && !"anonymousUser".equals(authentication.getPrincipal());
+        List<String> roles = authenticated
+                ? authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                        .toList()
+                : List.of();
+        RateLimiter.Limit limit = rateLimiter.limitFor(group, roles);
+        if (limit == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String caller = authenticated ? "user:" + authentication.getName() : "ip:" + request.getRemoteAddr();
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(group, caller, limit);
+        response.setHeader("X-RateLimit-Limit", String.valueOf(limit.capacity()));
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+        if (decision.allowed()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMillis() + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests\",\"retryAfterSeconds\":" + retryAfterSeconds + "}");
+    }
+
+    // Decoded and normalized, unlike getRequestURI(), so encoded or doubled slashes cannot slip past a group
+    private static String pathOf(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return pathInfo != null ? request.getServletPath() + pathInfo : request.getServletPath();
+    }
+}
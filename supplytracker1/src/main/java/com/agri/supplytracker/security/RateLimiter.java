@@ -0,0 +1,228 @@
+package com.agri.supplytracker.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token-bucket rate limits per endpoint group and caller.
+ *
+ * Groups are matched in order from rate-limit.groups ("name=/ant/path/**,..."); requests outside every
+ * group are not limited. Limits come from rate-limit.limits as "group.ROLE=capacity/period" entries,
+ * where ROLE is a user role, ANONYMOUS, or * for any authenticated user; a user with several roles gets
+ * the most generous one. Buckets live in Redis and are updated by a Lua script so all replicas share
+ * them. While Redis is unreachable each node falls back to its own in-memory buckets.
+ */
+@Component
+public class RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    public static final String ANONYMOUS = "ANONYMOUS";
+    private static final String ANY_ROLE = "*";
+
+    // Refills by elapsed time using the Redis clock so replicas with skewed clocks agree
+    private static final RedisScript<List> TOKEN_BUCKET = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil then
+              tokens = capacity
+              ts = now
+            end
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local allowed = 0
+            local retry = 0
+            if tokens >= 1 then
+              tokens = tokens - 1
+              allowed = 1
+            else
+              retry = math.ceil((1 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)
+            return {allowed, retry, math.floor(tokens)}
+            """, List.class);
+
+    public record Limit(long capacity, long periodMillis) {
+        double tokensPerMilli() {
+            return (double) capacity / periodMillis;
+        }
+    }
+
+    public record Decision(boolean allowed, long remaining, long retryAfterMillis) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean enabled;
+    private final long redisRetryMillis;
+    private final LinkedHashMap<String, String> groups = new LinkedHashMap<>();
+    private final Map<String, Map<String, Limit>> limits = new HashMap<>();
+    private final Map<String, LocalBucket> localBuckets = new ConcurrentHashMap<>();
+    private final Counter fallbacks;
+    private volatile long redisDownUntil;
+
+    public RateLimiter(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                       @Value("${rate-limit.enabled:true}") boolean enabled,
+                       @Value("${rate-limit.groups:}") String groupSpec,
+                       @Value("${rate-limit.limits:}") String limitSpec,
+                       @Value("${rate-limit.redis-retry-ms:5000}") long redisRetryMillis) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.redisRetryMillis = redisRetryMillis;
+        this.fallbacks = Counter.builder("http.ratelimit.fallback").register(meterRegistry);
+        parseGroups(groupSpec);
+        parseLimits(limitSpec);
+    }
+
+    /**
+     * First group whose pattern matches the path, or null when the path is not limited
+     */
+    public String groupFor(String path) {
+        if (!enabled) {
+            return null;
+        }
+        for (Map.Entry<String, String> group : groups.entrySet()) {
+            if (pathMatcher.match(group.getValue(), path)) {
+                return group.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Most generous limit for the caller's roles in the group, or null if the group has none for them
+     */
+    public Limit limitFor(String group, Collection<String> roles) {
+        Map<String, Limit> groupLimits = limits.getOrDefault(group, Map.of());
+        if (roles.isEmpty()) {
+            return groupLimits.get(ANONYMOUS);
+        }
+        Limit best = groupLimits.get(ANY_ROLE);
+        for (String role : roles) {
+            Limit limit = groupLimits.get(role);
+            if (limit != null && (best == null || limit.tokensPerMilli() > best.tokensPerMilli())) {
+                best = limit;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Take one token from the caller's bucket for the group
+     */
+    public Decision tryAcquire(String group, String caller, Limit limit) {
+        String key = "ratelimit:" + group + ":" + caller;
+        Decision decision = null;
+        if (System.currentTimeMillis() >= redisDownUntil) {
+            decision = acquireInRedis(key, limit);
+        }
+        if (decision == null) {
+            fallbacks.increment();
+            decision = localBuckets.computeIfAbsent(key, k -> new LocalBucket(limit)).tryAcquire(limit);
+        }
+        if (!decision.allowed()) {
+            meterRegistry.counter("http.ratelimit.rejected", "group", group,
+                    "caller", caller.startsWith("user:") ? "user" : "anonymous").increment();
+        }
+        return decision;
+    }
+
+    // Drop local buckets that have refilled completely, they carry no state
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleLocalBuckets() {
+        long now = System.currentTimeMillis();
+        localBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private Decision acquireInRedis(String key, Limit limit) {
+        try {
+            List<?> result = redisTemplate.execute(TOKEN_BUCKET, List.of(key),
+                    String.valueOf(limit.capacity()), String.valueOf(limit.tokensPerMilli()));
+            if (result == null || result.size() < 3) {
+                return null;
+            }
+            return new Decision(((Number) result.get(0)).longValue() == 1,
+                    ((Number) result.get(2)).longValue(), ((Number) result.get(1)).longValue());
+        } catch (Exception e) {
+            // Stop trying Redis for a while so every request does not pay for the failed call
+            redisDownUntil = System.currentTimeMillis() + redisRetryMillis;
+            log.warn("Rate limiting falls back to local buckets: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void parseGroups(String spec) {
+        for (String entry : spec.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals > 0) {
+                groups.put(entry.substring(0, equals).trim(), entry.substring(equals + 1).trim());
+            }
+        }
+    }
+
+    private void parseLimits(String spec) {
+        for (String entry : spec.split(",")) {
+            int equals = entry.indexOf('=');
+            int dot = entry.indexOf('.');
+            int slash = entry.indexOf('/', equals);
+            if (equals <= 0 || dot <= 0 || dot > equals || slash < 0) {
+                continue;
+            }
+            String group = entry.substring(0, dot).trim();
+            String role = entry.substring(dot + 1, equals).trim();
+            long capacity = Long.parseLong(entry.substring(equals + 1, slash).trim());
+            long period = DurationStyle.detectAndParse(entry.substring(slash + 1).trim()).toMillis();
+            limits.computeIfAbsent(group, g -> new HashMap<>()).put(role, new Limit(capacity, period));
+        }
+    }
+
+    private static final class LocalBucket {
+        private double tokens;
+        private long timestamp;
+        private long fullAt;
+
+        LocalBucket(Limit limit) {
+            this.tokens = limit.capacity();
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        synchronized Decision tryAcquire(Limit limit) {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(limit.capacity(), tokens + (now - timestamp) * limit.tokensPerMilli());
+            timestamp = now;
+            Decision decision;
+            if (tokens >= 1) {
+                tokens -= 1;
+                decision = new Decision(true, (long) tokens, 0);
+            } else {
+                decision = new Decision(false, 0, (long) Math.ceil((1 - tokens) / limit.tokensPerMilli()));
+            }
+            fullAt = now + (long) Math.ceil((limit.capacity() - tokens) / limit.tokensPerMilli());
+            return decision;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now >= fullAt;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.agri.supplytracker.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Role-to-stage rules for adding tracking stages: admins may add any stage,
+ * stage roles only the stage they handle (FARMER for Farm, PROCESSOR for Processing, etc.)
+ */
+public final class StageAuthorization {
+
+    private StageAuthorization() {
+    }
+
+    public static boolean canAddStage(Authentication authentication, String stage) {
+        String userRole = authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .filter(auth -> auth.startsWith("ROLE_"))
+            .findFirst()
+            .orElse("");
+
+        if (userRole.equals("ROLE_ADMIN")) return true;
+        if (stage == null) return false;
+
+        if (userRole.equals("ROLE_FARMER") && stage.equalsIgnoreCase("Farm")) return true;
+        if (userRole.equals("ROLE_PROCESSOR") && (stage.equalsIgnoreCase("Processing") || stage.equalsIgnoreCase("Quality Check"))) return true;
+        if (userRole.equals("ROLE_WAREHOUSE_MANAGER") && stage.equalsIgnoreCase("Warehouse")) return true;
+        if (userRole.equals("ROLE_DISTRIBUTOR") && stage.equalsIgnoreCase("Distribution")) return true;
+        return userRole.equals("ROLE_RETAILER") && stage.equalsIgnoreCase("Retail");
+    }
+}
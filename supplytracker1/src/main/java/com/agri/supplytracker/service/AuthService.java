@@ -0,0 +1,142 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.dto.AuthResponse;
+import com.agri.supplytracker.dto.RegisterRequest;
+import com.agri.supplytracker.model.User;
+import com.agri.supplytracker.repository.UserRepository;
+import com.agri.supplytracker.security.JwtUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Login, registration and token refresh with at most one user lookup per request. Password hashing runs on
+ * a small bounded pool, so a burst of logins queues there (and is turned away once the queue is full)
+ * instead of tying up every request thread with BCrypt.
+ */
+@Service
+public class AuthService {
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final ThreadPoolExecutor hashExecutor;
+    // Compared against when the user does not exist, so unknown names take as long as wrong passwords
+    private final String unknownUserHash;
+    private final Timer verifyTimer;
+    private final Timer encodeTimer;
+    private final Counter rejected;
+
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil,
+                       RefreshTokenService refreshTokenService, MeterRegistry meterRegistry,
+                       @Value("${auth.hash.threads:0}") int threads,
+                       @Value("${auth.hash.queue-capacity:64}") int queueCapacity) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.hashExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.unknownUserHash = passwordEncoder.encode("unknown-user");
+        this.verifyTimer = Timer.builder("auth.password.hash").tag("operation", "verify").register(meterRegistry);
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.hash.rejected").register(meterRegistry);
+        meterRegistry.gauge("auth.password.hash.queued", hashExecutor, executor -> executor.getQueue().size());
+    }
+
+    /**
+     * The user when the password matches, null otherwise. Fails with RejectedExecutionException when the
+     * hashing queue is full.
+     */
+    public CompletableFuture<User> authenticate(String username, String password) {
+        if (username == null || password == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        User user = userRepository.findByUsername(username).orElse(null);
+        // OAuth accounts have no password and cannot log in with one
+        String hash = user != null && user.getPassword() != null && !user.getPassword().isEmpty()
+                ? user.getPassword() : unknownUserHash;
+        return hash(verifyTimer, () -> passwordEncoder.matches(password, hash) && hash != unknownUserHash)
+                .thenApply(matches -> matches ? user : null);
+    }
+
+    /**
+     * Inserts the new user; a taken username or email surfaces as DuplicateKeyException from the unique
+     * indexes rather than being checked up front
+     */
+    public CompletableFuture<User> register(RegisterRequest request) {
+        return hash(encodeTimer, () -> passwordEncoder.encode(request.getPassword()))
+                .thenApply(encoded -> {
+                    User user = new User();
+                    user.setUsername(request.getUsername());
+                    user.setEmail(request.getEmail());
+                    user.setPassword(encoded);
+                    // Default to ROLE_USER unless specified
+                    Set<String> roles = new HashSet<>();
+                    if (request.getRoles() != null && !request.getRoles().isEmpty()) {
+                        roles.addAll(request.getRoles());
+                    } else {
+                        roles.add("ROLE_USER");
+                    }
+                    user.setRoles(roles);
+                    return userRepository.insert(user);
+                });
+    }
+
+    /**
+     * The user a valid refresh token was issued to, read again so role changes and deletions take effect.
+     * The token is used up; the caller issues the replacement.
+     */
+    public Optional<User> refresh(String refreshToken) {
+        String username = refreshTokenService.consume(refreshToken);
+        return username != null ? userRepository.findByUsername(username) : Optional.empty();
+    }
+
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+
+    /**
+     * A fresh access and refresh token pair plus the profile fields the frontend keeps
+     */
+    public AuthResponse issueTokens(User user, String message) {
+        AuthResponse response = new AuthResponse(jwtUtil.generateAccessToken(user.getUsername(), user.getRoles()),
+                user.getUsername(), user.getRoles(), message);
+        response.setRefreshToken(refreshTokenService.issue(user.getUsername()));
+        response.setExpiresIn(jwtUtil.getAccessTokenExpirationSeconds());
+        response.setStageProfile(user.getStageProfile());
+        response.setLocation(user.getLocation());
+        response.setAssociatedFarmId(user.getAssociatedFarmId());
+        return response;
+    }
+
+    private <T> CompletableFuture<T> hash(Timer timer, Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(work), hashExecutor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.FarmChangeEvent;
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Farm;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.FarmRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Typeahead over product names, batch ids and farm names, answered from an in-memory trie.
+ * Every node keeps the highest frequency found below it per kind, so the top-k suggestions for a
+ * prefix are found best-first without visiting the whole subtree. Frequencies are the number of
+ * products with a name, the number of products in a batch, and the number of farms with a name.
+ *
+ * The terms counted for each product and farm are remembered by id, so applying the same write twice
+ * (an event racing a rebuild, or a later catch-up) changes nothing. Farms have no modification time,
+ * so catch-ups re-read all farm names every autocomplete.farm-refresh-ms.
+ */
+@Service
+public class AutocompleteService implements CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteService.class);
+
+    public enum Kind {
+        PRODUCT, BATCH, FARM
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    public record Suggestion(String text, Kind kind, int count) {
+    }
+
+    public record Result(List<Suggestion> suggestions, boolean truncated) {
+    }
+
+    private final FarmRepository farmRepository;
+    private final long budgetNanos;
+    private final long farmRefreshMillis;
+    private volatile long farmsRefreshedAt = System.currentTimeMillis();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Terms terms = new Terms();
+    // Writes seen while a rebuild is loading, replayed onto the rebuilt terms
+    private List<Consumer<Terms>> pending;
+
+    public AutocompleteService(FarmRepository farmRepository,
+                               @Value("${autocomplete.budget-micros:2000}") long budgetMicros,
+                               @Value("${autocomplete.farm-refresh-ms:60000}") long farmRefreshMillis) {
+        this.farmRepository = farmRepository;
+        this.budgetNanos = budgetMicros * 1000;
+        this.farmRefreshMillis = farmRefreshMillis;
+    }
+
+    @Override
+    public void startRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load product terms from the catalog and farm names from Mongo
+     */
+    @Override
+    public void completeRebuild(Iterable<Product> catalog) {
+        Terms rebuilt = new Terms();
+        for (Product product : catalog) {
+            rebuilt.putProduct(product.getId(), product.getName(), product.getBatchId());
+        }
+        for (Farm farm : farmRepository.findAll()) {
+            rebuilt.putFarm(farm.getId(), farm.getName());
+        }
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(write -> write.accept(rebuilt));
+            pending = null;
+            terms = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Autocomplete trie rebuilt");
+    }
+
+    @Override
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void catchUp(Collection<Product> changed, Collection<String> deletedIds) {
+        if (!changed.isEmpty() || !deletedIds.isEmpty()) {
+            apply(terms -> {
+                changed.forEach(product -> terms.putProduct(product.getId(), product.getName(), product.getBatchId()));
+                deletedIds.forEach(terms::removeProduct);
+            });
+        }
+        if (System.currentTimeMillis() - farmsRefreshedAt >= farmRefreshMillis) {
+            farmsRefreshedAt = System.currentTimeMillis();
+            Map<String, String> names = new HashMap<>();
+            farmRepository.findAll().forEach(farm -> names.put(farm.getId(), farm.getName()));
+            apply(terms -> terms.replaceFarms(names));
+        }
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        String id = event.getProductId();
+        switch (event.getType()) {
+            case CREATED -> {
+                Product product = event.getProduct();
+                apply(terms -> terms.putProduct(id, product.getName(), product.getBatchId()));
+            }
+            case UPDATED -> {
+                Map<String, Object> changes = event.getChanges();
+                if (changes.containsKey("name") || changes.containsKey("batchId")) {
+                    Product product = event.getCurrent();
+                    apply(terms -> terms.putProduct(id, product.getName(), product.getBatchId()));
+                }
+            }
+            case DELETED -> apply(terms -> terms.removeProduct(id));
+            default -> { }
+        }
+    }
+
+    @EventListener
+    public void onFarmChange(FarmChangeEvent event) {
+        String id = event.getFarmId();
+        Farm farm = event.getFarm();
+        apply(terms -> {
+            if (farm != null) {
+                terms.putFarm(id, farm.getName());
+            } else {
+                terms.removeFarm(id);
+            }
+        });
+    }
+
+    /**
+     * Top suggestions for a prefix, most frequent first. Stops early once the latency budget is spent
+     * and reports the result as truncated.
+     */
+    public Result suggest(String prefix, int limit, Set<Kind> kinds) {
+        long deadline = System.nanoTime() + budgetNanos;
+        String key = normalize(prefix);
+        boolean[] allowed = new boolean[KINDS.length];
+        kinds.forEach(kind -> allowed[kind.ordinal()] = true);
+
+        lock.readLock().lock();
+        try {
+            Node start = terms.root;
+            for (int i = 0; i < key.length() && start != null; i++) {
+                start = start.child(key.charAt(i));
+            }
+            List<Suggestion> suggestions = new ArrayList<>(limit);
+            if (start == null || key.isEmpty()) {
+                return new Result(suggestions, false);
+            }
+
+            // Best-first walk: subtrees are ranked by their best frequency, ties by path so output is alphabetical
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            queue.add(new Candidate(start.best(allowed), key, start, null));
+            int steps = 0;
+            while (!queue.isEmpty() && suggestions.size() < limit) {
+                if ((++steps & 63) == 0 && System.nanoTime() > deadline) {
+                    return new Result(suggestions, true);
+                }
+                Candidate candidate = queue.poll();
+                if (candidate.kind != null) {
+                    suggestions.add(new Suggestion(candidate.node.display, candidate.kind, candidate.score));
+                    continue;
+                }
+                Node node = candidate.node;
+                if (node.counts != null) {
+                    for (Kind kind : KINDS) {
+                        if (allowed[kind.ordinal()] && node.counts[kind.ordinal()] > 0) {
+                            queue.add(new Candidate(node.counts[kind.ordinal()], candidate.path, node, kind));
+                        }
+                    }
+                }
+                for (int i = 0; i < node.size; i++) {
+                    int best = node.children[i].best(allowed);
+                    if (best > 0) {
+                        queue.add(new Candidate(best, candidate.path + node.keys[i], node.children[i], null));
+                    }
+                }
+            }
+            return new Result(suggestions, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Terms> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(terms);
+            if (pending != null) {
+                pending.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void add(Node root, Kind kind, String text, int delta) {
+        if (text == null) {
+            return;
+        }
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            Node next = node.child(key.charAt(i));
+            if (next == null) {
+                if (delta < 0) {
+                    return;
+                }
+                next = node.addChild(key.charAt(i));
+            }
+            node = next;
+            path[i + 1] = node;
+        }
+
+        if (node.counts == null) {
+            node.counts = new int[KINDS.length];
+        }
+        int k = kind.ordinal();
+        node.counts[k] = Math.max(0, node.counts[k] + delta);
+        if (node.display == null || (delta > 0 && node.counts[k] == delta)) {
+            node.display = text.trim();
+        }
+
+        // Refresh subtree maxima bottom-up, dropping nodes that no longer lead to any term
+        for (int depth = key.length(); depth >= 0; depth--) {
+            Node current = path[depth];
+            current.recomputeBest();
+            if (depth > 0 && current.size == 0 && current.isEmpty()) {
+                path[depth - 1].removeChild(key.charAt(depth - 1));
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The trie plus what was counted for every product and farm, so a write replaces the earlier terms
+     * of the same id instead of adding to them
+     */
+    private static final class Terms {
+        private record ProductTerms(String name, String batchId) {
+        }
+
+        final Node root = new Node();
+        private final Map<String, ProductTerms> products = new HashMap<>();
+        private final Map<String, String> farms = new HashMap<>();
+
+        void putProduct(String id, String name, String batchId) {
+            ProductTerms current = new ProductTerms(name, batchId);
+            ProductTerms previous = products.put(id, current);
+            if (previous != null) {
+                if (previous.equals(current)) {
+                    return;
+                }
+                add(root, Kind.PRODUCT, previous.name(), -1);
+                add(root, Kind.BATCH, previous.batchId(), -1);
+            }
+            add(root, Kind.PRODUCT, name, 1);
+            add(root, Kind.BATCH, batchId, 1);
+        }
+
+        void removeProduct(String id) {
+            ProductTerms previous = products.remove(id);
+            if (previous != null) {
+                add(root, Kind.PRODUCT, previous.name(), -1);
+                add(root, Kind.BATCH, previous.batchId(), -1);
+            }
+        }
+
+        void putFarm(String id, String name) {
+            String previous = farms.put(id, name);
+            if (Objects.equals(previous, name)) {
+                return;
+            }
+            add(root, Kind.FARM, previous, -1);
+            add(root, Kind.FARM, name, 1);
+        }
+
+        void removeFarm(String id) {
+            add(root, Kind.FARM, farms.remove(id), -1);
+        }
+
+        void replaceFarms(Map<String, String> names) {
+            new ArrayList<>(farms.keySet()).stream().filter(id -> !names.containsKey(id)).forEach(this::removeFarm);
+            names.forEach(this::putFarm);
+        }
+    }
+
+    private record Candidate(int score, String path, Node node, Kind kind) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            int byPath = path.compareTo(other.path);
+            if (byPath != 0) {
+                return byPath;
+            }
+            // Expand a node before emitting terms at the same path, then order terms by kind
+            if (kind == null || other.kind == null) {
+                return kind == null ? (other.kind == null ? 0 : -1) : 1;
+            }
+            return kind.compareTo(other.kind);
+        }
+    }
+
+    /**
+     * Trie node with children in parallel sorted arrays to keep the footprint small
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int size;
+        // Term frequencies per kind, null if no term ends here
+        int[] counts;
+        String display;
+        // Highest frequency per kind in this subtree, including this node
+        final int[] best = new int[KINDS.length];
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(char key) {
+            int index = -Arrays.binarySearch(keys, 0, size, key) - 1;
+            if (size == keys.length) {
+                int capacity = Math.max(2, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(children, index, children, index + 1, size - index);
+            Node child = new Node();
+            keys[index] = key;
+            children[index] = child;
+            size++;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(children, index + 1, children, index, size - index - 1);
+            children[--size] = null;
+        }
+
+        boolean isEmpty() {
+            if (counts != null) {
+                for (int count : counts) {
+                    if (count > 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void recomputeBest() {
+            for (int k = 0; k < best.length; k++) {
+                int max = counts != null ? counts[k] : 0;
+                for (int i = 0; i < size; i++) {
+                    max = Math.max(max, children[i].best[k]);
+                }
+                best[k] = max;
+            }
+        }
+
+        int best(boolean[] allowed) {
+            int max = 0;
+            for (int k = 0; k < best.length; k++) {
+                if (allowed[k]) {
+                    max = Math.max(max, best[k]);
+                }
+            }
+            return max;
+        }
+    }
+}
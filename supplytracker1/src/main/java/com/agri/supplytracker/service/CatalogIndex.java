@@ -0,0 +1,28 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Product;
+
+import java.util.Collection;
+
+/**
+ * In-memory structure derived from the product catalog and rebuilt by {@link CatalogWarmupService}.
+ * Products passed to {@link #completeRebuild} carry the scalar fields and only their latest tracking stage.
+ * Between {@link #startRebuild} and completion, implementations must remember live writes so they are
+ * not overwritten by the older catalog state.
+ */
+public interface CatalogIndex {
+
+    void startRebuild();
+
+    void completeRebuild(Iterable<Product> catalog);
+
+    void abortRebuild();
+
+    /**
+     * Apply writes this node got no event for (other replicas, other database clients), found by the
+     * periodic catch-up: products modified since the previous one, shaped as for {@link #completeRebuild},
+     * and ids of products that no longer exist. The same product may be passed again, so this must be
+     * idempotent.
+     */
+    void catchUp(Collection<Product> changed, Collection<String> deletedIds);
+}
@@ -0,0 +1,236 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the product catalog: one record per product with its scalar fields and
+ * latest tracking stage. Files are written to a temp file and moved into place, and read back through a
+ * read-only memory mapping so records are decoded straight from the page cache.
+ *
+ * Layout: magic, version, createdAt | records | record count, CRC32 of everything before the trailer.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x43415453; // "CATS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int TRAILER_BYTES = 4 + 8;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long createdAt;
+    private final int count;
+    private final long sizeBytes;
+
+    private CatalogSnapshot(MappedByteBuffer buffer, long createdAt, int count, long sizeBytes) {
+        this.buffer = buffer;
+        this.createdAt = createdAt;
+        this.count = count;
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * Map and validate a snapshot file
+     */
+    public static CatalogSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            int bodyEnd = (int) size - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodyEnd));
+            if (crc.getValue() != buffer.getLong(bodyEnd + 4)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return new CatalogSnapshot(buffer, buffer.getLong(8), buffer.getInt(bodyEnd), size);
+        }
+    }
+
+    /**
+     * Write the products to path atomically, returns the number of bytes written
+     */
+    public static long write(Path path, long createdAt, Iterable<Product> products) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            int count = 0;
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                CrcStream body = new CrcStream(out, crc);
+                DataOutputStream data = new DataOutputStream(body);
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(createdAt);
+                for (Product product : products) {
+                    writeProduct(data, product);
+                    count++;
+                }
+                data.flush();
+                out.writeInt(count);
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Decode records lazily; each call starts a new pass over the mapping
+     */
+    public Iterable<Product> products() {
+        return () -> new Iterator<>() {
+            private final ByteBuffer records = buffer.duplicate().position(HEADER_BYTES).limit((int) sizeBytes - TRAILER_BYTES);
+
+            @Override
+            public boolean hasNext() {
+                return records.hasRemaining();
+            }
+
+            @Override
+            public Product next() {
+                if (!records.hasRemaining()) {
+                    throw new NoSuchElementException();
+                }
+                return readProduct(records);
+            }
+        };
+    }
+
+    private static void writeProduct(DataOutputStream out, Product product) throws IOException {
+        writeString(out, product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getType());
+        writeString(out, product.getBatchId());
+        writeString(out, product.getHarvestDate());
+        writeString(out, product.getOriginFarmId());
+        writeString(out, product.getOriginFarmName());
+        writeString(out, product.getCurrentLocation());
+        writeString(out, product.getDestination());
+        writeString(out, product.getStatus());
+        out.writeLong(toMillis(product.getLastModifiedAt()));
+        TrackingStage last = product.getTrackingHistory() != null && !product.getTrackingHistory().isEmpty()
+                ? product.getTrackingHistory().get(product.getTrackingHistory().size() - 1) : null;
+        out.writeBoolean(last != null);
+        if (last != null) {
+            writeString(out, last.getStage());
+            writeString(out, last.getLocation());
+            writeString(out, last.getHandler());
+            out.writeLong(toMillis(last.getTimestamp()));
+        }
+    }
+
+    private static Product readProduct(ByteBuffer in) {
+        Product product = new Product();
+        product.setId(readString(in));
+        product.setName(readString(in));
+        product.setType(readString(in));
+        product.setBatchId(readString(in));
+        product.setHarvestDate(readString(in));
+        product.setOriginFarmId(readString(in));
+        product.setOriginFarmName(readString(in));
+        product.setCurrentLocation(readString(in));
+        product.setDestination(readString(in));
+        product.setStatus(readString(in));
+        product.setLastModifiedAt(fromMillis(in.getLong()));
+        product.setTrackingHistory(new ArrayList<>(1));
+        if (in.get() != 0) {
+            TrackingStage stage = new TrackingStage();
+            stage.setStage(readString(in));
+            stage.setLocation(readString(in));
+            stage.setHandler(readString(in));
+            stage.setTimestamp(fromMillis(in.getLong()));
+            product.getTrackingHistory().add(stage);
+        }
+        return product;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : NULL_TIME;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis != NULL_TIME ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()) : null;
+    }
+
+    // Checksums the header and records as they are written
+    private static final class CrcStream extends FilterOutputStream {
+        private final CRC32 crc;
+
+        CrcStream(OutputStream out, CRC32 crc) {
+            super(out);
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Warms every {@link CatalogIndex} from a memory-mapped {@link CatalogSnapshot} instead of a full Mongo scan.
+ *
+ * On startup the snapshot is mapped, products modified since it was taken are read by lastModifiedAt,
+ * and ids deleted since are dropped by comparing against the _id index. The merged view is handed to
+ * each index. Without a usable snapshot one is written from a single Mongo scan first. The snapshot is
+ * refreshed periodically the same way, so steady-state refreshes only read changed products.
+ *
+ * Once warm, the indexes are kept in line with writes this node got no event for (other replicas, other
+ * database clients) by a catch-up every catalog.catchup.interval-ms: products whose lastModifiedAt is past
+ * the previous catch-up, less catalog.catchup.clock-skew-ms, are passed to {@link CatalogIndex#catchUp}.
+ * Every catalog.catchup.id-scan-interval-ms the _id index is compared with the ids known here to find
+ * deleted products and new ones written without a lastModifiedAt.
+ */
+@Service
+public class CatalogWarmupService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogWarmupService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final List<CatalogIndex> indexes;
+    private final Path path;
+    private final boolean enabled;
+    private final long catchUpMarginMillis;
+    private final long clockSkewMillis;
+    private final long idScanIntervalMillis;
+    private final Timer loadTimer;
+    private final Timer writeTimer;
+    private final Timer liveCatchUpTimer;
+    private final Counter liveCatchUpChanged;
+    private final Counter liveCatchUpDeleted;
+    private final AtomicLong snapshotBytes = new AtomicLong();
+    private final AtomicLong snapshotRecords = new AtomicLong();
+    private final AtomicLong catchUpLagMillis = new AtomicLong();
+    private final AtomicLong catchUpChanged = new AtomicLong();
+    private final AtomicLong warmupMillis = new AtomicLong();
+    private volatile String state = "IDLE";
+    // Live catch-up position, set once warm-up succeeds and only used under this service's lock
+    private long watermark;
+    private long lastIdScan;
+    private Set<String> knownIds = new HashSet<>();
+    private volatile long lastCatchUpAt;
+
+    public CatalogWarmupService(MongoTemplate mongoTemplate,
+                                List<CatalogIndex> indexes,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalog.snapshot.path:data/catalog.snapshot}") String path,
+                                @Value("${catalog.snapshot.enabled:true}") boolean enabled,
+                                @Value("${catalog.snapshot.catchup-margin-ms:60000}") long catchUpMarginMillis,
+                                @Value("${catalog.catchup.clock-skew-ms:5000}") long clockSkewMillis,
+                                @Value("${catalog.catchup.id-scan-interval-ms:60000}") long idScanIntervalMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexes = indexes;
+        this.path = Path.of(path);
+        this.enabled = enabled;
+        this.catchUpMarginMillis = catchUpMarginMillis;
+        this.clockSkewMillis = clockSkewMillis;
+        this.idScanIntervalMillis = idScanIntervalMillis;
+        this.loadTimer = Timer.builder("catalog.snapshot.load").register(meterRegistry);
+        this.writeTimer = Timer.builder("catalog.snapshot.write").register(meterRegistry);
+        Gauge.builder("catalog.snapshot.size.bytes", snapshotBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("catalog.snapshot.records", snapshotRecords, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("catalog.snapshot.catchup.lag.seconds", catchUpLagMillis, lag -> lag.get() / 1000.0).register(meterRegistry);
+        Gauge.builder("catalog.snapshot.catchup.changed", catchUpChanged, AtomicLong::get).register(meterRegistry);
+        this.liveCatchUpTimer = Timer.builder("catalog.catchup").register(meterRegistry);
+        this.liveCatchUpChanged = meterRegistry.counter("catalog.catchup.products", "kind", "changed");
+        this.liveCatchUpDeleted = meterRegistry.counter("catalog.catchup.products", "kind", "deleted");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void warmUp() {
+        long started = System.nanoTime();
+        // Everything modified before this is part of the catalog read below
+        long readFrom = System.currentTimeMillis();
+        state = "WARMING";
+        indexes.forEach(CatalogIndex::startRebuild);
+        try {
+            Set<String> ids = new HashSet<>();
+            Iterable<Product> catalog = recordingIds(enabled ? snapshotView() : mongoView(), ids);
+            for (CatalogIndex index : indexes) {
+                index.completeRebuild(catalog);
+            }
+            knownIds = ids;
+            watermark = readFrom;
+            lastIdScan = readFrom;
+            lastCatchUpAt = readFrom;
+            warmupMillis.set((System.nanoTime() - started) / 1_000_000);
+            state = "READY";
+            log.info("Catalog warm-up finished in {} ms", warmupMillis.get());
+        } catch (Exception e) {
+            indexes.forEach(CatalogIndex::abortRebuild);
+            state = "FAILED";
+            log.warn("Catalog warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Refresh the snapshot from the previous one plus products changed since
+     */
+    @Scheduled(initialDelayString = "${catalog.snapshot.interval-ms:900000}", fixedDelayString = "${catalog.snapshot.interval-ms:900000}")
+    public void scheduledWrite() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (Exception e) {
+            log.warn("Catalog snapshot write failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${catalog.catchup.interval-ms:5000}", fixedDelayString = "${catalog.catchup.interval-ms:5000}")
+    public void scheduledCatchUp() {
+        if (!"READY".equals(state)) {
+            return;
+        }
+        try {
+            catchUpIndexes();
+        } catch (Exception e) {
+            log.warn("Catalog catch-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Time of the last successful catch-up with writes from other nodes, 0 before warm-up finished
+     */
+    public long lastCatchUpAt() {
+        return "READY".equals(state) ? lastCatchUpAt : 0;
+    }
+
+    /**
+     * Feed the indexes products changed and deleted since the previous catch-up. A stale read racing a
+     * local write is corrected by the next catch-up, which reads the product again.
+     */
+    synchronized void catchUpIndexes() {
+        long started = System.nanoTime();
+        long now = System.currentTimeMillis();
+        Map<String, Product> changed = new LinkedHashMap<>();
+        mongoTemplate.find(catalogQuery(new Query(Criteria.where("lastModifiedAt").gte(toLocal(watermark - clockSkewMillis)))), Product.class)
+                .forEach(product -> changed.put(product.getId(), product));
+
+        Set<String> deleted = new HashSet<>();
+        if (now - lastIdScan >= idScanIntervalMillis) {
+            Set<String> live = liveIds();
+            for (String id : knownIds) {
+                if (!live.contains(id)) {
+                    deleted.add(id);
+                }
+            }
+            changed.keySet().retainAll(live);
+            List<String> unseen = live.stream().filter(id -> !knownIds.contains(id) && !changed.containsKey(id)).toList();
+            for (int from = 0; from < unseen.size(); from += 1000) {
+                List<String> chunk = unseen.subList(from, Math.min(unseen.size(), from + 1000));
+                mongoTemplate.find(catalogQuery(new Query(Criteria.where("_id").in(chunk))), Product.class)
+                        .forEach(product -> changed.put(product.getId(), product));
+            }
+            knownIds = live;
+            lastIdScan = now;
+        } else {
+            knownIds.addAll(changed.keySet());
+        }
+
+        // Called even when nothing changed, so indexes can tell they are current
+        for (CatalogIndex index : indexes) {
+            try {
+                index.catchUp(changed.values(), deleted);
+            } catch (Exception e) {
+                log.warn("Catch-up of {} failed: {}", index.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+        watermark = now;
+        lastCatchUpAt = now;
+        liveCatchUpChanged.increment(changed.size());
+        liveCatchUpDeleted.increment(deleted.size());
+        liveCatchUpTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized long writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        // Taken before reading so anything modified during the write is caught up next time
+        long createdAt = System.currentTimeMillis();
+        CatalogSnapshot previous = openExisting();
+        long bytes;
+        if (previous == null) {
+            try (Stream<Product> products = mongoTemplate.stream(catalogQuery(new Query()), Product.class)) {
+                bytes = CatalogSnapshot.write(path, createdAt, products::iterator);
+            }
+        } else {
+            bytes = CatalogSnapshot.write(path, createdAt, catchUp(previous));
+        }
+        writeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        snapshotBytes.set(bytes);
+        log.info("Catalog snapshot written: {} bytes", bytes);
+        return bytes;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("path", path.toAbsolutePath().toString());
+        status.put("sizeBytes", snapshotBytes.get());
+        status.put("records", snapshotRecords.get());
+        status.put("warmupMillis", warmupMillis.get());
+        status.put("catchUpLagSeconds", catchUpLagMillis.get() / 1000);
+        status.put("catchUpChanged", catchUpChanged.get());
+        status.put("lastCatchUpAt", lastCatchUpAt > 0 ? Instant.ofEpochMilli(lastCatchUpAt).toString() : null);
+        return status;
+    }
+
+    private Iterable<Product> snapshotView() throws IOException {
+        long started = System.nanoTime();
+        CatalogSnapshot snapshot = openExisting();
+        if (snapshot == null) {
+            writeSnapshot();
+            snapshot = CatalogSnapshot.open(path);
+        }
+        Iterable<Product> view = catchUp(snapshot);
+        loadTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        snapshotBytes.set(snapshot.sizeBytes());
+        snapshotRecords.set(snapshot.count());
+        catchUpLagMillis.set(Math.max(0, System.currentTimeMillis() - snapshot.createdAt()));
+        return view;
+    }
+
+    // Fallback when snapshots are disabled: each index streams its own pass over Mongo
+    private Iterable<Product> mongoView() {
+        return () -> {
+            Stream<Product> products = mongoTemplate.stream(catalogQuery(new Query()), Product.class);
+            return products.iterator();
+        };
+    }
+
+    /**
+     * Snapshot records overlaid with products modified since it was taken, minus deleted ones
+     */
+    private Iterable<Product> catchUp(CatalogSnapshot snapshot) {
+        LocalDateTime since = toLocal(snapshot.createdAt() - catchUpMarginMillis);
+        Map<String, Product> changed = new LinkedHashMap<>();
+        mongoTemplate.find(catalogQuery(new Query(Criteria.where("lastModifiedAt").gte(since))), Product.class)
+                .forEach(product -> changed.put(product.getId(), product));
+        catchUpChanged.set(changed.size());
+
+        Set<String> liveIds = liveIds();
+
+        return () -> new Iterator<>() {
+            private final Iterator<Product> records = snapshot.products().iterator();
+            private final Iterator<Product> updates = changed.values().iterator();
+            private Product next = advance();
+
+            private Product advance() {
+                while (records.hasNext()) {
+                    Product record = records.next();
+                    if (liveIds.contains(record.getId()) && !changed.containsKey(record.getId())) {
+                        return record;
+                    }
+                }
+                return updates.hasNext() ? updates.next() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Product next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Product current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private Set<String> liveIds() {
+        Set<String> liveIds = new HashSet<>();
+        Query idQuery = new Query();
+        idQuery.fields().include("_id");
+        try (Stream<Document> ids = mongoTemplate.stream(idQuery, Document.class, mongoTemplate.getCollectionName(Product.class))) {
+            ids.forEach(id -> liveIds.add(id.get("_id").toString()));
+        }
+        return liveIds;
+    }
+
+    // Every pass over the catalog adds its ids, so the live catch-up knows what the indexes were given
+    private static Iterable<Product> recordingIds(Iterable<Product> catalog, Set<String> ids) {
+        return () -> {
+            Iterator<Product> products = catalog.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return products.hasNext();
+                }
+
+                @Override
+                public Product next() {
+                    Product product = products.next();
+                    ids.add(product.getId());
+                    return product;
+                }
+            };
+        };
+    }
+
+    private static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private CatalogSnapshot openExisting() {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return CatalogSnapshot.open(path);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable catalog snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Query catalogQuery(Query query) {
+        query.fields()
+                .include("name", "type", "batchId", "harvestDate", "originFarmId", "originFarmName",
+                        "currentLocation", "destination", "status", "lastModifiedAt")
+                .slice("trackingHistory", -1);
+        return query;
+    }
+}
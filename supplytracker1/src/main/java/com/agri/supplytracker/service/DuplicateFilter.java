@@ -0,0 +1,365 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pre-check for writes that resend what is already stored: a scalable Bloom filter over product natural keys
+ * (name, type, batchId, harvestDate, originFarmId). A key the filter has never seen is certainly new and needs
+ * no existence query; only possible duplicates are confirmed against Mongo. A negative only ever skips this
+ * optional check, never a read whose result callers act on.
+ *
+ * The filter grows by adding layers, each twice the capacity and half the false-positive rate of the previous
+ * one, so the overall rate stays under duplicates.filter.false-positive-rate however large the catalog gets.
+ * Keys cannot be removed: deleted and changed products stay in the filter until the next rebuild and only cost
+ * a confirming lookup.
+ *
+ * The filter is loaded by {@link CatalogWarmupService} on startup and kept in sync from {@link ProductChangeEvent}s.
+ * Until the first rebuild finishes every key counts as a possible duplicate.
+ */
+@Service
+public class DuplicateFilter implements CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateFilter.class);
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final ProductRepository productRepository;
+    private final int initialCapacity;
+    private final double falsePositiveRate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ScalableBloomFilter filter;
+    private volatile boolean ready;
+    // Keys written while a rebuild is loading, added to the rebuilt filter
+    private List<String> pending;
+    private final Counter definitelyNew;
+    private final Counter possibleDuplicates;
+    private final Counter confirmedDuplicates;
+    private final Counter falsePositives;
+
+    public DuplicateFilter(ProductRepository productRepository, MeterRegistry meterRegistry,
+                           @Value("${duplicates.filter.initial-capacity:100000}") int initialCapacity,
+                           @Value("${duplicates.filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.productRepository = productRepository;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        this.definitelyNew = meterRegistry.counter("duplicate.filter.checks", "result", "new");
+        this.possibleDuplicates = meterRegistry.counter("duplicate.filter.checks", "result", "possible_duplicate");
+        this.confirmedDuplicates = meterRegistry.counter("duplicate.filter.confirmed", "result", "duplicate");
+        this.falsePositives = meterRegistry.counter("duplicate.filter.confirmed", "result", "false_positive");
+        // Existence queries skipped because the filter had never seen the key
+        FunctionCounter.builder("duplicate.filter.lookups.saved", definitelyNew, Counter::count).register(meterRegistry);
+        // Share of new keys the filter wrongly reported as possible duplicates
+        Gauge.builder("duplicate.filter.false.positive.rate", this, DuplicateFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("duplicate.filter.expected.false.positive.rate", this, DuplicateFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("duplicate.filter.keys", this, DuplicateFilter::size).register(meterRegistry);
+        Gauge.builder("duplicate.filter.bytes", this, DuplicateFilter::sizeBytes).register(meterRegistry);
+    }
+
+    @Override
+    public void startRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void completeRebuild(Iterable<Product> catalog) {
+        ScalableBloomFilter rebuilt = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        catalog.forEach(product -> keysOf(product).forEach(rebuilt::add));
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(rebuilt::add);
+            pending = null;
+            filter = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Duplicate filter rebuilt with {} keys in {} layers, {} bytes",
+                rebuilt.size(), rebuilt.layers.size(), rebuilt.sizeBytes());
+    }
+
+    @Override
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Deleted products keep their keys, like they do for local deletes
+    @Override
+    public void catchUp(Collection<Product> changed, Collection<String> deletedIds) {
+        List<String> keys = new ArrayList<>();
+        changed.forEach(product -> keys.addAll(keysOf(product)));
+        add(keys);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED -> add(keysOf(event.getProduct()));
+            case UPDATED -> add(keysOf(event.getCurrent()));
+            default -> { }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether a product with the same natural key is already stored. Only asks Mongo when the filter
+     * reports a possible duplicate.
+     */
+    public boolean isDuplicate(Product product) {
+        if (!mightContain(productKey(product))) {
+            return false;
+        }
+        boolean exists = productRepository.existsByNameAndTypeAndBatchIdAndHarvestDateAndOriginFarmId(
+                product.getName(), product.getType(), product.getBatchId(), product.getHarvestDate(),
+                product.getOriginFarmId());
+        confirmed(exists);
+        return exists;
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return filter.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean mightContain(String key) {
+        // Not counted: the filter was not consulted
+        if (!ready) {
+            return true;
+        }
+        boolean possible;
+        lock.readLock().lock();
+        try {
+            possible = filter.mightContain(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+        (possible ? possibleDuplicates : definitelyNew).increment();
+        return possible;
+    }
+
+    // Outcome of the database lookup that followed a possible duplicate
+    private void confirmed(boolean exists) {
+        if (ready) {
+            (exists ? confirmedDuplicates : falsePositives).increment();
+        }
+    }
+
+    private void add(List<String> keys) {
+        lock.writeLock().lock();
+        try {
+            keys.forEach(filter::add);
+            if (pending != null) {
+                pending.addAll(keys);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double observedFalsePositiveRate() {
+        double wrong = falsePositives.count();
+        double fresh = wrong + definitelyNew.count();
+        return fresh > 0 ? wrong / fresh : 0;
+    }
+
+    private double expectedFalsePositiveRate() {
+        lock.readLock().lock();
+        try {
+            return filter.expectedFalsePositiveRate();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long sizeBytes() {
+        lock.readLock().lock();
+        try {
+            return filter.sizeBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> keysOf(Product product) {
+        if (product == null) {
+            return List.of();
+        }
+        return List.of(productKey(product));
+    }
+
+    private static String productKey(Product product) {
+        return product.getName() + SEPARATOR + product.getType() + SEPARATOR + product.getBatchId()
+                + SEPARATOR + product.getHarvestDate() + SEPARATOR + product.getOriginFarmId();
+    }
+
+    /**
+     * Bloom filter that adds a layer when the newest one reaches its capacity (Almeida et al.). Layer i holds
+     * initialCapacity * 2^i keys at rate * (1 - 1/2) / 2^i, so the rates sum to at most rate.
+     * Not thread-safe.
+     */
+    static final class ScalableBloomFilter {
+
+        private static final double TIGHTENING = 0.5;
+
+        private final List<Layer> layers = new ArrayList<>();
+        private final int initialCapacity;
+        private final double falsePositiveRate;
+
+        ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+            this.initialCapacity = Math.max(1, initialCapacity);
+            this.falsePositiveRate = falsePositiveRate;
+            grow();
+        }
+
+        boolean mightContain(String key) {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L) | 1;
+            for (Layer layer : layers) {
+                if (layer.mightContain(hash1, hash2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(String key) {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L) | 1;
+            for (Layer layer : layers) {
+                if (layer.mightContain(hash1, hash2)) {
+                    return;
+                }
+            }
+            Layer current = layers.get(layers.size() - 1);
+            if (current.size >= current.capacity) {
+                current = grow();
+            }
+            current.add(hash1, hash2);
+        }
+
+        long size() {
+            return layers.stream().mapToLong(layer -> layer.size).sum();
+        }
+
+        long sizeBytes() {
+            return layers.stream().mapToLong(layer -> layer.bits.length * 8L).sum();
+        }
+
+        // Chance that a new key collides with any layer given how full the layers are
+        double expectedFalsePositiveRate() {
+            double none = 1;
+            for (Layer layer : layers) {
+                none *= 1 - layer.expectedFalsePositiveRate();
+            }
+            return 1 - none;
+        }
+
+        private Layer grow() {
+            int index = layers.size();
+            long capacity = (long) initialCapacity << Math.min(index, 20);
+            double rate = falsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, index);
+            Layer layer = new Layer(capacity, rate);
+            layers.add(layer);
+            return layer;
+        }
+
+        // FNV-1a over the characters, finished with the murmur3 mixer
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+
+    /**
+     * One fixed-size Bloom filter; bit positions come from two hashes (Kirsch-Mitzenmacher)
+     */
+    private static final class Layer {
+
+        private final long[] bits;
+        private final long bitCount;
+        private final int hashes;
+        private final long capacity;
+        private long size;
+
+        Layer(long capacity, double rate) {
+            double ln2 = Math.log(2);
+            long wanted = (long) Math.ceil(-capacity * Math.log(rate) / (ln2 * ln2));
+            this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (wanted + 63) / 64))];
+            this.bitCount = bits.length * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+            this.capacity = capacity;
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            size++;
+        }
+
+        double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * size / bitCount), hashes);
+        }
+    }
+}
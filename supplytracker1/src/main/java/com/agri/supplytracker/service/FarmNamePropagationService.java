@@ -0,0 +1,235 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.FarmChangeEvent;
+import com.agri.supplytracker.event.ProductChangePublisher;
+import com.agri.supplytracker.model.FarmRenameJob;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the denormalized Product.originFarmName in step with farm renames. A rename records a job in
+ * farm_rename_jobs and returns; a background worker then renames the farm's products in id order, a batch
+ * per updateMany with a pause in between, saving its position after each batch so a restart resumes where
+ * it stopped. Every renamed product is published as an UPDATED change, which evicts it from the product
+ * caches and reaches the SSE and GraphQL subscribers like any other edit.
+ *
+ * A job runs on one node at a time: the node that records or claims it holds a lease on the job document,
+ * renewed with every batch. RUNNING jobs whose lease expired (their node stopped) are claimed by whichever
+ * node sweeps first; a newer rename takes the job over from the node running the older one.
+ */
+@Service
+public class FarmNamePropagationService {
+
+    private static final Logger log = LoggerFactory.getLogger(FarmNamePropagationService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductRepository productRepository;
+    private final ProductChangePublisher changePublisher;
+    private final int batchSize;
+    private final long batchPauseMillis;
+    private final long leaseMillis;
+    // Lease holder id of this node
+    private final String owner = UUID.randomUUID().toString();
+    private final ExecutorService worker;
+    // Farms with a job submitted to the worker, so a burst of renames queues each farm once
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Counter renamedProducts;
+
+    public FarmNamePropagationService(MongoTemplate mongoTemplate, ProductRepository productRepository,
+                                      ProductChangePublisher changePublisher, MeterRegistry meterRegistry,
+                                      @Value("${farms.rename.batch-size:500}") int batchSize,
+                                      @Value("${farms.rename.batch-pause-ms:200}") long batchPauseMillis,
+                                      @Value("${farms.rename.lease-ms:120000}") long leaseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.productRepository = productRepository;
+        this.changePublisher = changePublisher;
+        this.batchSize = batchSize;
+        this.batchPauseMillis = batchPauseMillis;
+        this.leaseMillis = leaseMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "farm-rename-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.renamedProducts = Counter.builder("farm.rename.products").register(meterRegistry);
+    }
+
+    @EventListener
+    public void onFarmChange(FarmChangeEvent event) {
+        if (event.getType() != FarmChangeEvent.Type.UPDATED || event.getFarm() == null
+                || Objects.equals(event.getPreviousName(), event.getFarm().getName())) {
+            return;
+        }
+        // Replaces any earlier job for the farm; products are selected by name, so those already
+        // renamed to an intermediate name are picked up again
+        mongoTemplate.upsert(byFarm(event.getFarmId()), new Update()
+                .set("previousName", event.getPreviousName())
+                .set("newName", event.getFarm().getName())
+                .inc("generation", 1)
+                .set("status", FarmRenameJob.RUNNING)
+                .set("updated", 0L)
+                .set("requestedAt", LocalDateTime.now())
+                .set("owner", owner)
+                .set("leaseUntil", leaseUntil())
+                .unset("total")
+                .unset("lastProductId")
+                .unset("startedAt")
+                .unset("finishedAt")
+                .unset("error"), FarmRenameJob.class);
+        submit(event.getFarmId());
+    }
+
+    // Jobs interrupted by a shutdown continue from their saved position, on the first node to claim them
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${farms.rename.lease-ms:120000}", fixedDelayString = "${farms.rename.lease-ms:120000}")
+    public void resumeJobs() {
+        Query orphaned = new Query(Criteria.where("status").is(FarmRenameJob.RUNNING)
+                .orOperator(Criteria.where("leaseUntil").lt(LocalDateTime.now()), Criteria.where("leaseUntil").exists(false)));
+        FarmRenameJob job;
+        while ((job = mongoTemplate.findAndModify(orphaned, new Update().set("owner", owner).set("leaseUntil", leaseUntil()),
+                FindAndModifyOptions.options().returnNew(true), FarmRenameJob.class)) != null) {
+            log.info("Resuming rename job of farm {}", job.getId());
+            submit(job.getId());
+        }
+    }
+
+    /**
+     * Progress of the farm's latest rename, null when it was never renamed
+     */
+    public FarmRenameJob status(String farmId) {
+        return mongoTemplate.findById(farmId, FarmRenameJob.class);
+    }
+
+    /**
+     * Restart a failed job from its saved position; returns the job, null when there is none
+     */
+    public FarmRenameJob resume(String farmId) {
+        FarmRenameJob job = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(farmId).and("status").is(FarmRenameJob.FAILED)),
+                new Update().set("status", FarmRenameJob.RUNNING).set("owner", owner).set("leaseUntil", leaseUntil()).unset("error"),
+                FindAndModifyOptions.options().returnNew(true), FarmRenameJob.class);
+        if (job == null) {
+            return status(farmId);
+        }
+        submit(farmId);
+        return job;
+    }
+
+    // Interrupts the pause between batches; the job stays RUNNING and its lease is given up for another node
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void submit(String farmId) {
+        if (queued.add(farmId)) {
+            worker.execute(() -> run(farmId));
+        }
+    }
+
+    private void run(String farmId) {
+        while (true) {
+            try {
+                propagate(farmId);
+            } catch (InterruptedException e) {
+                queued.remove(farmId);
+                mongoTemplate.updateFirst(owned(farmId), new Update().set("leaseUntil", LocalDateTime.now()), FarmRenameJob.class);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Renaming products of farm {} failed", farmId, e);
+                mongoTemplate.updateFirst(owned(farmId).addCriteria(Criteria.where("status").is(FarmRenameJob.RUNNING)),
+                        new Update().set("status", FarmRenameJob.FAILED).set("error", String.valueOf(e.getMessage())),
+                        FarmRenameJob.class);
+            }
+            queued.remove(farmId);
+            // A rename that arrived after the last check found the farm still queued and did not submit it
+            FarmRenameJob job = status(farmId);
+            if (job == null || !isOwnRunningJob(job) || !queued.add(farmId)) {
+                return;
+            }
+        }
+    }
+
+    private void propagate(String farmId) throws InterruptedException {
+        FarmRenameJob job = status(farmId);
+        while (job != null && isOwnRunningJob(job)) {
+            String name = job.getNewName();
+            Query current = owned(farmId).addCriteria(Criteria.where("generation").is(job.getGeneration()));
+            if (job.getStartedAt() == null) {
+                long total = mongoTemplate.count(new Query(Criteria.where("originFarmId").is(farmId)
+                        .and("originFarmName").ne(name)), Product.class);
+                mongoTemplate.updateFirst(current, new Update().set("startedAt", LocalDateTime.now()).set("total", total),
+                        FarmRenameJob.class);
+            }
+
+            List<Product> batch = productRepository.findFarmProductsToRename(farmId, name, job.getLastProductId(), batchSize);
+            if (batch.isEmpty()) {
+                // Only completes when no newer rename replaced the job meanwhile
+                mongoTemplate.updateFirst(current, new Update()
+                        .set("status", FarmRenameJob.COMPLETED)
+                        .set("finishedAt", LocalDateTime.now()), FarmRenameJob.class);
+            } else {
+                long renamed = productRepository.renameOriginFarm(batch.stream().map(Product::getId).toList(), farmId, name);
+                for (Product product : batch) {
+                    Map<String, Object> previous = ProductChangePublisher.fieldsOf(product);
+                    product.setOriginFarmName(name);
+                    changePublisher.updated(previous, product);
+                }
+                renamedProducts.increment(renamed);
+                mongoTemplate.updateFirst(current, new Update()
+                        .set("lastProductId", batch.get(batch.size() - 1).getId())
+                        .set("leaseUntil", leaseUntil())
+                        .inc("updated", renamed), FarmRenameJob.class);
+                if (batchPauseMillis > 0) {
+                    Thread.sleep(batchPauseMillis);
+                }
+            }
+            job = status(farmId);
+        }
+    }
+
+    private boolean isOwnRunningJob(FarmRenameJob job) {
+        return FarmRenameJob.RUNNING.equals(job.getStatus()) && owner.equals(job.getOwner());
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusNanos(leaseMillis * 1_000_000);
+    }
+
+    // The farm's job while this node holds it
+    private Query owned(String farmId) {
+        return byFarm(farmId).addCriteria(Criteria.where("owner").is(owner));
+    }
+
+    private static Query byFarm(String farmId) {
+        return new Query(Criteria.where("_id").is(farmId));
+    }
+}
@@ -0,0 +1,237 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-farm dashboard figures: product counts by type and by status and the most recent harvests.
+ * Farms missing from the cache are computed together in one aggregation over the originFarmId index
+ * ($facet: counts grouped by farm, type and status, and the latest harvests per farm with $topN). Archived
+ * products are included through $unionWith, as a farm's delivered products still belong to its history.
+ * Results are cached in Redis under "farm-summary::farmId" and evicted by product writes that change
+ * what a farm's summary shows.
+ */
+@Service
+public class FarmSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(FarmSummaryService.class);
+
+    private static final String KEY_PREFIX = "farm-summary::";
+    private static final String UNKNOWN = "UNKNOWN";
+    // Product fields a summary is built from; updates touching none of them leave summaries valid
+    private static final Set<String> SUMMARY_FIELDS = Set.of("originFarmId", "type", "status", "name", "batchId", "harvestDate");
+
+    public record Harvest(String productId, String name, String type, String batchId, String harvestDate, String status) {
+    }
+
+    public record FarmSummary(String farmId, long totalProducts, Map<String, Long> byType, Map<String, Long> byStatus,
+                              List<Harvest> latestHarvests, String computedAt) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductArchiveService archiveService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int latestHarvests;
+    private final long ttlMillis;
+    // Bumped on every eviction so an aggregation that started before a write does not cache the old figures
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public FarmSummaryService(MongoTemplate mongoTemplate, ProductArchiveService archiveService,
+                              StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${farms.summary.latest-harvests:5}") int latestHarvests,
+                              @Value("${farms.summary.cache-ttl-ms:600000}") long ttlMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.archiveService = archiveService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.latestHarvests = latestHarvests;
+        this.ttlMillis = ttlMillis;
+        this.hits = Counter.builder("farm.summary.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("farm.summary.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    public FarmSummary summary(String farmId) {
+        return summaries(List.of(farmId)).get(farmId);
+    }
+
+    /**
+     * Summaries for the given farms in the given order; farms without products get an empty summary
+     */
+    public Map<String, FarmSummary> summaries(Collection<String> farmIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(farmIds));
+        Map<String, FarmSummary> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        List<String> cached = read(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            FarmSummary summary = parse(cached.get(i));
+            result.put(ids.get(i), summary);
+            if (summary == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        hits.increment(ids.size() - missing.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            Map<String, Long> started = new HashMap<>();
+            missing.forEach(id -> started.put(id, generation(id).get()));
+            Map<String, FarmSummary> computed = aggregate(missing);
+            computed.forEach(result::put);
+            write(computed, started);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        Set<String> farms = new HashSet<>();
+        switch (event.getType()) {
+            case CREATED -> farms.add(event.getCurrent().getOriginFarmId());
+            case DELETED -> farms.add((String) event.getPrevious().get("originFarmId"));
+            case UPDATED, TRACKING_APPENDED -> {
+                Map<String, Object> changes = event.getChanges();
+                if (changes != null && changes.keySet().stream().anyMatch(SUMMARY_FIELDS::contains)) {
+                    farms.add((String) event.getPrevious().get("originFarmId"));
+                    farms.add(event.getCurrent().getOriginFarmId());
+                }
+            }
+            case BATCH_TRACKING_APPENDED -> event.getAffectedProducts().forEach(member -> farms.add(member.getOriginFarmId()));
+        }
+        evict(farms);
+    }
+
+    private void evict(Set<String> farms) {
+        List<String> keys = new ArrayList<>(farms.size());
+        for (String farmId : farms) {
+            String id = keyPart(farmId);
+            generation(id).incrementAndGet();
+            keys.add(KEY_PREFIX + id);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("Failed to evict farm summaries: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, FarmSummary> aggregate(List<String> farmIds) {
+        AggregationOperation latest = context -> new Document("$group", new Document("_id", "$originFarmId")
+                .append("latest", new Document("$topN", new Document("n", latestHarvests)
+                        .append("sortBy", new Document("harvestDate", -1).append("_id", -1))
+                        .append("output", new Document("productId", "$_id")
+                                .append("name", "$name")
+                                .append("type", "$type")
+                                .append("batchId", "$batchId")
+                                .append("harvestDate", "$harvestDate")
+                                .append("status", "$status")))));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("originFarmId").in(farmIds)),
+                UnionWithOperation.unionWith(archiveService.collectionName())
+                        .pipeline(Aggregation.match(Criteria.where("originFarmId").in(farmIds))),
+                Aggregation.facet(Aggregation.group("originFarmId", "type", "status").count().as("count")).as("counts")
+                        .and(latest).as("harvests"));
+        Document facets = mongoTemplate.aggregate(aggregation, Product.class, Document.class).getUniqueMappedResult();
+
+        Map<String, Map<String, Long>> byType = new HashMap<>();
+        Map<String, Map<String, Long>> byStatus = new HashMap<>();
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, List<Harvest>> harvests = new HashMap<>();
+        if (facets != null) {
+            for (Document row : facets.getList("counts", Document.class)) {
+                Document id = (Document) row.get("_id");
+                String farmId = id.getString("originFarmId");
+                long count = ((Number) row.get("count")).longValue();
+                byType.computeIfAbsent(farmId, k -> new TreeMap<>()).merge(keyPart(id.getString("type")), count, Long::sum);
+                byStatus.computeIfAbsent(farmId, k -> new TreeMap<>()).merge(keyPart(id.getString("status")), count, Long::sum);
+                totals.merge(farmId, count, Long::sum);
+            }
+            for (Document row : facets.getList("harvests", Document.class)) {
+                List<Harvest> latestOfFarm = new ArrayList<>();
+                for (Document product : row.getList("latest", Document.class)) {
+                    latestOfFarm.add(new Harvest(String.valueOf(product.get("productId")), product.getString("name"),
+                            product.getString("type"), product.getString("batchId"),
+                            product.getString("harvestDate"), product.getString("status")));
+                }
+                harvests.put(row.getString("_id"), latestOfFarm);
+            }
+        }
+
+        String computedAt = LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME);
+        Map<String, FarmSummary> summaries = new LinkedHashMap<>();
+        for (String farmId : farmIds) {
+            summaries.put(farmId, new FarmSummary(farmId, totals.getOrDefault(farmId, 0L),
+                    byType.getOrDefault(farmId, Map.of()), byStatus.getOrDefault(farmId, Map.of()),
+                    harvests.getOrDefault(farmId, List.of()), computedAt));
+        }
+        return summaries;
+    }
+
+    private List<String> read(List<String> farmIds) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(farmIds.stream().map(id -> KEY_PREFIX + id).toList());
+            if (values != null) {
+                return values;
+            }
+        } catch (Exception e) {
+            // Redis outages are treated as misses
+        }
+        return Collections.nCopies(farmIds.size(), null);
+    }
+
+    private FarmSummary parse(String json) {
+        try {
+            return json != null ? objectMapper.readValue(json, FarmSummary.class) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void write(Map<String, FarmSummary> summaries, Map<String, Long> started) {
+        try {
+            for (Map.Entry<String, FarmSummary> entry : summaries.entrySet()) {
+                if (generation(entry.getKey()).get() == started.get(entry.getKey())) {
+                    redisTemplate.opsForValue().set(KEY_PREFIX + entry.getKey(),
+                            objectMapper.writeValueAsString(entry.getValue()), Duration.ofMillis(ttlMillis));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to cache farm summaries: {}", e.getMessage());
+        }
+    }
+
+    private AtomicLong generation(String farmId) {
+        return generations.computeIfAbsent(farmId, k -> new AtomicLong());
+    }
+
+    private static String keyPart(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value;
+    }
+}
@@ -0,0 +1,131 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Farm;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.FarmRepository;
+import com.agri.supplytracker.repository.ProductRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoPage;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proximity ("near") and area ("within") queries on product and farm coordinates. Both run against the
+ * 2dsphere indexes on position, so only documents in range are read; results are paged like
+ * GET /api/products (currentPage, totalItems, totalPages).
+ */
+@Service
+public class GeoSearchService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final double MAX_DISTANCE_KM = 20_000;
+
+    /**
+     * Latitude/longitude box; must span less than half the globe so the polygon is unambiguous
+     */
+    public record Area(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+    }
+
+    private final ProductRepository productRepository;
+    private final FarmRepository farmRepository;
+
+    public GeoSearchService(ProductRepository productRepository, FarmRepository farmRepository) {
+        this.productRepository = productRepository;
+        this.farmRepository = farmRepository;
+    }
+
+    public Map<String, Object> productsNear(double latitude, double longitude, double maxDistanceKm, int page, int size) {
+        checkPoint(latitude, longitude);
+        checkDistance(maxDistanceKm);
+        GeoPage<Product> results = productRepository.findByPositionNear(point(latitude, longitude),
+                new Distance(maxDistanceKm, Metrics.KILOMETERS), pageRequest(page, size, Sort.unsorted()));
+        return page(results, "results", withDistances(results.getContent(), "product"));
+    }
+
+    public Map<String, Object> productsWithin(Area area, int page, int size) {
+        Page<Product> results = productRepository.findByPositionWithin(polygon(area),
+                pageRequest(page, size, Sort.by("name")));
+        return page(results, "products", results.getContent());
+    }
+
+    public Map<String, Object> farmsNear(double latitude, double longitude, double maxDistanceKm, int page, int size) {
+        checkPoint(latitude, longitude);
+        checkDistance(maxDistanceKm);
+        GeoPage<Farm> results = farmRepository.findByPositionNear(point(latitude, longitude),
+                new Distance(maxDistanceKm, Metrics.KILOMETERS), pageRequest(page, size, Sort.unsorted()));
+        return page(results, "results", withDistances(results.getContent(), "farm"));
+    }
+
+    public Map<String, Object> farmsWithin(Area area, int page, int size) {
+        Page<Farm> results = farmRepository.findByPositionWithin(polygon(area), pageRequest(page, size, Sort.by("name")));
+        return page(results, "farms", results.getContent());
+    }
+
+    private static PageRequest pageRequest(int page, int size, Sort sort) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.of(page, size, sort);
+    }
+
+    private static Map<String, Object> page(Page<?> page, String key, List<?> content) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put(key, content);
+        response.put("currentPage", page.getNumber());
+        response.put("totalItems", page.getTotalElements());
+        response.put("totalPages", page.getTotalPages());
+        return response;
+    }
+
+    private static <T> List<Map<String, Object>> withDistances(List<GeoResult<T>> results, String key) {
+        return results.stream().map(result -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put(key, result.getContent());
+            entry.put("distanceKm", Math.round(result.getDistance().getValue() * 1000) / 1000.0);
+            return entry;
+        }).toList();
+    }
+
+    private static GeoJsonPoint point(double latitude, double longitude) {
+        return new GeoJsonPoint(longitude, latitude);
+    }
+
+    // GeoJSON rings are closed and list longitude before latitude
+    private static GeoJsonPolygon polygon(Area area) {
+        checkPoint(area.minLatitude(), area.minLongitude());
+        checkPoint(area.maxLatitude(), area.maxLongitude());
+        if (area.minLatitude() >= area.maxLatitude() || area.minLongitude() >= area.maxLongitude()
+                || area.maxLongitude() - area.minLongitude() >= 180) {
+            throw new IllegalArgumentException("Area must have min below max and span less than 180 degrees of longitude");
+        }
+        return new GeoJsonPolygon(
+                new Point(area.minLongitude(), area.minLatitude()),
+                new Point(area.maxLongitude(), area.minLatitude()),
+                new Point(area.maxLongitude(), area.maxLatitude()),
+                new Point(area.minLongitude(), area.maxLatitude()),
+                new Point(area.minLongitude(), area.minLatitude()));
+    }
+
+    private static void checkPoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+    }
+
+    private static void checkDistance(double maxDistanceKm) {
+        if (!(maxDistanceKm > 0 && maxDistanceKm <= MAX_DISTANCE_KM)) {
+            throw new IllegalArgumentException("maxDistanceKm must be greater than 0 and at most " + (int) MAX_DISTANCE_KM);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inventory counters kept in Redis hashes, one hash per location and one per origin farm,
+ * each mapping status -> product count. Updated with atomic HINCRBY on every status/location
+ * change and periodically reconciled against a Mongo aggregation.
+ */
+@Service
+public class InventoryCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryCounterService.class);
+
+    static final String LOCATION_PREFIX = "inventory:location:";
+    static final String FARM_PREFIX = "inventory:farm:";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final StringRedisTemplate redisTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final Counter driftCounter;
+
+    public InventoryCounterService(StringRedisTemplate redisTemplate, MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.driftCounter = meterRegistry.counter("inventory.reconcile.drift");
+    }
+
+    /**
+     * Count of products per status at a location, or for a single status when given
+     */
+    public Map<String, Long> countsForLocation(String location, String status) {
+        return counts(LOCATION_PREFIX + keyPart(location), status);
+    }
+
+    public Map<String, Long> countsForFarm(String farmId, String status) {
+        return counts(FARM_PREFIX + keyPart(farmId), status);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+
+        switch (event.getType()) {
+            case CREATED -> add(deltas, event.getCurrent().getCurrentLocation(), event.getCurrent().getOriginFarmId(),
+                    event.getCurrent().getStatus(), 1);
+            case DELETED -> add(deltas, (String) event.getPrevious().get("currentLocation"),
+                    (String) event.getPrevious().get("originFarmId"), (String) event.getPrevious().get("status"), -1);
+            case UPDATED, TRACKING_APPENDED -> {
+                add(deltas, (String) event.getPrevious().get("currentLocation"),
+                        (String) event.getPrevious().get("originFarmId"), (String) event.getPrevious().get("status"), -1);
+                add(deltas, event.getCurrent().getCurrentLocation(), event.getCurrent().getOriginFarmId(),
+                        event.getCurrent().getStatus(), 1);
+            }
+            case BATCH_TRACKING_APPENDED -> {
+                for (Product member : event.getAffectedProducts()) {
+                    add(deltas, member.getCurrentLocation(), member.getOriginFarmId(), member.getStatus(), -1);
+                    add(deltas, event.getAppendedStage().getLocation(), member.getOriginFarmId(),
+                            event.getAppendedStage().getStage(), 1);
+                }
+            }
+        }
+
+        try {
+            // One pipelined round trip for all increments of this change
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                deltas.forEach((key, fields) -> fields.forEach((status, delta) -> {
+                    if (delta != 0) {
+                        stringConnection.hIncrBy(key, status, delta);
+                    }
+                }));
+                return null;
+            });
+        } catch (Exception e) {
+            // Counters are corrected by the next reconciliation, never fail the write because of Redis
+            log.warn("Failed to update inventory counters for {}: {}", event.getType(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild expected counts from Mongo and overwrite any counter that drifted.
+     * Also seeds the counters on first start. A write racing the reconciliation can leave
+     * a counter off by one until the next run.
+     */
+    @Scheduled(initialDelayString = "${inventory.reconcile.initial-delay-ms:30000}",
+               fixedDelayString = "${inventory.reconcile.interval-ms:600000}")
+    public int reconcile() {
+        Map<String, Map<String, Long>> expected = new HashMap<>();
+        aggregate("currentLocation", LOCATION_PREFIX, expected);
+        aggregate("originFarmId", FARM_PREFIX, expected);
+
+        int drift = 0;
+        Set<String> existingKeys = new HashSet<>();
+        existingKeys.addAll(scanKeys(LOCATION_PREFIX + "*"));
+        existingKeys.addAll(scanKeys(FARM_PREFIX + "*"));
+
+        for (String key : existingKeys) {
+            Map<String, Long> wanted = expected.getOrDefault(key, Map.of());
+            for (String status : redisTemplate.<String, String>opsForHash().keys(key)) {
+                if (!wanted.containsKey(status)) {
+                    redisTemplate.opsForHash().delete(key, status);
+                    drift++;
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Long>> entry : expected.entrySet()) {
+            Map<String, Long> actual = existingKeys.contains(entry.getKey())
+                    ? toCounts(redisTemplate.<String, String>opsForHash().entries(entry.getKey()))
+                    : Map.of();
+            for (Map.Entry<String, Long> field : entry.getValue().entrySet()) {
+                if (!field.getValue().equals(actual.get(field.getKey()))) {
+                    redisTemplate.opsForHash().put(entry.getKey(), field.getKey(), String.valueOf(field.getValue()));
+                    drift++;
+                }
+            }
+        }
+
+        driftCounter.increment(drift);
+        if (drift > 0) {
+            log.info("Inventory reconciliation corrected {} counters", drift);
+        }
+        return drift;
+    }
+
+    private void aggregate(String field, String prefix, Map<String, Map<String, Long>> expected) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group(field, "status").count().as("count"));
+        for (Document row : mongoTemplate.aggregate(aggregation, Product.class, Document.class)) {
+            Document id = (Document) row.get("_id");
+            expected.computeIfAbsent(prefix + keyPart(id.getString(field)), k -> new HashMap<>())
+                    .merge(keyPart(id.getString("status")), ((Number) row.get("count")).longValue(), Long::sum);
+        }
+    }
+
+    private Map<String, Long> counts(String key, String status) {
+        if (status != null && !status.isBlank()) {
+            Object count = redisTemplate.opsForHash().get(key, status);
+            return Map.of(status, count != null ? Long.parseLong(count.toString()) : 0L);
+        }
+        return toCounts(redisTemplate.<String, String>opsForHash().entries(key));
+    }
+
+    private Set<String> scanKeys(String pattern) {
+        Set<String> keys = new HashSet<>();
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(500).build())) {
+            cursor.forEachRemaining(keys::add);
+        }
+        return keys;
+    }
+
+    private static Map<String, Long> toCounts(Map<String, String> entries) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        entries.forEach((status, count) -> {
+            long value = Long.parseLong(count);
+            if (value != 0) {
+                counts.put(status, value);
+            }
+        });
+        return counts;
+    }
+
+    private static void add(Map<String, Map<String, Long>> deltas, String location, String farmId, String status, long delta) {
+        deltas.computeIfAbsent(LOCATION_PREFIX + keyPart(location), k -> new HashMap<>())
+                .merge(keyPart(status), delta, Long::sum);
+        deltas.computeIfAbsent(FARM_PREFIX + keyPart(farmId), k -> new HashMap<>())
+                .merge(keyPart(status), delta, Long::sum);
+    }
+
+    private static String keyPart(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value;
+    }
+}
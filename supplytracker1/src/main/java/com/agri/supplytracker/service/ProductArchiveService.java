@@ -0,0 +1,305 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangePublisher;
+import com.agri.supplytracker.model.Product;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.CreateCollectionOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Hot/cold tiering for products. Products that reached a final status (products.archive.statuses) and have
+ * not been written for products.archive.min-age-days are moved from "products" into an archive collection
+ * created with a stronger block compressor. Moving happens in small batches with a pause between them, on
+ * its own thread, at most products.archive.max-per-run per run.
+ *
+ * Each batch is copied before it is deleted, so a crash leaves a product in both collections rather than in
+ * neither; the delete repeats the selection criteria, so products written in between stay hot and their
+ * copies are dropped again. Archived products leave the live catalog as DELETED changes flagged archived,
+ * and remain readable by id ({@link ProductLookupService}) and in recall traces ({@link RecallService}).
+ * The archive is read-only.
+ *
+ * Only one node archives at a time: a run first takes a lease in archive_runs, renews it after every batch
+ * and stops when it loses it.
+ */
+@Service
+public class ProductArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductArchiveService.class);
+
+    private static final String HOT_COLLECTION = "products";
+    private static final String LEASE_COLLECTION = "archive_runs";
+    private static final String LEASE_ID = "products";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductChangePublisher changePublisher;
+    private final boolean enabled;
+    private final String collection;
+    private final String compressor;
+    private final List<String> statuses;
+    private final Duration minAge;
+    private final int batchSize;
+    private final long batchPauseMillis;
+    private final int maxPerRun;
+    private final long leaseMillis;
+    // Lease holder id of this node
+    private final String owner = UUID.randomUUID().toString();
+    private final ExecutorService worker;
+    private final AtomicReference<String> state = new AtomicReference<>("IDLE");
+    private final AtomicLong lastRunArchived = new AtomicLong();
+    private volatile LocalDateTime lastRunStarted;
+    private volatile LocalDateTime lastRunFinished;
+    private final Counter archivedCounter;
+
+    public ProductArchiveService(MongoTemplate mongoTemplate, ProductChangePublisher changePublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${products.archive.enabled:true}") boolean enabled,
+                                 @Value("${products.archive.collection:products_archive}") String collection,
+                                 @Value("${products.archive.compressor:zstd}") String compressor,
+                                 @Value("${products.archive.statuses:DELIVERED,Retail}") List<String> statuses,
+                                 @Value("${products.archive.min-age-days:90}") long minAgeDays,
+                                 @Value("${products.archive.batch-size:200}") int batchSize,
+                                 @Value("${products.archive.batch-pause-ms:500}") long batchPauseMillis,
+                                 @Value("${products.archive.max-per-run:20000}") int maxPerRun,
+                                 @Value("${products.archive.lease-ms:600000}") long leaseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.changePublisher = changePublisher;
+        this.enabled = enabled;
+        this.collection = collection;
+        this.compressor = compressor;
+        this.statuses = statuses;
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.batchSize = batchSize;
+        this.batchPauseMillis = batchPauseMillis;
+        this.maxPerRun = maxPerRun;
+        this.leaseMillis = leaseMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-archiver-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.archivedCounter = Counter.builder("products.archived").register(meterRegistry);
+    }
+
+    // Compression can only be chosen when the collection is created
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureCollection() {
+        if (!mongoTemplate.collectionExists(collection)) {
+            try {
+                mongoTemplate.getDb().createCollection(collection, new CreateCollectionOptions().storageEngineOptions(
+                        new Document("wiredTiger", new Document("configString", "block_compressor=" + compressor))));
+                log.info("Created archive collection {} with {} compression", collection, compressor);
+            } catch (MongoCommandException e) {
+                // Created by another node meanwhile
+                if (!mongoTemplate.collectionExists(collection)) {
+                    throw e;
+                }
+            }
+        }
+        // Recall queries and farm summaries select archived products by farm and batch
+        mongoTemplate.indexOps(collection).ensureIndex(new Index()
+                .on("originFarmId", Sort.Direction.ASC)
+                .on("batchId", Sort.Direction.ASC));
+        mongoTemplate.indexOps(collection).ensureIndex(new Index().on("batchId", Sort.Direction.ASC));
+    }
+
+    @Scheduled(initialDelayString = "${products.archive.initial-delay-ms:300000}",
+               fixedDelayString = "${products.archive.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Start an archive run in the background; false when one is already running here or on another node
+     */
+    public boolean start() {
+        String previous = state.get();
+        if ("RUNNING".equals(previous) || !state.compareAndSet(previous, "RUNNING")) {
+            return false;
+        }
+        if (!acquireLease()) {
+            state.set(previous);
+            return false;
+        }
+        worker.execute(() -> {
+            lastRunStarted = LocalDateTime.now();
+            lastRunArchived.set(0);
+            try {
+                archive();
+                state.set("COMPLETED");
+            } catch (InterruptedException e) {
+                log.info("Archive run interrupted after {} products", lastRunArchived.get());
+                state.set("FAILED");
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Archiving products failed", e);
+                state.set("FAILED");
+            } finally {
+                releaseLease();
+                lastRunFinished = LocalDateTime.now();
+            }
+        });
+        return true;
+    }
+
+    // Interrupts the pause between batches; the next run picks up whatever is left
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.get());
+        status.put("enabled", enabled);
+        status.put("collection", collection);
+        status.put("statuses", statuses);
+        status.put("minAgeDays", minAge.toDays());
+        status.put("lastRunStarted", lastRunStarted);
+        status.put("lastRunFinished", lastRunFinished);
+        status.put("lastRunArchived", lastRunArchived.get());
+        status.put("archivedProducts", mongoTemplate.estimatedCount(collection));
+        return status;
+    }
+
+    /**
+     * Archived product by id, or null
+     */
+    public Product findById(String id) {
+        return mongoTemplate.findById(id, Product.class, collection);
+    }
+
+    public String collectionName() {
+        return collection;
+    }
+
+    /**
+     * Archived products matching a query written against the products collection
+     */
+    public List<Product> find(Query query) {
+        return mongoTemplate.find(query, Product.class, collection);
+    }
+
+    /**
+     * Cursor over archived products matching a query written against the products collection; close it when done
+     */
+    public Stream<Product> stream(Query query) {
+        return mongoTemplate.stream(query, Product.class, collection);
+    }
+
+    private void archive() throws InterruptedException {
+        // Stored dates are instants; a LocalDateTime is saved in the server's zone
+        Date cutoff = Date.from(Instant.now().minus(minAge));
+        Criteria eligible = Criteria.where("status").in(statuses).and("lastModifiedAt").lt(cutoff);
+        long archived = 0;
+        while (archived < maxPerRun) {
+            Query select = new Query(eligible).limit((int) Math.min(batchSize, maxPerRun - archived));
+            List<Document> batch = mongoTemplate.find(select, Document.class, HOT_COLLECTION);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+
+            Date archivedAt = new Date();
+            BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            for (Document document : batch) {
+                document.put("archivedAt", archivedAt);
+                copy.replaceOne(new Query(Criteria.where("_id").is(document.get("_id"))), document,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            copy.execute();
+
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(ids).andOperator(eligible)), HOT_COLLECTION);
+            // Products written since they were read no longer match and stay hot; drop their copies
+            Query stillHot = new Query(Criteria.where("_id").in(ids));
+            stillHot.fields().include("_id");
+            Set<Object> remaining = new HashSet<>();
+            mongoTemplate.find(stillHot, Document.class, HOT_COLLECTION).forEach(document -> remaining.add(document.get("_id")));
+            if (!remaining.isEmpty()) {
+                mongoTemplate.remove(new Query(Criteria.where("_id").in(remaining)), collection);
+            }
+
+            for (Document document : batch) {
+                if (!remaining.contains(document.get("_id"))) {
+                    changePublisher.archived(mongoTemplate.getConverter().read(Product.class, document));
+                    archived++;
+                }
+            }
+            archivedCounter.increment(batch.size() - remaining.size());
+            lastRunArchived.set(archived);
+            // A batch that moved nothing would be selected again
+            if (remaining.size() == batch.size()) {
+                break;
+            }
+            if (!acquireLease()) {
+                throw new IllegalStateException("Archive lease taken over by another node");
+            }
+            if (batchPauseMillis > 0) {
+                Thread.sleep(batchPauseMillis);
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} products to {}", archived, collection);
+        }
+    }
+
+    /**
+     * Take or renew the archive lease; false while another node holds it
+     */
+    private boolean acquireLease() {
+        Date now = new Date();
+        Query free = new Query(Criteria.where("_id").is(LEASE_ID)
+                .orOperator(Criteria.where("leaseUntil").lt(now), Criteria.where("owner").is(owner)));
+        try {
+            return mongoTemplate.findAndModify(free,
+                    new Update().set("owner", owner).set("leaseUntil", new Date(now.getTime() + leaseMillis)),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, LEASE_COLLECTION) != null;
+        } catch (DuplicateKeyException e) {
+            // The lease document exists and is held by another node
+            return false;
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(LEASE_ID).and("owner").is(owner)),
+                    new Update().set("leaseUntil", new Date()), LEASE_COLLECTION);
+        } catch (Exception e) {
+            // Expires on its own
+            log.warn("Failed to release the archive lease: {}", e.getMessage());
+        }
+    }
+}
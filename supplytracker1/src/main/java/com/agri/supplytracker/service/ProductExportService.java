@@ -0,0 +1,204 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes products, or one row per tracking stage, straight from a Mongo cursor to an output stream.
+ * Only the current row is held in memory, so the export size does not affect heap usage. Live products
+ * come first, then archived ones from a second cursor; a product caught mid-archive may appear twice.
+ */
+@Service
+public class ProductExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public record Filter(String type, String status, String batchId, String originFarmId,
+                         String harvestFrom, String harvestTo) {
+    }
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    private static final String[] PRODUCT_COLUMNS = {
+            "id", "name", "type", "batchId", "harvestDate", "originFarmId", "originFarmName",
+            "currentLocation", "destination", "status"
+    };
+    private static final String[] STAGE_COLUMNS = {"stage", "location", "handler", "timestamp", "notes"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductArchiveService archiveService;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(MongoTemplate mongoTemplate, ProductArchiveService archiveService,
+                                ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.archiveService = archiveService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Stream matching products to the writer, returns the number of rows written
+     */
+    public long export(Filter filter, Format format, boolean stages, Writer writer) throws IOException {
+        Query query = query(filter);
+        if (!stages) {
+            query.fields().exclude("trackingHistory");
+        }
+
+        if (format == Format.CSV) {
+            writeCsvRow(writer, stages ? concat(PRODUCT_COLUMNS, STAGE_COLUMNS) : PRODUCT_COLUMNS);
+        }
+        long rows;
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            rows = write(products, format, stages, writer);
+        }
+        try (Stream<Product> archived = archiveService.stream(query)) {
+            rows += write(archived, format, stages, writer);
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long write(Stream<Product> products, Format format, boolean stages, Writer writer) throws IOException {
+        long[] rows = {0};
+        try {
+            products.forEach(product -> {
+                try {
+                    if (!stages) {
+                        writeRow(writer, format, productRow(product));
+                        rows[0]++;
+                        return;
+                    }
+                    List<TrackingStage> history = product.getTrackingHistory();
+                    if (history == null || history.isEmpty()) {
+                        // Keep products without history so the export still lists every product
+                        writeRow(writer, format, stageRow(product, null));
+                        rows[0]++;
+                        return;
+                    }
+                    for (TrackingStage stage : history) {
+                        writeRow(writer, format, stageRow(product, stage));
+                        rows[0]++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private Query query(Filter filter) {
+        Criteria criteria = new Criteria();
+        if (hasText(filter.type())) {
+            criteria.and("type").is(filter.type());
+        }
+        if (hasText(filter.status())) {
+            criteria.and("status").is(filter.status());
+        }
+        if (hasText(filter.batchId())) {
+            criteria.and("batchId").is(filter.batchId());
+        }
+        if (hasText(filter.originFarmId())) {
+            criteria.and("originFarmId").is(filter.originFarmId());
+        }
+        // harvestDate is stored as YYYY-MM-DD, so string comparison orders by date
+        if (hasText(filter.harvestFrom()) || hasText(filter.harvestTo())) {
+            Criteria harvest = criteria.and("harvestDate");
+            if (hasText(filter.harvestFrom())) {
+                harvest.gte(filter.harvestFrom());
+            }
+            if (hasText(filter.harvestTo())) {
+                harvest.lte(filter.harvestTo());
+            }
+        }
+        Query query = new Query(criteria).with(Sort.by("_id"));
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+        return query;
+    }
+
+    private void writeRow(Writer writer, Format format, Map<String, Object> row) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        } else {
+            String[] values = new String[row.size()];
+            int i = 0;
+            for (Object value : row.values()) {
+                values[i++] = value != null ? value.toString() : "";
+            }
+            writeCsvRow(writer, values);
+        }
+    }
+
+    private static Map<String, Object> productRow(Product product) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", product.getId());
+        row.put("name", product.getName());
+        row.put("type", product.getType());
+        row.put("batchId", product.getBatchId());
+        row.put("harvestDate", product.getHarvestDate());
+        row.put("originFarmId", product.getOriginFarmId());
+        row.put("originFarmName", product.getOriginFarmName());
+        row.put("currentLocation", product.getCurrentLocation());
+        row.put("destination", product.getDestination());
+        row.put("status", product.getStatus());
+        return row;
+    }
+
+    private static Map<String, Object> stageRow(Product product, TrackingStage stage) {
+        Map<String, Object> row = productRow(product);
+        row.put("stage", stage != null ? stage.getStage() : null);
+        row.put("location", stage != null ? stage.getLocation() : null);
+        row.put("handler", stage != null ? stage.getHandler() : null);
+        row.put("timestamp", stage != null ? stage.getTimestamp() : null);
+        row.put("notes", stage != null ? stage.getNotes() : null);
+        return row;
+    }
+
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvEscape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
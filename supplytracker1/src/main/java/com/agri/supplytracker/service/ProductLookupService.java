@@ -0,0 +1,269 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.event.ProductEventMulticaster;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for single products in Redis under "products::id" keys (the "products" cache
+ * namespace). Entries are evicted per product from {@link ProductChangeEvent}s. Products missing from the
+ * live collection are looked up in the archive.
+ *
+ * Concurrent misses for one id on this node share a single Mongo load. Entries get a jittered TTL so
+ * products cached together do not expire together, and are refreshed early in the background with a
+ * probability that rises as expiry nears and with how long the last load took (XFetch), so hot
+ * products are normally reloaded before anyone misses them.
+ *
+ * Next to each entry a small version key lets conditional GETs be answered without reading the product,
+ * and a catalog-wide version counter changes on every product write.
+ */
+@Service
+public class ProductLookupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductLookupService.class);
+
+    private static final String KEY_PREFIX = "products::";
+    private static final String VERSION_PREFIX = "product-version::";
+    private static final String CATALOG_VERSION_KEY = "products:catalog-version";
+
+    // Stored entry: the product plus the logical expiry and load time used for early refresh
+    public record CachedProduct(Product product, long expiresAt, long loadMillis) {
+    }
+
+    private final ProductRepository repository;
+    private final ProductArchiveService archiveService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final double ttlJitter;
+    private final double earlyRefreshBeta;
+    private final Map<String, CompletableFuture<Product>> inFlight = new ConcurrentHashMap<>();
+    // Only held while a load for the id is in flight; bumped on every write so a load that started before
+    // the write does not cache the old value
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refresher;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter earlyRefreshes;
+    private final Timer loadTimer;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+
+    public ProductLookupService(ProductRepository repository, ProductArchiveService archiveService,
+                                StringRedisTemplate redisTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${products.cache.ttl-ms:600000}") long ttlMillis,
+                                @Value("${products.cache.ttl-jitter:0.1}") double ttlJitter,
+                                @Value("${products.cache.early-refresh-beta:1.0}") double earlyRefreshBeta) {
+        this.repository = repository;
+        this.archiveService = archiveService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+        this.ttlJitter = ttlJitter;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        // Early refreshes are optional, so a full queue just drops them
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "product-refresh-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        this.hits = meterRegistry.counter("product.lookup", "result", "hit");
+        this.misses = meterRegistry.counter("product.lookup", "result", "miss");
+        this.coalesced = meterRegistry.counter("product.lookup", "result", "coalesced");
+        this.earlyRefreshes = meterRegistry.counter("product.lookup", "result", "early_refresh");
+        this.loadTimer = Timer.builder("product.lookup.load").register(meterRegistry);
+        // End-to-end lookup latency as seen by callers, including the Redis round trip
+        this.hitTimer = Timer.builder("product.lookup.latency").tag("result", "hit").register(meterRegistry);
+        this.missTimer = Timer.builder("product.lookup.latency").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Product by id, or null if it does not exist
+     */
+    public Product findById(String id) {
+        long started = System.nanoTime();
+        CachedProduct cached = read(id);
+        if (cached != null) {
+            hits.increment();
+            if (shouldRefreshEarly(cached)) {
+                earlyRefreshes.increment();
+                // Only the first caller to trigger a refresh starts a load, the rest keep using the cached value
+                if (!inFlight.containsKey(id)) {
+                    refresher.execute(() -> {
+                        try {
+                            load(id);
+                        } catch (Exception e) {
+                            log.warn("Early refresh of product {} failed: {}", id, e.getMessage());
+                        }
+                    });
+                }
+            }
+            hitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return cached.product();
+        }
+
+        misses.increment();
+        try {
+            return load(id);
+        } finally {
+            missTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Version of the cached product without reading the product itself, null when not cached
+     */
+    public Long cachedVersion(String id) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_PREFIX + id);
+            return version != null ? Long.valueOf(version) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opaque value that changes whenever any product is written, null if unavailable
+     */
+    public String catalogVersion() {
+        try {
+            return redisTemplate.opsForValue().get(CATALOG_VERSION_KEY);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Inline so a client reading right after its write never gets the cached old value
+    @EventListener(id = ProductEventMulticaster.INLINE + "productLookupCache")
+    public void onProductChange(ProductChangeEvent event) {
+        List<String> ids = event.getType() == ProductChangeEvent.Type.BATCH_TRACKING_APPENDED
+                ? event.getAffectedProducts().stream().map(Product::getId).toList()
+                : List.of(event.getProductId());
+        for (String id : ids) {
+            // A load that starts after this point reads the write, so only loads already running need the bump
+            generations.computeIfPresent(id, (k, generation) -> {
+                generation.incrementAndGet();
+                return generation;
+            });
+        }
+        List<String> keys = new ArrayList<>(ids.size() * 2);
+        for (String id : ids) {
+            keys.add(KEY_PREFIX + id);
+            keys.add(VERSION_PREFIX + id);
+        }
+        try {
+            redisTemplate.delete(keys);
+            // Seed with the clock so a counter lost in Redis never repeats a value clients may hold
+            redisTemplate.opsForValue().setIfAbsent(CATALOG_VERSION_KEY, String.valueOf(System.currentTimeMillis() * 1000));
+            redisTemplate.opsForValue().increment(CATALOG_VERSION_KEY);
+        } catch (Exception e) {
+            log.warn("Failed to evict cached products: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        refresher.shutdown();
+        if (!refresher.awaitTermination(5, TimeUnit.SECONDS)) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private Product load(String id) {
+        CompletableFuture<Product> future = new CompletableFuture<>();
+        CompletableFuture<Product> existing = inFlight.putIfAbsent(id, future);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+
+        AtomicLong counter = generations.computeIfAbsent(id, k -> new AtomicLong());
+        try {
+            long generation = counter.get();
+            long started = System.nanoTime();
+            // Archived products are only looked up once they are missing from the live collection
+            Product product = repository.findById(id).orElseGet(() -> archiveService.findById(id));
+            long loadNanos = System.nanoTime() - started;
+            loadTimer.record(loadNanos, TimeUnit.NANOSECONDS);
+            // A counter that was dropped and recreated meanwhile may have missed a write, so it must be the same one
+            if (product != null && generations.get(id) == counter && counter.get() == generation) {
+                write(id, product, Math.max(1, loadNanos / 1_000_000));
+            }
+            future.complete(product);
+            return product;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, future);
+            if (!inFlight.containsKey(id)) {
+                generations.remove(id, counter);
+            }
+        }
+    }
+
+    private boolean shouldRefreshEarly(CachedProduct cached) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        double lead = -cached.loadMillis() * earlyRefreshBeta * Math.log(random == 0 ? Double.MIN_VALUE : random);
+        return System.currentTimeMillis() + lead >= cached.expiresAt();
+    }
+
+    private CachedProduct read(String id) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+            return json != null ? objectMapper.readValue(json, CachedProduct.class) : null;
+        } catch (Exception e) {
+            // Unreadable entries (e.g. written by the old @Cacheable) and Redis outages are treated as misses
+            return null;
+        }
+    }
+
+    private void write(String id, Product product, long loadMillis) {
+        double jitter = 1 + ttlJitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        long ttl = Math.max(1000, (long) (ttlMillis * jitter));
+        try {
+            String json = objectMapper.writeValueAsString(
+                    new CachedProduct(product, System.currentTimeMillis() + ttl, loadMillis));
+            redisTemplate.opsForValue().set(KEY_PREFIX + id, json, Duration.ofMillis(ttl));
+            if (product.getVersion() != null) {
+                redisTemplate.opsForValue().set(VERSION_PREFIX + id, String.valueOf(product.getVersion()), Duration.ofMillis(ttl));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to cache product {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static Product join(CompletableFuture<Product> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process trigram index over product name, type and batchId for case-insensitive substring search.
+ * Queries of three or more characters intersect the posting lists of their trigrams and verify the
+ * few remaining candidates; shorter queries scan the in-memory fields. Results are ranked by where
+ * the query matched (exact, prefix, word start, anywhere) and in which field.
+ *
+ * The index is loaded by {@link CatalogWarmupService} on startup and kept in sync from {@link ProductChangeEvent}s
+ * and, for writes made elsewhere, its periodic catch-up. Until the first rebuild finishes, or while the last
+ * catch-up is older than search.index.max-catchup-lag-ms, {@link #isReady()} is false and callers should
+ * fall back to Mongo.
+ */
+@Service
+public class ProductSearchIndex implements CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    public enum Field {
+        NAME(3, Product::getName), BATCH_ID(2, Product::getBatchId), TYPE(1, Product::getType);
+
+        private final int weight;
+        private final Function<Product, String> getter;
+
+        Field(int weight, Function<Product, String> getter) {
+            this.weight = weight;
+            this.getter = getter;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+    private volatile boolean ready;
+    private volatile long caughtUpAt;
+    private final long maxCatchUpLagMillis;
+    // Writes seen while a rebuild is loading, replayed onto the rebuilt segment; null value = delete
+    private Map<String, Product> pending;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.index.max-catchup-lag-ms:30000}") long maxCatchUpLagMillis) {
+        this.productRepository = productRepository;
+        this.maxCatchUpLagMillis = maxCatchUpLagMillis;
+    }
+
+    @Override
+    public void startRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load the catalog into a fresh segment, keeping writes that happened during the load
+     */
+    @Override
+    public void completeRebuild(Iterable<Product> catalog) {
+        Segment rebuilt = new Segment();
+        catalog.forEach(rebuilt::put);
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach((id, product) -> {
+                if (product == null) {
+                    rebuilt.remove(id);
+                } else {
+                    rebuilt.put(product);
+                }
+            });
+            pending = null;
+            segment = rebuilt;
+            caughtUpAt = System.currentTimeMillis();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index rebuilt with {} products", rebuilt.size());
+    }
+
+    @Override
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void catchUp(Collection<Product> changed, Collection<String> deletedIds) {
+        changed.forEach(product -> write(product.getId(), product));
+        deletedIds.forEach(id -> write(id, null));
+        caughtUpAt = System.currentTimeMillis();
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED -> write(event.getProductId(), event.getProduct());
+            case UPDATED -> {
+                Map<String, Object> changes = event.getChanges();
+                if (changes.containsKey("name") || changes.containsKey("type") || changes.containsKey("batchId")) {
+                    write(event.getProductId(), event.getCurrent());
+                }
+            }
+            case DELETED -> write(event.getProductId(), null);
+            default -> { }
+        }
+    }
+
+    public boolean isReady() {
+        return ready && System.currentTimeMillis() - caughtUpAt <= maxCatchUpLagMillis;
+    }
+
+    /**
+     * Ids of products whose given fields contain the query, best match first.
+     * A limit of 0 returns every match.
+     */
+    public List<String> search(String query, int limit, Field... fields) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        Field[] searched = fields.length == 0 ? FIELDS : fields;
+        lock.readLock().lock();
+        try {
+            return segment.search(needle, searched, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Products matching the query in rank order
+     */
+    public List<Product> findProducts(String query, int limit, Field... fields) {
+        List<String> ids = search(query, limit, fields);
+        Map<String, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(String id, Product product) {
+        lock.writeLock().lock();
+        try {
+            if (product == null) {
+                segment.remove(id);
+            } else {
+                segment.put(product);
+            }
+            if (pending != null) {
+                pending.put(id, product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Postings use ordinals assigned in insertion order, so every list stays sorted. Replaced and
+     * deleted products leave a tombstone; the segment compacts itself once tombstones dominate.
+     */
+    private static final class Segment {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        // Lower-cased field values per ordinal, null once tombstoned
+        private final List<String[]> values = new ArrayList<>();
+        private int tombstones;
+
+        int size() {
+            return ordinals.size();
+        }
+
+        void put(Product product) {
+            remove(product.getId());
+            String[] fieldValues = new String[FIELDS.length];
+            Set<Long> grams = new HashSet<>();
+            for (Field field : FIELDS) {
+                String value = field.getter.apply(product);
+                if (value != null) {
+                    fieldValues[field.ordinal()] = value.toLowerCase(Locale.ROOT);
+                    addTrigrams(fieldValues[field.ordinal()], grams);
+                }
+            }
+            int ordinal = ids.size();
+            ids.add(product.getId());
+            values.add(fieldValues);
+            ordinals.put(product.getId(), ordinal);
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(ordinal);
+            }
+        }
+
+        void remove(String id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            values.set(ordinal, null);
+            if (++tombstones > 1024 && tombstones > ordinals.size()) {
+                compact();
+            }
+        }
+
+        List<String> search(String needle, Field[] fields, int limit) {
+            List<Hit> hits = new ArrayList<>();
+            if (needle.length() < 3) {
+                for (int ordinal = 0; ordinal < values.size(); ordinal++) {
+                    collect(ordinal, needle, fields, hits);
+                }
+            } else {
+                for (int ordinal : candidates(needle)) {
+                    collect(ordinal, needle, fields, hits);
+                }
+            }
+            hits.sort(null);
+            Stream<String> ranked = hits.stream().map(hit -> ids.get(hit.ordinal));
+            return (limit > 0 ? ranked.limit(limit) : ranked).toList();
+        }
+
+        private int[] candidates(String needle) {
+            Set<Long> grams = new HashSet<>();
+            addTrigrams(needle, grams);
+            List<IntList> lists = new ArrayList<>(grams.size());
+            for (Long gram : grams) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            // Start from the rarest trigram so the intersection shrinks fastest
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int[] result = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+            int length = result.length;
+            for (int i = 1; i < lists.size() && length > 0; i++) {
+                length = intersect(result, length, lists.get(i));
+            }
+            return Arrays.copyOf(result, length);
+        }
+
+        private void collect(int ordinal, String needle, Field[] fields, List<Hit> hits) {
+            String[] fieldValues = values.get(ordinal);
+            if (fieldValues == null) {
+                return;
+            }
+            int best = 0;
+            for (Field field : fields) {
+                String value = fieldValues[field.ordinal()];
+                int at = value != null ? value.indexOf(needle) : -1;
+                if (at < 0) {
+                    continue;
+                }
+                int kind;
+                if (value.length() == needle.length()) {
+                    kind = 4;
+                } else if (at == 0) {
+                    kind = 3;
+                } else if (!Character.isLetterOrDigit(value.charAt(at - 1))) {
+                    kind = 2;
+                } else {
+                    kind = 1;
+                }
+                best = Math.max(best, kind * 4 + field.weight);
+            }
+            if (best > 0) {
+                String name = fieldValues[Field.NAME.ordinal()];
+                hits.add(new Hit(ordinal, best, name != null ? name : ""));
+            }
+        }
+
+        private void compact() {
+            List<String> liveIds = new ArrayList<>();
+            List<String[]> liveValues = new ArrayList<>();
+            for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+                if (values.get(ordinal) != null) {
+                    liveIds.add(ids.get(ordinal));
+                    liveValues.add(values.get(ordinal));
+                }
+            }
+            ordinals.clear();
+            postings.clear();
+            ids.clear();
+            values.clear();
+            tombstones = 0;
+            for (int i = 0; i < liveIds.size(); i++) {
+                String[] fieldValues = liveValues.get(i);
+                Set<Long> grams = new HashSet<>();
+                for (String value : fieldValues) {
+                    if (value != null) {
+                        addTrigrams(value, grams);
+                    }
+                }
+                ids.add(liveIds.get(i));
+                values.add(fieldValues);
+                ordinals.put(liveIds.get(i), i);
+                for (Long gram : grams) {
+                    postings.computeIfAbsent(gram, g -> new IntList()).add(i);
+                }
+            }
+        }
+
+        // Keeps the entries of target[0..length) that also occur in list, returns the new length
+        private static int intersect(int[] target, int length, IntList list) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < length && j < list.size; i++) {
+                int value = target[i];
+                while (j < list.size && list.values[j] < value) {
+                    j++;
+                }
+                if (j < list.size && list.values[j] == value) {
+                    target[kept++] = value;
+                }
+            }
+            return kept;
+        }
+
+        private static void addTrigrams(String value, Set<Long> grams) {
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+            }
+        }
+    }
+
+    private record Hit(int ordinal, int score, String name) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            if (name.length() != other.name.length()) {
+                return Integer.compare(name.length(), other.name.length());
+            }
+            return name.compareTo(other.name);
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Recall tracing: every product of a farm or batch, where it is now, and every location it passed through.
+ *
+ * The affected set comes from an indexed Mongo query on originFarmId/batchId (which sees every node's writes)
+ * plus matching products in the archive, so it is known before anything is written. The response is NDJSON:
+ * a summary line, one line per product with its path, and a final line listing every location touched by the
+ * recalled products. Paths are read by _id in chunks, so the first products are on the wire while later ones
+ * are still being read.
+ */
+@Service
+public class RecallService {
+
+    public static final int HISTORY_CHUNK_SIZE = 500;
+
+    /**
+     * Products selected for a recall and which of them were archived
+     */
+    public record Trace(String originFarmId, String batchId, List<Entry> products, Set<String> archivedIds) {
+    }
+
+    /**
+     * Where a product is now and who holds it (handler of the latest stage)
+     */
+    public record Entry(String productId, String name, String type, String batchId, String originFarmId,
+                        String originFarmName, String currentLocation, String status, String holder,
+                        LocalDateTime since) {
+
+        static Entry of(Product product) {
+            List<TrackingStage> history = product.getTrackingHistory();
+            TrackingStage latest = history == null || history.isEmpty() ? null : history.get(history.size() - 1);
+            return new Entry(product.getId(), product.getName(), product.getType(), product.getBatchId(),
+                    product.getOriginFarmId(), product.getOriginFarmName(), product.getCurrentLocation(),
+                    product.getStatus(), latest != null ? latest.getHandler() : null,
+                    latest != null ? latest.getTimestamp() : null);
+        }
+    }
+
+    private final ProductArchiveService archiveService;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public RecallService(ProductArchiveService archiveService, MongoTemplate mongoTemplate,
+                         ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.archiveService = archiveService;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Select the products to recall; at least one of originFarmId and batchId is required
+     */
+    public Trace select(String originFarmId, String batchId) {
+        String farm = blankToNull(originFarmId);
+        String batch = blankToNull(batchId);
+        if (farm == null && batch == null) {
+            throw new IllegalArgumentException("originFarmId or batchId is required");
+        }
+        Map<String, Entry> products = new LinkedHashMap<>();
+        mongoTemplate.find(selection(farm, batch), Product.class)
+                .forEach(product -> products.put(product.getId(), Entry.of(product)));
+        // Delivered products moved to the archive are part of a recall too; a product caught mid-move counts as live
+        Set<String> archivedIds = new HashSet<>();
+        for (Product product : archiveService.find(selection(farm, batch))) {
+            if (products.putIfAbsent(product.getId(), Entry.of(product)) == null) {
+                archivedIds.add(product.getId());
+            }
+        }
+        List<Entry> sorted = products.values().stream()
+                .sorted(Comparator.comparing((Entry entry) -> Objects.toString(entry.batchId(), ""))
+                        .thenComparing(Entry::productId))
+                .collect(Collectors.toList());
+        return new Trace(farm, batch, sorted, archivedIds);
+    }
+
+    // Scalar fields and the latest stage of a farm's or batch's products
+    private static Query selection(String farm, String batch) {
+        Criteria criteria = new Criteria();
+        if (farm != null) {
+            criteria.and("originFarmId").is(farm);
+        }
+        if (batch != null) {
+            criteria.and("batchId").is(batch);
+        }
+        Query query = new Query(criteria);
+        query.fields()
+                .include("name", "type", "batchId", "originFarmId", "originFarmName", "currentLocation", "status")
+                .slice("trackingHistory", -1);
+        return query;
+    }
+
+    /**
+     * Write the trace as NDJSON, flushing after the summary and after every chunk of products
+     */
+    public void write(Trace trace, boolean history, Writer writer) throws IOException {
+        long started = System.nanoTime();
+        writeLine(writer, summary(trace));
+        writer.flush();
+
+        Map<String, LocationVisits> locations = new LinkedHashMap<>();
+        List<Entry> products = trace.products();
+        for (int from = 0; from < products.size(); from += HISTORY_CHUNK_SIZE) {
+            List<Entry> chunk = products.subList(from, Math.min(products.size(), from + HISTORY_CHUNK_SIZE));
+            Map<String, List<TrackingStage>> paths = history ? paths(chunk, trace.archivedIds()) : Map.of();
+            for (Entry entry : chunk) {
+                List<TrackingStage> path = paths.getOrDefault(entry.productId(), List.of());
+                for (TrackingStage stage : path) {
+                    locations.computeIfAbsent(Objects.toString(stage.getLocation(), ""), LocationVisits::new)
+                            .visit(entry.productId(), stage.getTimestamp());
+                }
+                if (entry.currentLocation() != null) {
+                    locations.computeIfAbsent(entry.currentLocation(), LocationVisits::new)
+                            .visit(entry.productId(), entry.since());
+                }
+                writeLine(writer, productLine(entry, trace.archivedIds().contains(entry.productId()), history ? path : null));
+            }
+            writer.flush();
+        }
+
+        Map<String, Object> footer = new LinkedHashMap<>();
+        footer.put("kind", "locations");
+        footer.put("locations", locations.values().stream()
+                .sorted(Comparator.comparingInt((LocationVisits visits) -> visits.products.size()).reversed()
+                        .thenComparing(visits -> visits.location))
+                .map(LocationVisits::toMap)
+                .toList());
+        writeLine(writer, footer);
+        writer.flush();
+        Timer.builder("recall.trace")
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // Only the fields of each stage a recall needs, for every product of the chunk in one query per collection
+    private Map<String, List<TrackingStage>> paths(List<Entry> chunk, Set<String> archivedIds) {
+        List<String> live = new ArrayList<>();
+        List<String> archived = new ArrayList<>();
+        chunk.forEach(entry -> (archivedIds.contains(entry.productId()) ? archived : live).add(entry.productId()));
+        Map<String, List<TrackingStage>> paths = new HashMap<>();
+        if (!live.isEmpty()) {
+            mongoTemplate.find(pathQuery(live), Product.class).forEach(product -> paths.put(product.getId(), path(product)));
+        }
+        if (!archived.isEmpty()) {
+            archiveService.find(pathQuery(archived)).forEach(product -> paths.put(product.getId(), path(product)));
+        }
+        // Products archived after they were selected
+        List<String> moved = live.stream().filter(id -> !paths.containsKey(id)).toList();
+        if (!moved.isEmpty()) {
+            archiveService.find(pathQuery(moved)).forEach(product -> paths.put(product.getId(), path(product)));
+        }
+        return paths;
+    }
+
+    private static Query pathQuery(List<String> ids) {
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("trackingHistory.stage", "trackingHistory.location", "trackingHistory.handler",
+                "trackingHistory.timestamp");
+        return query;
+    }
+
+    private static List<TrackingStage> path(Product product) {
+        return product.getTrackingHistory() != null ? product.getTrackingHistory() : List.of();
+    }
+
+    private static Map<String, Object> summary(Trace trace) {
+        Map<String, Long> batches = new TreeMap<>();
+        Map<String, Long> currentLocations = new TreeMap<>();
+        for (Entry entry : trace.products()) {
+            batches.merge(Objects.toString(entry.batchId(), ""), 1L, Long::sum);
+            currentLocations.merge(Objects.toString(entry.currentLocation(), ""), 1L, Long::sum);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("kind", "summary");
+        summary.put("originFarmId", trace.originFarmId());
+        summary.put("batchId", trace.batchId());
+        summary.put("products", trace.products().size());
+        summary.put("batches", batches);
+        summary.put("currentLocations", currentLocations);
+        summary.put("archived", trace.archivedIds().size());
+        return summary;
+    }
+
+    private static Map<String, Object> productLine(Entry entry, boolean archived, List<TrackingStage> path) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("kind", "product");
+        line.put("id", entry.productId());
+        line.put("name", entry.name());
+        line.put("type", entry.type());
+        line.put("batchId", entry.batchId());
+        line.put("originFarmId", entry.originFarmId());
+        line.put("originFarmName", entry.originFarmName());
+        line.put("currentLocation", entry.currentLocation());
+        line.put("status", entry.status());
+        line.put("holder", entry.holder());
+        line.put("since", entry.since());
+        line.put("archived", archived);
+        if (path != null) {
+            line.put("path", path.stream().map(stage -> {
+                Map<String, Object> step = new LinkedHashMap<>();
+                step.put("stage", stage.getStage());
+                step.put("location", stage.getLocation());
+                step.put("handler", stage.getHandler());
+                step.put("timestamp", stage.getTimestamp());
+                return step;
+            }).toList());
+        }
+        return line;
+    }
+
+    private void writeLine(Writer writer, Map<String, Object> line) throws IOException {
+        writer.write(objectMapper.writeValueAsString(line));
+        writer.write('\n');
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static final class LocationVisits {
+        private final String location;
+        private final Set<String> products = new HashSet<>();
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+
+        LocationVisits(String location) {
+            this.location = location;
+        }
+
+        void visit(String productId, LocalDateTime at) {
+            products.add(productId);
+            if (at != null) {
+                firstSeen = firstSeen == null || at.isBefore(firstSeen) ? at : firstSeen;
+                lastSeen = lastSeen == null || at.isAfter(lastSeen) ? at : lastSeen;
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("location", location);
+            map.put("products", products.size());
+            map.put("firstSeen", firstSeen);
+            map.put("lastSeen", lastSeen);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.RefreshToken;
+import com.agri.supplytracker.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Issues refresh tokens and keeps their ids in Mongo, so a refresh token works only once (each refresh
+ * rotates it) and stops working at logout. Tokens issued before ids were stored carry none and are refused.
+ */
+@Service
+public class RefreshTokenService {
+
+    private final MongoTemplate mongoTemplate;
+    private final JwtUtil jwtUtil;
+
+    public RefreshTokenService(MongoTemplate mongoTemplate, JwtUtil jwtUtil) {
+        this.mongoTemplate = mongoTemplate;
+        this.jwtUtil = jwtUtil;
+    }
+
+    public String issue(String username) {
+        Date issuedAt = new Date();
+        Date expiresAt = new Date(issuedAt.getTime() + jwtUtil.getRefreshTokenExpirationMillis());
+        String id = UUID.randomUUID().toString();
+        mongoTemplate.insert(new RefreshToken(id, username, issuedAt, expiresAt));
+        return jwtUtil.generateRefreshToken(username, id, issuedAt, expiresAt);
+    }
+
+    /**
+     * The user a valid refresh token was issued to, or null. The token is used up either way.
+     */
+    public String consume(String refreshToken) {
+        Claims claims = refreshToken != null ? jwtUtil.parseRefreshToken(refreshToken) : null;
+        if (claims == null || claims.getId() == null) {
+            return null;
+        }
+        RefreshToken stored = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(claims.getId())
+                .and("username").is(claims.getSubject())), RefreshToken.class);
+        return stored != null ? stored.getUsername() : null;
+    }
+
+    public void revoke(String refreshToken) {
+        consume(refreshToken);
+    }
+}
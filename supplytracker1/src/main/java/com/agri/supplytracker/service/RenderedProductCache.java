@@ -0,0 +1,138 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-node LRU of product responses already rendered to JSON bytes (and gzip when worthwhile), keyed by
+ * product id and version. Serving a hit copies bytes to the response without building a Product.
+ * Entries are dropped on local writes; callers must look entries up with the current version (from
+ * {@link ProductLookupService#cachedVersion}) so writes on other nodes are never served stale.
+ */
+@Service
+public class RenderedProductCache {
+
+    public record Rendered(long version, byte[] json, byte[] gzip) {
+        int size() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean gzipEnabled;
+    private final int gzipMinBytes;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Rendered> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RenderedProductCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${products.render-cache.enabled:true}") boolean enabled,
+                                @Value("${products.render-cache.gzip:true}") boolean gzipEnabled,
+                                @Value("${products.render-cache.gzip-min-bytes:1024}") int gzipMinBytes,
+                                @Value("${products.render-cache.max-bytes:67108864}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinBytes = gzipMinBytes;
+        this.maxBytes = maxBytes;
+        this.hits = meterRegistry.counter("product.render.cache", "result", "hit");
+        this.misses = meterRegistry.counter("product.render.cache", "result", "miss");
+        Gauge.builder("product.render.cache.bytes", this, RenderedProductCache::totalBytes).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rendered bytes for exactly this version, or null
+     */
+    public synchronized Rendered get(String id, long version) {
+        Rendered rendered = entries.get(id);
+        if (rendered != null && rendered.version() == version) {
+            hits.increment();
+            return rendered;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Render the product, cache it under its version and return the bytes
+     */
+    public Rendered render(Product product) {
+        Rendered rendered = renderBytes(product);
+        if (product.getVersion() == null) {
+            return rendered;
+        }
+        synchronized (this) {
+            Rendered previous = entries.put(product.getId(), rendered);
+            totalBytes += rendered.size() - (previous != null ? previous.size() : 0);
+            Iterator<Map.Entry<String, Rendered>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().size();
+                eldest.remove();
+            }
+        }
+        return rendered;
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        List<String> ids = event.getType() == ProductChangeEvent.Type.BATCH_TRACKING_APPENDED
+                ? event.getAffectedProducts().stream().map(Product::getId).toList()
+                : List.of(event.getProductId());
+        synchronized (this) {
+            for (String id : ids) {
+                Rendered removed = entries.remove(id);
+                if (removed != null) {
+                    totalBytes -= removed.size();
+                }
+            }
+        }
+    }
+
+    synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private Rendered renderBytes(Product product) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(product);
+            byte[] gzip = gzipEnabled && json.length >= gzipMinBytes ? gzip(json) : null;
+            return new Rendered(product.getVersion() != null ? product.getVersion() : -1, json, gzip);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 3 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
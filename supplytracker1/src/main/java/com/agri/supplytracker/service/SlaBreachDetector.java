@@ -0,0 +1,282 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.event.SlaBreachAlert;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches tracking-stage appends and raises a {@link SlaBreachAlert} when a product stays in a stage
+ * longer than its dwell limit. Each product holds at most one timer in a {@link TimingWheel}, so an
+ * event costs O(1) regardless of how many products are in flight.
+ *
+ * Limits come from sla.dwell-limits as comma separated "Stage:duration" or "Type/Stage:duration"
+ * entries; a type specific limit wins over the stage default. Stages without a limit are not timed.
+ * Timers for products already in flight are re-armed by {@link CatalogWarmupService} on startup, and
+ * stages appended on other nodes re-arm them through its periodic catch-up. Before a breach is raised
+ * the product's latest stage is read back from Mongo, so a product that moved on (or was deleted) on
+ * another node before the catch-up reached this one is re-armed instead of reported.
+ */
+@Service
+public class SlaBreachDetector implements CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SlaBreachDetector.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Long> limits;
+    private final TimingWheel<Timer> wheel;
+    // Products currently past their limit, cleared once they move on
+    private final Map<String, SlaBreachAlert> activeBreaches = new ConcurrentHashMap<>();
+    // Stage each product was last tracked for, so a catch-up repeating it keeps the timer and breach
+    private final Map<String, String> trackedStages = new ConcurrentHashMap<>();
+    private final Counter breaches;
+    private final Counter staleTimers;
+    // Products written while warm-up is running, null outside warm-up
+    private volatile Set<String> warmingTouched;
+
+    public SlaBreachDetector(ApplicationEventPublisher eventPublisher,
+                             MongoTemplate mongoTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${sla.dwell-limits:}") String dwellLimits,
+                             @Value("${sla.tick-ms:1000}") long tickMillis) {
+        this.eventPublisher = eventPublisher;
+        this.mongoTemplate = mongoTemplate;
+        this.limits = parseLimits(dwellLimits);
+        this.wheel = new TimingWheel<>(tickMillis, 5, System.currentTimeMillis());
+        this.breaches = Counter.builder("sla.breaches").register(meterRegistry);
+        this.staleTimers = Counter.builder("sla.timers.stale").register(meterRegistry);
+        Gauge.builder("sla.timers", wheel, TimingWheel::size).register(meterRegistry);
+        Gauge.builder("sla.breaches.active", activeBreaches, Map::size).register(meterRegistry);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case TRACKING_APPENDED -> {
+                touch(event.getProductId());
+                track(event.getCurrent(), event.getAppendedStage());
+            }
+            case BATCH_TRACKING_APPENDED -> event.getAffectedProducts().forEach(member -> {
+                touch(member.getId());
+                track(member, event.getAppendedStage());
+            });
+            case DELETED -> {
+                touch(event.getProductId());
+                forget(event.getProductId());
+            }
+            default -> { }
+        }
+    }
+
+    @Override
+    public void startRebuild() {
+        warmingTouched = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Re-arm timers for products already in flight when the node starts. Products that saw a live
+     * event during warm-up already hold a newer timer and are skipped.
+     */
+    @Override
+    public void completeRebuild(Iterable<Product> catalog) {
+        Set<String> touched = warmingTouched;
+        int armed = 0;
+        if (!limits.isEmpty()) {
+            for (Product product : catalog) {
+                List<TrackingStage> history = product.getTrackingHistory();
+                if (history != null && !history.isEmpty() && !touched.contains(product.getId())
+                        && track(product, history.get(history.size() - 1))) {
+                    armed++;
+                }
+            }
+        }
+        warmingTouched = null;
+        log.info("SLA detector armed {} timers", armed);
+    }
+
+    @Override
+    public void abortRebuild() {
+        warmingTouched = null;
+    }
+
+    /**
+     * Re-arm products whose latest stage changed on another node; a stage already tracked here is left
+     * alone so its breach is not raised twice
+     */
+    @Override
+    public void catchUp(Collection<Product> changed, Collection<String> deletedIds) {
+        for (Product product : changed) {
+            List<TrackingStage> history = product.getTrackingHistory();
+            if (history != null && !history.isEmpty()) {
+                TrackingStage latest = history.get(history.size() - 1);
+                if (!stageKey(latest).equals(trackedStages.get(product.getId()))) {
+                    track(product, latest);
+                }
+            }
+        }
+        deletedIds.forEach(this::forget);
+    }
+
+    @Scheduled(fixedDelayString = "${sla.tick-ms:1000}")
+    public void tick() {
+        List<Timer> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<String, Product> current = currentStages(due);
+        String detectedAt = LocalDateTime.now().toString();
+        for (Timer timer : due) {
+            if (current != null) {
+                Product product = current.get(timer.productId());
+                List<TrackingStage> history = product != null ? product.getTrackingHistory() : null;
+                TrackingStage latest = history == null || history.isEmpty() ? null : history.get(history.size() - 1);
+                if (latest == null) {
+                    staleTimers.increment();
+                    forget(timer.productId());
+                    continue;
+                }
+                if (!stageKey(latest).equals(stageKey(timer.stage(), timer.enteredAt()))) {
+                    staleTimers.increment();
+                    track(product, latest);
+                    continue;
+                }
+            }
+            SlaBreachAlert alert = SlaBreachAlert.builder()
+                    .productId(timer.productId())
+                    .productName(timer.productName())
+                    .productType(timer.productType())
+                    .batchId(timer.batchId())
+                    .stage(timer.stage())
+                    .location(timer.location())
+                    .enteredAt(timer.enteredAt())
+                    .limitSeconds(timer.limitMillis() / 1000)
+                    .detectedAt(detectedAt)
+                    .build();
+            activeBreaches.put(timer.productId(), alert);
+            breaches.increment();
+            eventPublisher.publishEvent(alert);
+        }
+    }
+
+    /**
+     * Products currently over their dwell limit, longest overdue first
+     */
+    public List<SlaBreachAlert> activeBreaches(String stage, String type) {
+        return activeBreaches.values().stream()
+                .filter(alert -> stage == null || stage.equalsIgnoreCase(alert.getStage()))
+                .filter(alert -> type == null || type.equalsIgnoreCase(alert.getProductType()))
+                .sorted(Comparator.comparing(SlaBreachAlert::getEnteredAt, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    public int trackedProducts() {
+        return wheel.size();
+    }
+
+    public Map<String, Long> limits() {
+        return Collections.unmodifiableMap(limits);
+    }
+
+    private void touch(String productId) {
+        Set<String> touched = warmingTouched;
+        if (touched != null) {
+            touched.add(productId);
+        }
+    }
+
+    private void forget(String productId) {
+        wheel.cancel(productId);
+        activeBreaches.remove(productId);
+        trackedStages.remove(productId);
+    }
+
+    // Latest stage of each due product, null when Mongo cannot be read and the timers are trusted as they are
+    private Map<String, Product> currentStages(List<Timer> due) {
+        Query query = new Query(Criteria.where("_id").in(due.stream().map(Timer::productId).toList()));
+        query.fields().include("name", "type", "batchId").slice("trackingHistory", -1);
+        try {
+            Map<String, Product> current = new HashMap<>();
+            mongoTemplate.find(query, Product.class).forEach(product -> current.put(product.getId(), product));
+            return current;
+        } catch (Exception e) {
+            log.warn("Could not re-check {} due SLA timers: {}", due.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static String stageKey(TrackingStage stage) {
+        return stageKey(stage.getStage(), stage.getTimestamp());
+    }
+
+    // Mongo keeps millisecond timestamps, so a stage read back compares equal to the one from the event
+    private static String stageKey(String stage, LocalDateTime timestamp) {
+        return stage + "@" + (timestamp != null ? timestamp.truncatedTo(ChronoUnit.MILLIS) : null);
+    }
+
+    private boolean track(Product product, TrackingStage stage) {
+        activeBreaches.remove(product.getId());
+        trackedStages.put(product.getId(), stageKey(stage));
+        Long limit = limitFor(product.getType(), stage.getStage());
+        if (limit == null || stage.getTimestamp() == null) {
+            wheel.cancel(product.getId());
+            return false;
+        }
+        long enteredAt = stage.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        wheel.schedule(product.getId(), enteredAt + limit, new Timer(product.getId(), product.getName(),
+                product.getType(), product.getBatchId(), stage.getStage(), stage.getLocation(), stage.getTimestamp(), limit));
+        return true;
+    }
+
+    private Long limitFor(String type, String stage) {
+        if (stage == null) {
+            return null;
+        }
+        String key = stage.toLowerCase(Locale.ROOT);
+        if (type != null) {
+            Long typed = limits.get(type.toLowerCase(Locale.ROOT) + "/" + key);
+            if (typed != null) {
+                return typed;
+            }
+        }
+        return limits.get(key);
+    }
+
+    private static Map<String, Long> parseLimits(String spec) {
+        Map<String, Long> parsed = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = entry.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            parsed.put(key, DurationStyle.detectAndParse(entry.substring(colon + 1).trim()).toMillis());
+        }
+        return parsed;
+    }
+
+    private record Timer(String productId, String productName, String productType, String batchId,
+                         String stage, String location, LocalDateTime enteredAt, long limitMillis) {
+    }
+}
@@ -0,0 +1,406 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.config.MongoIndexConfig;
+import com.agri.supplytracker.event.ProductChangeEvent;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.StageRollup;
+import com.agri.supplytracker.model.TrackingStage;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Maintains hourly and daily {@link StageRollup}s incrementally as tracking stages are appended,
+ * and answers throughput and dwell-time queries from them instead of from trackingHistory.
+ */
+@Service
+public class StageAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(StageAnalyticsService.class);
+
+    private static final String COLLECTION = "stage_rollups";
+    private static final String REBUILD_COLLECTION = "stage_rollups_rebuild";
+    private static final int BULK_SIZE = 1000;
+
+    // Histogram resolution: 4 buckets per doubling, i.e. about 19% relative error on percentiles
+    private static final int BUCKETS_PER_DOUBLING = 4;
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    public enum GroupBy {
+        NONE, FARM, TYPE
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService backfillExecutor;
+    private final AtomicReference<String> backfillState = new AtomicReference<>("IDLE");
+    private final AtomicLong backfillProducts = new AtomicLong();
+    // Orders live updates against a running backfill, so each appended stage is counted once in its result
+    private final Object backfillLock = new Object();
+    private Rebuild rebuild;
+
+    public StageAnalyticsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        AtomicInteger threads = new AtomicInteger();
+        this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stage-rollup-backfill-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Runs on its own event lane, so rollup updates stay off the request path and in order
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        List<Appended> appended = new ArrayList<>();
+        if (event.getType() == ProductChangeEvent.Type.TRACKING_APPENDED) {
+            List<TrackingStage> history = event.getCurrent().getTrackingHistory();
+            TrackingStage previous = history.size() > 1 ? history.get(history.size() - 2) : null;
+            appended.add(new Appended(event.getCurrent(), previous, event.getAppendedStage(), history.size()));
+        } else if (event.getType() == ProductChangeEvent.Type.BATCH_TRACKING_APPENDED) {
+            // Batch members carry only their latest stage before the update
+            for (Product member : event.getAffectedProducts()) {
+                List<TrackingStage> history = member.getTrackingHistory();
+                int size = history != null ? history.size() : 0;
+                TrackingStage previous = size > 0 ? history.get(size - 1) : null;
+                appended.add(new Appended(member, previous, event.getAppendedStage(), size + 1));
+            }
+        }
+        if (appended.isEmpty()) {
+            return;
+        }
+
+        Map<String, Increment> increments = new HashMap<>();
+        appended.forEach(stage -> record(increments, stage.product(), stage.previous(), stage.stage()));
+        // A backfill swaps its collection in under the same lock, so it sees either none or all of this update
+        synchronized (backfillLock) {
+            try {
+                apply(increments.values(), COLLECTION);
+            } catch (Exception e) {
+                log.warn("Failed to update stage rollups: {}", e.getMessage());
+            }
+            if (rebuild != null) {
+                appended.forEach(rebuild::offer);
+            }
+        }
+    }
+
+    /**
+     * Products entering each stage per bucket
+     */
+    public List<Map<String, Object>> throughput(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                                String stage, String farmId, String type, GroupBy groupBy) {
+        Map<List<Object>, Long> arrivals = new TreeMap<>(Comparator.comparing(Object::toString));
+        for (StageRollup rollup : find(granularity, from, to, stage, farmId, type)) {
+            if (rollup.getArrivals() > 0) {
+                List<Object> key = List.of(rollup.getBucketStart(), rollup.getStage(), dimension(rollup, groupBy));
+                arrivals.merge(key, rollup.getArrivals(), Long::sum);
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        arrivals.forEach((key, count) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("bucketStart", key.get(0));
+            row.put("stage", key.get(1));
+            putDimension(row, groupBy, (String) key.get(2));
+            row.put("arrivals", count);
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    /**
+     * Dwell time per stage (count, average, p50, p95 in seconds) over the whole range
+     */
+    public List<Map<String, Object>> dwellTimes(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                                String stage, String farmId, String type, GroupBy groupBy) {
+        Map<List<String>, StageRollup> merged = new TreeMap<>(Comparator.comparing(Object::toString));
+        for (StageRollup rollup : find(granularity, from, to, stage, farmId, type)) {
+            if (rollup.getDwellSamples() == 0) {
+                continue;
+            }
+            StageRollup total = merged.computeIfAbsent(List.of(rollup.getStage(), dimension(rollup, groupBy)),
+                    key -> new StageRollup());
+            total.setDwellSamples(total.getDwellSamples() + rollup.getDwellSamples());
+            total.setDwellTotalSeconds(total.getDwellTotalSeconds() + rollup.getDwellTotalSeconds());
+            rollup.getDwellHistogram().forEach((bucket, count) -> total.getDwellHistogram().merge(bucket, count, Long::sum));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        merged.forEach((key, total) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("stage", key.get(0));
+            putDimension(row, groupBy, key.get(1));
+            row.put("samples", total.getDwellSamples());
+            row.put("avgSeconds", total.getDwellTotalSeconds() / total.getDwellSamples());
+            row.put("p50Seconds", percentile(total.getDwellHistogram(), total.getDwellSamples(), 0.50));
+            row.put("p95Seconds", percentile(total.getDwellHistogram(), total.getDwellSamples(), 0.95));
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    /**
+     * Rebuild all rollups from trackingHistory into a side collection, then swap it in. Stages appended on
+     * this node while the rebuild is running are added to the rebuilt rollups unless the rebuild already
+     * read them.
+     */
+    public synchronized boolean startBackfill() {
+        if ("RUNNING".equals(backfillState.get())) {
+            return false;
+        }
+        backfillState.set("RUNNING");
+        backfillProducts.set(0);
+        synchronized (backfillLock) {
+            rebuild = new Rebuild();
+        }
+        backfillExecutor.submit(() -> {
+            try {
+                backfill();
+                backfillState.set("COMPLETED");
+            } catch (Exception e) {
+                log.error("Stage rollup backfill failed", e);
+                backfillState.set("FAILED");
+            } finally {
+                synchronized (backfillLock) {
+                    rebuild = null;
+                }
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> backfillStatus() {
+        return Map.of("state", backfillState.get(), "productsProcessed", backfillProducts.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    private void backfill() {
+        if (mongoTemplate.collectionExists(REBUILD_COLLECTION)) {
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+        }
+
+        Query query = new Query();
+        query.fields().include("type", "originFarmId", "trackingHistory");
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> {
+                synchronized (backfillLock) {
+                    rebuild.read(product);
+                }
+                backfillProducts.incrementAndGet();
+            });
+        }
+
+        // Live updates are blocked until the rebuilt rollups are in place, so none of them gets lost in the swap
+        synchronized (backfillLock) {
+            Map<String, Increment> increments = rebuild.finish();
+            apply(increments.values(), REBUILD_COLLECTION);
+            if (mongoTemplate.collectionExists(REBUILD_COLLECTION)) {
+                mongoTemplate.indexOps(REBUILD_COLLECTION).ensureIndex(MongoIndexConfig.stageRollupIndex());
+                mongoTemplate.getCollection(REBUILD_COLLECTION).renameCollection(
+                        new MongoNamespace(mongoTemplate.getDb().getName(), COLLECTION),
+                        new RenameCollectionOptions().dropTarget(true));
+            } else {
+                mongoTemplate.dropCollection(COLLECTION);
+            }
+            log.info("Rebuilt {} stage rollups from {} products", increments.size(), backfillProducts.get());
+        }
+    }
+
+    private List<StageRollup> find(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                   String stage, String farmId, String type) {
+        Criteria criteria = Criteria.where("granularity").is(granularity.name())
+                .and("bucketStart").gte(from).lt(to);
+        if (stage != null && !stage.isBlank()) criteria.and("stage").is(stage);
+        if (farmId != null && !farmId.isBlank()) criteria.and("originFarmId").is(farmId);
+        if (type != null && !type.isBlank()) criteria.and("productType").is(type);
+        return mongoTemplate.find(new Query(criteria), StageRollup.class, COLLECTION);
+    }
+
+    private static void record(Map<String, Increment> increments, Product product, TrackingStage previous, TrackingStage next) {
+        if (next.getTimestamp() == null) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            increment(increments, granularity, next.getTimestamp(), next.getStage(), product).arrivals++;
+
+            if (previous != null && previous.getTimestamp() != null) {
+                long seconds = Math.max(0, ChronoUnit.SECONDS.between(previous.getTimestamp(), next.getTimestamp()));
+                Increment dwell = increment(increments, granularity, next.getTimestamp(), previous.getStage(), product);
+                dwell.dwellSamples++;
+                dwell.dwellTotalSeconds += seconds;
+                dwell.histogram.merge(String.valueOf(histogramBucket(seconds)), 1L, Long::sum);
+            }
+        }
+    }
+
+    private static Increment increment(Map<String, Increment> increments, Granularity granularity, LocalDateTime timestamp,
+                                       String stage, Product product) {
+        LocalDateTime bucketStart = timestamp.truncatedTo(granularity.unit);
+        String id = String.join("|", granularity.name(), bucketStart.toString(), String.valueOf(stage),
+                String.valueOf(product.getOriginFarmId()), String.valueOf(product.getType()));
+        return increments.computeIfAbsent(id, key -> new Increment(key, granularity, bucketStart, stage,
+                product.getOriginFarmId(), product.getType()));
+    }
+
+    private void apply(Collection<Increment> increments, String collection) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StageRollup.class, collection);
+        int pending = 0;
+        for (Increment increment : increments) {
+            Update update = new Update()
+                    .setOnInsert("granularity", increment.granularity.name())
+                    .setOnInsert("bucketStart", increment.bucketStart)
+                    .setOnInsert("stage", increment.stage)
+                    .setOnInsert("originFarmId", increment.originFarmId)
+                    .setOnInsert("productType", increment.productType)
+                    .inc("arrivals", increment.arrivals)
+                    .inc("dwellSamples", increment.dwellSamples)
+                    .inc("dwellTotalSeconds", increment.dwellTotalSeconds);
+            increment.histogram.forEach((bucket, count) -> update.inc("dwellHistogram." + bucket, count));
+            bulk.upsert(new Query(Criteria.where("_id").is(increment.id)), update);
+
+            if (++pending == BULK_SIZE) {
+                bulk.execute();
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StageRollup.class, collection);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+    }
+
+    static int histogramBucket(long seconds) {
+        return (int) Math.floor(BUCKETS_PER_DOUBLING * (Math.log(seconds + 1) / Math.log(2)));
+    }
+
+    // Upper bound (in seconds) of the bucket containing the given quantile
+    static long percentile(Map<String, Long> histogram, long samples, double quantile) {
+        long rank = (long) Math.ceil(quantile * samples);
+        long seen = 0;
+        SortedMap<Integer, Long> buckets = new TreeMap<>();
+        histogram.forEach((bucket, count) -> buckets.put(Integer.parseInt(bucket), count));
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return (long) Math.pow(2, (bucket.getKey() + 1) / (double) BUCKETS_PER_DOUBLING) - 1;
+            }
+        }
+        return 0;
+    }
+
+    private static String dimension(StageRollup rollup, GroupBy groupBy) {
+        return switch (groupBy) {
+            case FARM -> String.valueOf(rollup.getOriginFarmId());
+            case TYPE -> String.valueOf(rollup.getProductType());
+            case NONE -> "";
+        };
+    }
+
+    private static void putDimension(Map<String, Object> row, GroupBy groupBy, String value) {
+        if (groupBy == GroupBy.FARM) row.put("originFarmId", value);
+        if (groupBy == GroupBy.TYPE) row.put("productType", value);
+    }
+
+    // A stage appended by a live update; position is its 1-based index in the product's trackingHistory
+    private record Appended(Product product, TrackingStage previous, TrackingStage stage, int position) {
+    }
+
+    /**
+     * Rollups of a running backfill. A live stage is added unless the product was read with the stage already
+     * in its history; stages of products the cursor has not reached yet wait until it does, since the read
+     * may come from a cursor batch fetched before the stage was written.
+     */
+    private static class Rebuild {
+        final Map<String, Increment> increments = new HashMap<>();
+        // History length of every product as the backfill read it
+        final Map<String, Integer> readSizes = new HashMap<>();
+        final Map<String, List<Appended>> waiting = new HashMap<>();
+
+        void read(Product product) {
+            List<TrackingStage> history = product.getTrackingHistory() != null ? product.getTrackingHistory() : List.of();
+            TrackingStage previous = null;
+            for (TrackingStage stage : history) {
+                record(increments, product, previous, stage);
+                previous = stage;
+            }
+            readSizes.put(product.getId(), history.size());
+            List<Appended> stages = waiting.remove(product.getId());
+            if (stages != null) {
+                stages.forEach(this::offer);
+            }
+        }
+
+        void offer(Appended appended) {
+            Integer read = readSizes.get(appended.product().getId());
+            if (read == null) {
+                waiting.computeIfAbsent(appended.product().getId(), id -> new ArrayList<>()).add(appended);
+            } else if (appended.position() > read) {
+                record(increments, appended.product(), appended.previous(), appended.stage());
+            }
+        }
+
+        // Products the cursor never returned (created after it started) only have their live stages
+        Map<String, Increment> finish() {
+            waiting.values().forEach(stages -> stages.forEach(appended ->
+                    record(increments, appended.product(), appended.previous(), appended.stage())));
+            waiting.clear();
+            return increments;
+        }
+    }
+
+    private static class Increment {
+        final String id;
+        final Granularity granularity;
+        final LocalDateTime bucketStart;
+        final String stage;
+        final String originFarmId;
+        final String productType;
+        long arrivals;
+        long dwellSamples;
+        long dwellTotalSeconds;
+        final Map<String, Long> histogram = new HashMap<>();
+
+        Increment(String id, Granularity granularity, LocalDateTime bucketStart, String stage,
+                  String originFarmId, String productType) {
+            this.id = id;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.stage = stage;
+            this.originFarmId = originFarmId;
+            this.productType = productType;
+        }
+    }
+}
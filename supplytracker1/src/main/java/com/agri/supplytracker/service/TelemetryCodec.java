@@ -0,0 +1,161 @@
+package com.agri.supplytracker.service;
+
+import java.util.Arrays;
+
+/**
+ * Compression for telemetry chunks. Timestamps are stored as delta-of-delta zigzag varints, so readings
+ * at a steady interval take one byte each. Values are rounded to two decimals and stored as zigzag varint
+ * deltas of the present values, preceded by a bitmap of which readings have a value.
+ */
+final class TelemetryCodec {
+
+    static final double SCALE = 100.0;
+
+    private TelemetryCodec() {
+    }
+
+    static byte[] encodeTimestamps(long[] timestamps, int offset, int count) {
+        Sink sink = new Sink(count + 16);
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[offset + i];
+            long delta = timestamp - previous;
+            sink.writeVarLong(zigzag(i == 0 ? timestamp : delta - previousDelta));
+            previousDelta = i == 0 ? 0 : delta;
+            previous = timestamp;
+        }
+        return sink.toByteArray();
+    }
+
+    static long[] decodeTimestamps(byte[] data, int count) {
+        long[] timestamps = new long[count];
+        Source source = new Source(data);
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long value = unzigzag(source.readVarLong());
+            if (i == 0) {
+                previous = value;
+            } else {
+                previousDelta += value;
+                previous += previousDelta;
+            }
+            timestamps[i] = previous;
+        }
+        return timestamps;
+    }
+
+    /**
+     * Encoded values, or null when none of them is present
+     */
+    static byte[] encodeValues(double[] values, int offset, int count) {
+        byte[] presence = new byte[(count + 7) >>> 3];
+        boolean any = false;
+        for (int i = 0; i < count; i++) {
+            if (!Double.isNaN(values[offset + i])) {
+                presence[i >>> 3] |= (byte) (1 << (i & 7));
+                any = true;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        Sink sink = new Sink(presence.length + count + 16);
+        sink.write(presence);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            double value = values[offset + i];
+            if (!Double.isNaN(value)) {
+                long fixed = Math.round(value * SCALE);
+                sink.writeVarLong(zigzag(fixed - previous));
+                previous = fixed;
+            }
+        }
+        return sink.toByteArray();
+    }
+
+    static double[] decodeValues(byte[] data, int count) {
+        double[] values = new double[count];
+        if (data == null) {
+            Arrays.fill(values, Double.NaN);
+            return values;
+        }
+        int presenceBytes = (count + 7) >>> 3;
+        Source source = new Source(data);
+        source.position = presenceBytes;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            if ((data[i >>> 3] & (1 << (i & 7))) != 0) {
+                previous += unzigzag(source.readVarLong());
+                values[i] = previous / SCALE;
+            } else {
+                values[i] = Double.NaN;
+            }
+        }
+        return values;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Sink {
+        private byte[] bytes;
+        private int size;
+
+        Sink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void write(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Source {
+        private final byte[] bytes;
+        private int position;
+
+        Source(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,707 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.dto.TelemetryUpload;
+import com.agri.supplytracker.model.TelemetryChunk;
+import com.agri.supplytracker.model.TelemetryWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cold-chain sensor readings (temperature, humidity) per batch.
+ *
+ * Readings are appended to a per-batch ring of primitive arrays, so ingest never boxes a value. A scheduled
+ * flusher cuts unflushed readings into {@link TelemetryChunk}s (delta encoded by {@link TelemetryCodec}) and
+ * folds them into per-window min/max/sum {@link TelemetryWindow}s. Queries merge stored chunks or windows
+ * with the readings still in memory. A ring that is full of unflushed readings drops new ones and counts them.
+ */
+@Service
+public class TelemetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryService.class);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    public enum Metric {
+        TEMPERATURE, HUMIDITY
+    }
+
+    /**
+     * Parallel arrays of readings; NaN marks a missing value
+     */
+    public record Series(long[] timestamps, double[] temperature, double[] humidity, boolean truncated) {
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    // Flushes hold the write lock while readings move from memory to Mongo, so queries never see them twice or not at all
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final int bufferCapacity;
+    private final int chunkSize;
+    private final long maxChunkAgeMillis;
+    private final long bufferIdleMillis;
+    private final long windowMillis;
+    private final int maxRawPoints;
+    private final double temperatureMin;
+    private final double temperatureMax;
+    private final double humidityMin;
+    private final double humidityMax;
+    private final Counter accepted;
+    private final Counter dropped;
+    private final Counter outOfRange;
+    private final Counter chunksWritten;
+    private final Timer flushTimer;
+
+    public TelemetryService(MongoTemplate mongoTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${telemetry.buffer-capacity:16384}") int bufferCapacity,
+                            @Value("${telemetry.chunk-size:1024}") int chunkSize,
+                            @Value("${telemetry.max-chunk-age-ms:60000}") long maxChunkAgeMillis,
+                            @Value("${telemetry.buffer-idle-ms:600000}") long bufferIdleMillis,
+                            @Value("${telemetry.window-seconds:60}") long windowSeconds,
+                            @Value("${telemetry.query.max-raw-points:100000}") int maxRawPoints,
+                            @Value("${telemetry.limits.temperature-min:2}") double temperatureMin,
+                            @Value("${telemetry.limits.temperature-max:8}") double temperatureMax,
+                            @Value("${telemetry.limits.humidity-min:0}") double humidityMin,
+                            @Value("${telemetry.limits.humidity-max:100}") double humidityMax) {
+        this.mongoTemplate = mongoTemplate;
+        this.bufferCapacity = bufferCapacity;
+        this.chunkSize = Math.min(chunkSize, bufferCapacity);
+        this.maxChunkAgeMillis = maxChunkAgeMillis;
+        this.bufferIdleMillis = bufferIdleMillis;
+        this.windowMillis = windowSeconds * 1000;
+        this.maxRawPoints = maxRawPoints;
+        this.temperatureMin = temperatureMin;
+        this.temperatureMax = temperatureMax;
+        this.humidityMin = humidityMin;
+        this.humidityMax = humidityMax;
+        this.accepted = meterRegistry.counter("telemetry.readings", "result", "accepted");
+        this.dropped = meterRegistry.counter("telemetry.readings", "result", "dropped");
+        this.outOfRange = meterRegistry.counter("telemetry.readings.out.of.range");
+        this.chunksWritten = meterRegistry.counter("telemetry.chunks.written");
+        this.flushTimer = Timer.builder("telemetry.flush").register(meterRegistry);
+        Gauge.builder("telemetry.buffers", buffers, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Buffer the readings of one upload, returns how many were accepted
+     */
+    public int ingest(TelemetryUpload upload) {
+        long[] timestamps = upload.getTimestamps();
+        double[] temperature = unboxed(upload.getTemperature());
+        double[] humidity = unboxed(upload.getHumidity());
+        int outside = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            if (temperature != null && outside(temperature[i], temperatureMin, temperatureMax)
+                    || humidity != null && outside(humidity[i], humidityMin, humidityMax)) {
+                outside++;
+            }
+        }
+        int written;
+        do {
+            // A buffer evicted while idle is closed; take a fresh one
+            written = buffers.computeIfAbsent(upload.getBatchId(), id -> new Buffer(bufferCapacity))
+                    .append(timestamps, temperature, humidity);
+        } while (written < 0);
+        accepted.increment(written);
+        dropped.increment(timestamps.length - written);
+        outOfRange.increment(outside);
+        return written;
+    }
+
+    /**
+     * Raw readings of a batch between from and to (inclusive), in timestamp order
+     */
+    public Series readings(String batchId, LocalDateTime from, LocalDateTime to) {
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        SeriesBuilder series = new SeriesBuilder(maxRawPoints);
+        flushLock.readLock().lock();
+        try {
+            for (TelemetryChunk chunk : chunks(batchId, from, to)) {
+                long[] timestamps = TelemetryCodec.decodeTimestamps(chunk.getTimestamps(), chunk.getCount());
+                double[] temperature = TelemetryCodec.decodeValues(chunk.getTemperature(), chunk.getCount());
+                double[] humidity = TelemetryCodec.decodeValues(chunk.getHumidity(), chunk.getCount());
+                series.addRange(timestamps, temperature, humidity, timestamps.length, fromMillis, toMillis);
+            }
+            Series pending = unflushed(batchId);
+            series.addRange(pending.timestamps(), pending.temperature(), pending.humidity(), pending.size(), fromMillis, toMillis);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return series.build();
+    }
+
+    /**
+     * Downsampled min/max/avg per window between from and to, including readings not yet flushed
+     */
+    public List<Map<String, Object>> windows(String batchId, LocalDateTime from, LocalDateTime to) {
+        long fromMillis = windowStart(toMillis(from));
+        long toMillis = toMillis(to);
+        Map<Long, WindowAccumulator> windows = new TreeMap<>();
+        flushLock.readLock().lock();
+        try {
+            Query query = new Query(Criteria.where("batchId").is(batchId)
+                    .and("windowStart").gte(toTime(fromMillis)).lte(to))
+                    .with(Sort.by("windowStart"));
+            for (TelemetryWindow window : mongoTemplate.find(query, TelemetryWindow.class)) {
+                windows.computeIfAbsent(toMillis(window.getWindowStart()), start -> new WindowAccumulator()).merge(window);
+            }
+            Series pending = unflushed(batchId);
+            for (int i = 0; i < pending.size(); i++) {
+                long timestamp = pending.timestamps()[i];
+                if (timestamp >= fromMillis && timestamp <= toMillis) {
+                    windows.computeIfAbsent(windowStart(timestamp), start -> new WindowAccumulator())
+                            .add(pending.temperature()[i], pending.humidity()[i]);
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(windows.size());
+        windows.forEach((start, window) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("windowStart", toTime(start));
+            row.put("temperature", window.temperature.toMap());
+            row.put("humidity", window.humidity.toMap());
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    /**
+     * Periods where a metric stayed outside its limits, at least minDurationSeconds long. Chunks whose
+     * min/max lie inside the limits are skipped without decoding.
+     */
+    public List<Map<String, Object>> excursions(String batchId, LocalDateTime from, LocalDateTime to,
+                                                Double temperatureMin, Double temperatureMax,
+                                                Double humidityMin, Double humidityMax, long minDurationSeconds) {
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        List<Map<String, Object>> excursions = new ArrayList<>();
+        ExcursionTracker temperature = new ExcursionTracker(Metric.TEMPERATURE,
+                temperatureMin != null ? temperatureMin : this.temperatureMin,
+                temperatureMax != null ? temperatureMax : this.temperatureMax, minDurationSeconds * 1000, excursions);
+        ExcursionTracker humidity = new ExcursionTracker(Metric.HUMIDITY,
+                humidityMin != null ? humidityMin : this.humidityMin,
+                humidityMax != null ? humidityMax : this.humidityMax, minDurationSeconds * 1000, excursions);
+
+        flushLock.readLock().lock();
+        try {
+            for (TelemetryChunk chunk : chunks(batchId, from, to)) {
+                if (temperature.inside(chunk.getTemperatureMin(), chunk.getTemperatureMax())
+                        && humidity.inside(chunk.getHumidityMin(), chunk.getHumidityMax())) {
+                    temperature.close();
+                    humidity.close();
+                    continue;
+                }
+                long[] timestamps = TelemetryCodec.decodeTimestamps(chunk.getTimestamps(), chunk.getCount());
+                double[] temperatures = TelemetryCodec.decodeValues(chunk.getTemperature(), chunk.getCount());
+                double[] humidities = TelemetryCodec.decodeValues(chunk.getHumidity(), chunk.getCount());
+                for (int i = 0; i < timestamps.length; i++) {
+                    if (timestamps[i] >= fromMillis && timestamps[i] <= toMillis) {
+                        temperature.accept(timestamps[i], temperatures[i]);
+                        humidity.accept(timestamps[i], humidities[i]);
+                    }
+                }
+            }
+            Series pending = unflushed(batchId);
+            for (int i = 0; i < pending.size(); i++) {
+                long timestamp = pending.timestamps()[i];
+                if (timestamp >= fromMillis && timestamp <= toMillis) {
+                    temperature.accept(timestamp, pending.temperature()[i]);
+                    humidity.accept(timestamp, pending.humidity()[i]);
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        temperature.close();
+        humidity.close();
+        excursions.sort(Comparator.comparing(excursion -> (LocalDateTime) excursion.get("start")));
+        return excursions;
+    }
+
+    public Map<String, Object> limits() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("temperature", Map.of("min", temperatureMin, "max", temperatureMax));
+        limits.put("humidity", Map.of("min", humidityMin, "max", humidityMax));
+        return limits;
+    }
+
+    /**
+     * Write full chunks, and older partial ones, of every buffer to Mongo
+     */
+    @Scheduled(fixedDelayString = "${telemetry.flush-ms:1000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<TelemetryChunk> chunks = new ArrayList<>();
+        Map<String, WindowAccumulator> windows = new HashMap<>();
+        Map<Buffer, Long> flushedThrough = new HashMap<>();
+
+        buffers.forEach((batchId, buffer) -> {
+            if (buffer.closeIfIdle(now, bufferIdleMillis)) {
+                buffers.remove(batchId, buffer);
+                return;
+            }
+            long[] range = buffer.flushableRange(now, chunkSize, maxChunkAgeMillis);
+            if (range == null) {
+                return;
+            }
+            for (long start = range[0]; start < range[1]; start += chunkSize) {
+                Series readings = buffer.copy(start, Math.min(range[1], start + chunkSize));
+                chunks.add(chunkOf(batchId, readings));
+                for (int i = 0; i < readings.size(); i++) {
+                    long window = windowStart(readings.timestamps()[i]);
+                    windows.computeIfAbsent(batchId + "|" + window, key -> new WindowAccumulator(batchId, window))
+                            .add(readings.temperature()[i], readings.humidity()[i]);
+                }
+            }
+            flushedThrough.put(buffer, range[1]);
+        });
+        if (chunks.isEmpty()) {
+            return;
+        }
+
+        flushLock.writeLock().lock();
+        try {
+            flushTimer.record(() -> {
+                // Chunk ids are derived from their contents, so a flush retried after a failure replaces them
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TelemetryChunk.class);
+                for (TelemetryChunk chunk : chunks) {
+                    bulk.replaceOne(new Query(Criteria.where("_id").is(chunk.getId())), chunk,
+                            FindAndReplaceOptions.options().upsert());
+                }
+                bulk.execute();
+                chunksWritten.increment(chunks.size());
+                flushedThrough.forEach(Buffer::markFlushed);
+            });
+        } catch (Exception e) {
+            log.warn("Failed to flush {} telemetry chunks, will retry: {}", chunks.size(), e.getMessage());
+            return;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        // Windows are increments and are not retried, so a failure here loses at most this flush's share
+        try {
+            upsertWindows(windows.values());
+        } catch (Exception e) {
+            log.warn("Failed to update {} telemetry windows: {}", windows.size(), e.getMessage());
+        }
+    }
+
+    private void upsertWindows(Collection<WindowAccumulator> windows) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TelemetryWindow.class);
+        for (WindowAccumulator window : windows) {
+            Update update = new Update()
+                    .setOnInsert("batchId", window.batchId)
+                    .setOnInsert("windowStart", toTime(window.start));
+            window.temperature.apply(update, "temperature");
+            window.humidity.apply(update, "humidity");
+            bulk.upsert(new Query(Criteria.where("_id").is(window.batchId + "|" + window.start)), update);
+        }
+        bulk.execute();
+    }
+
+    private List<TelemetryChunk> chunks(String batchId, LocalDateTime from, LocalDateTime to) {
+        Query query = new Query(Criteria.where("batchId").is(batchId).and("end").gte(from).and("start").lte(to))
+                .with(Sort.by("start"));
+        return mongoTemplate.find(query, TelemetryChunk.class);
+    }
+
+    private Series unflushed(String batchId) {
+        Buffer buffer = buffers.get(batchId);
+        return buffer != null ? buffer.copyUnflushed() : new Series(new long[0], new double[0], new double[0], false);
+    }
+
+    private static TelemetryChunk chunkOf(String batchId, Series readings) {
+        int count = readings.size();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (long timestamp : readings.timestamps()) {
+            first = Math.min(first, timestamp);
+            last = Math.max(last, timestamp);
+        }
+        double[] temperature = minMax(readings.temperature());
+        double[] humidity = minMax(readings.humidity());
+        return TelemetryChunk.builder()
+                .id(batchId + "|" + readings.timestamps()[0] + "|" + readings.timestamps()[count - 1] + "|" + count)
+                .batchId(batchId)
+                .start(toTime(first))
+                .end(toTime(last))
+                .count(count)
+                .timestamps(TelemetryCodec.encodeTimestamps(readings.timestamps(), 0, count))
+                .temperature(TelemetryCodec.encodeValues(readings.temperature(), 0, count))
+                .humidity(TelemetryCodec.encodeValues(readings.humidity(), 0, count))
+                .temperatureMin(temperature != null ? temperature[0] : null)
+                .temperatureMax(temperature != null ? temperature[1] : null)
+                .humidityMin(humidity != null ? humidity[0] : null)
+                .humidityMax(humidity != null ? humidity[1] : null)
+                .build();
+    }
+
+    // Min and max of the present values, null when there are none; rounded like the encoded values
+    private static double[] minMax(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        return min > max ? null : new double[]{round(min), round(max)};
+    }
+
+    private static double round(double value) {
+        return Math.round(value * TelemetryCodec.SCALE) / TelemetryCodec.SCALE;
+    }
+
+    private static boolean outside(double value, double min, double max) {
+        return value < min || value > max;
+    }
+
+    // Missing values (null) as NaN, which the codec and the window stats skip
+    private static double[] unboxed(Double[] values) {
+        if (values == null) {
+            return null;
+        }
+        double[] unboxed = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            unboxed[i] = values[i] != null ? values[i] : Double.NaN;
+        }
+        return unboxed;
+    }
+
+    private long windowStart(long timestamp) {
+        return Math.floorDiv(timestamp, windowMillis) * windowMillis;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+
+    /**
+     * Ring of readings for one batch. Positions are absolute counts of readings ever appended; the ring
+     * holds positions [head - capacity, head) and everything from flushed on has not reached Mongo yet.
+     */
+    private static final class Buffer {
+        private final long[] timestamps;
+        private final double[] temperature;
+        private final double[] humidity;
+        private long head;
+        private long flushed;
+        private long oldestUnflushedAt;
+        private long lastAppendAt = System.currentTimeMillis();
+        private boolean closed;
+
+        Buffer(int capacity) {
+            timestamps = new long[capacity];
+            temperature = new double[capacity];
+            humidity = new double[capacity];
+        }
+
+        /**
+         * Append as many readings as fit without overwriting unflushed ones, -1 when the buffer was evicted
+         */
+        synchronized int append(long[] newTimestamps, double[] newTemperature, double[] newHumidity) {
+            if (closed) {
+                return -1;
+            }
+            int capacity = timestamps.length;
+            int count = (int) Math.min(newTimestamps.length, capacity - (head - flushed));
+            if (count > 0 && head == flushed) {
+                oldestUnflushedAt = System.currentTimeMillis();
+            }
+            for (int i = 0; i < count; i++) {
+                int slot = (int) (head % capacity);
+                timestamps[slot] = newTimestamps[i];
+                temperature[slot] = newTemperature != null ? newTemperature[i] : Double.NaN;
+                humidity[slot] = newHumidity != null ? newHumidity[i] : Double.NaN;
+                head++;
+            }
+            lastAppendAt = System.currentTimeMillis();
+            return count;
+        }
+
+        /**
+         * Positions to flush now: whole chunks, or everything once the oldest reading waited long enough
+         */
+        synchronized long[] flushableRange(long now, int chunkSize, long maxAgeMillis) {
+            long unflushed = head - flushed;
+            if (unflushed == 0) {
+                return null;
+            }
+            if (now - oldestUnflushedAt >= maxAgeMillis) {
+                return new long[]{flushed, head};
+            }
+            long whole = unflushed / chunkSize * chunkSize;
+            return whole > 0 ? new long[]{flushed, flushed + whole} : null;
+        }
+
+        synchronized Series copy(long from, long to) {
+            int count = (int) (to - from);
+            long[] copiedTimestamps = new long[count];
+            double[] copiedTemperature = new double[count];
+            double[] copiedHumidity = new double[count];
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((from + i) % timestamps.length);
+                copiedTimestamps[i] = timestamps[slot];
+                copiedTemperature[i] = temperature[slot];
+                copiedHumidity[i] = humidity[slot];
+            }
+            return new Series(copiedTimestamps, copiedTemperature, copiedHumidity, false);
+        }
+
+        synchronized Series copyUnflushed() {
+            return copy(flushed, head);
+        }
+
+        synchronized void markFlushed(long through) {
+            if (through > flushed) {
+                flushed = through;
+                // Readings appended after the flush started are the new oldest
+                oldestUnflushedAt = System.currentTimeMillis();
+            }
+        }
+
+        synchronized boolean closeIfIdle(long now, long idleMillis) {
+            if (head == flushed && now - lastAppendAt >= idleMillis) {
+                closed = true;
+            }
+            return closed;
+        }
+    }
+
+    /**
+     * Growable parallel arrays for query results, sorted by timestamp on build
+     */
+    private static final class SeriesBuilder {
+        private final int limit;
+        private long[] timestamps = new long[256];
+        private double[] temperature = new double[256];
+        private double[] humidity = new double[256];
+        private int size;
+        private boolean sorted = true;
+        private boolean truncated;
+
+        SeriesBuilder(int limit) {
+            this.limit = limit;
+        }
+
+        void addRange(long[] newTimestamps, double[] newTemperature, double[] newHumidity, int count,
+                      long fromMillis, long toMillis) {
+            for (int i = 0; i < count; i++) {
+                long timestamp = newTimestamps[i];
+                if (timestamp < fromMillis || timestamp > toMillis) {
+                    continue;
+                }
+                if (size == limit) {
+                    truncated = true;
+                    return;
+                }
+                if (size == timestamps.length) {
+                    int capacity = Math.min(limit, size * 2);
+                    timestamps = Arrays.copyOf(timestamps, capacity);
+                    temperature = Arrays.copyOf(temperature, capacity);
+                    humidity = Arrays.copyOf(humidity, capacity);
+                }
+                sorted &= size == 0 || timestamps[size - 1] <= timestamp;
+                timestamps[size] = timestamp;
+                temperature[size] = newTemperature[i];
+                humidity[size] = newHumidity[i];
+                size++;
+            }
+        }
+
+        Series build() {
+            long[] outTimestamps = Arrays.copyOf(timestamps, size);
+            double[] outTemperature = Arrays.copyOf(temperature, size);
+            double[] outHumidity = Arrays.copyOf(humidity, size);
+            if (!sorted) {
+                // Late readings: reorder all three arrays by timestamp
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparingLong(i -> timestamps[i]));
+                for (int i = 0; i < size; i++) {
+                    outTimestamps[i] = timestamps[order[i]];
+                    outTemperature[i] = temperature[order[i]];
+                    outHumidity[i] = humidity[order[i]];
+                }
+            }
+            return new Series(outTimestamps, outTemperature, outHumidity, truncated);
+        }
+    }
+
+    private static final class MetricStats {
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+
+        void add(double value) {
+            if (!Double.isNaN(value)) {
+                value = round(value);
+                count++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+            }
+        }
+
+        void merge(long count, Double min, Double max, double sum) {
+            if (count > 0) {
+                this.count += count;
+                this.min = Math.min(this.min, min);
+                this.max = Math.max(this.max, max);
+                this.sum += sum;
+            }
+        }
+
+        void apply(Update update, String metric) {
+            if (count > 0) {
+                update.inc(metric + "Count", count)
+                        .min(metric + "Min", min)
+                        .max(metric + "Max", max)
+                        .inc(metric + "Sum", sum);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", count);
+            stats.put("min", count > 0 ? min : null);
+            stats.put("max", count > 0 ? max : null);
+            stats.put("avg", count > 0 ? round(sum / count) : null);
+            return stats;
+        }
+    }
+
+    private static final class WindowAccumulator {
+        private final String batchId;
+        private final long start;
+        private final MetricStats temperature = new MetricStats();
+        private final MetricStats humidity = new MetricStats();
+
+        WindowAccumulator() {
+            this(null, 0);
+        }
+
+        WindowAccumulator(String batchId, long start) {
+            this.batchId = batchId;
+            this.start = start;
+        }
+
+        void add(double temperatureValue, double humidityValue) {
+            temperature.add(temperatureValue);
+            humidity.add(humidityValue);
+        }
+
+        void merge(TelemetryWindow window) {
+            temperature.merge(window.getTemperatureCount(), window.getTemperatureMin(), window.getTemperatureMax(),
+                    window.getTemperatureSum());
+            humidity.merge(window.getHumidityCount(), window.getHumidityMin(), window.getHumidityMax(),
+                    window.getHumiditySum());
+        }
+    }
+
+    /**
+     * Turns a stream of readings of one metric into excursion periods
+     */
+    private static final class ExcursionTracker {
+        private final Metric metric;
+        private final double min;
+        private final double max;
+        private final long minDurationMillis;
+        private final List<Map<String, Object>> excursions;
+        private long start = -1;
+        private long end;
+        private long readings;
+        private double peak;
+
+        ExcursionTracker(Metric metric, double min, double max, long minDurationMillis,
+                         List<Map<String, Object>> excursions) {
+            this.metric = metric;
+            this.min = min;
+            this.max = max;
+            this.minDurationMillis = minDurationMillis;
+            this.excursions = excursions;
+        }
+
+        // A chunk with no value of this metric cannot contain an excursion of it
+        boolean inside(Double chunkMin, Double chunkMax) {
+            return chunkMin == null || chunkMin >= min && chunkMax <= max;
+        }
+
+        void accept(long timestamp, double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            if (!outside(value, min, max)) {
+                close();
+                return;
+            }
+            if (start < 0) {
+                start = timestamp;
+                peak = value;
+                readings = 0;
+            }
+            end = timestamp;
+            readings++;
+            // Peak is the value furthest from the limits
+            if (distance(value) > distance(peak)) {
+                peak = value;
+            }
+        }
+
+        void close() {
+            if (start >= 0 && end - start >= minDurationMillis) {
+                Map<String, Object> excursion = new LinkedHashMap<>();
+                excursion.put("metric", metric);
+                excursion.put("start", toTime(start));
+                excursion.put("end", toTime(end));
+                excursion.put("durationSeconds", (end - start) / 1000);
+                excursion.put("readings", readings);
+                excursion.put("peak", round(peak));
+                excursion.put("limit", peak > max ? max : min);
+                excursions.add(excursion);
+            }
+            start = -1;
+        }
+
+        private double distance(double value) {
+            return value > max ? value - max : min - value;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.agri.supplytracker.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel holding at most one timer per key.
+ * Scheduling and cancelling are O(1); advancing costs O(1) per elapsed tick plus the timers that
+ * expire or cascade down a level. Thread-safe through a single monitor.
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_SIZE = 64;
+
+    private final long tickMillis;
+    private final Slot<T>[][] levels;
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+    private final List<Entry<T>> overdue = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.levels = new Slot[levelCount][WHEEL_SIZE];
+        for (Slot<T>[] level : levels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Slot<>();
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule (or reschedule) the timer for a key
+     */
+    public synchronized void schedule(String key, long deadlineMillis, T payload) {
+        cancel(key);
+        Entry<T> entry = new Entry<>(key, (deadlineMillis + tickMillis - 1) / tickMillis, payload);
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    public synchronized boolean cancel(String key) {
+        Entry<T> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.slot != null) {
+            entry.slot.unlink(entry);
+        } else {
+            overdue.remove(entry);
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advance the wheel to the given time and return the payloads of all timers that expired
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        for (Entry<T> entry : overdue) {
+            entries.remove(entry.key);
+            expired.add(entry.payload);
+        }
+        overdue.clear();
+
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade higher levels whose slot boundary was just crossed, highest first
+            for (int level = levels.length - 1; level >= 1; level--) {
+                long interval = interval(level);
+                if (currentTick % interval == 0) {
+                    Slot<T> slot = levels[level][(int) ((currentTick / interval) % WHEEL_SIZE)];
+                    for (Entry<T> entry : slot.drain()) {
+                        place(entry);
+                    }
+                }
+            }
+            for (Entry<T> entry : levels[0][(int) (currentTick % WHEEL_SIZE)].drain()) {
+                if (entry.deadlineTick <= currentTick) {
+                    entries.remove(entry.key);
+                    expired.add(entry.payload);
+                } else {
+                    place(entry);
+                }
+            }
+        }
+        for (Entry<T> entry : overdue) {
+            entries.remove(entry.key);
+            expired.add(entry.payload);
+        }
+        overdue.clear();
+        return expired;
+    }
+
+    private void place(Entry<T> entry) {
+        long delay = entry.deadlineTick - currentTick;
+        if (delay <= 0) {
+            entry.slot = null;
+            overdue.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels.length; level++) {
+            long interval = interval(level);
+            if (delay < interval * WHEEL_SIZE || level == levels.length - 1) {
+                // Timers beyond the top level park in its furthest slot and are re-placed when it cascades
+                long tick = Math.min(entry.deadlineTick, currentTick + interval * WHEEL_SIZE - 1);
+                levels[level][(int) ((tick / interval) % WHEEL_SIZE)].link(entry);
+                return;
+            }
+        }
+    }
+
+    private static long interval(int level) {
+        long interval = 1;
+        for (int i = 0; i < level; i++) {
+            interval *= WHEEL_SIZE;
+        }
+        return interval;
+    }
+
+    private static final class Entry<T> {
+        final String key;
+        final long deadlineTick;
+        final T payload;
+        Slot<T> slot;
+        Entry<T> prev;
+        Entry<T> next;
+
+        Entry(String key, long deadlineTick, T payload) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+    }
+
+    // Intrusive doubly linked list so a timer can be unlinked in O(1)
+    private static final class Slot<T> {
+        Entry<T> head;
+
+        void link(Entry<T> entry) {
+            entry.slot = this;
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        void unlink(Entry<T> entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.slot = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        List<Entry<T>> drain() {
+            List<Entry<T>> drained = new ArrayList<>();
+            Entry<T> entry = head;
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                entry.slot = null;
+                entry.prev = null;
+                entry.next = null;
+                drained.add(entry);
+                entry = next;
+            }
+            head = null;
+            return drained;
+        }
+    }
+}
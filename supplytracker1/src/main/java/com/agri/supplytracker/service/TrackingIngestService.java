@@ -0,0 +1,350 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.dto.TrackingScan;
+import com.agri.supplytracker.event.ProductChangePublisher;
+import com.agri.supplytracker.model.Product;
+import com.agri.supplytracker.model.TrackingStage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind ingestion of tracking scans. Uploads are acknowledged once they are fsynced to the
+ * {@link TrackingJournal}; a scheduled flusher drains the queue and writes each product's scans with one
+ * update in an unordered bulk write, then moves the journal checkpoint. After a crash the journal replays
+ * everything past the checkpoint.
+ *
+ * Every stage carries an eventId. Ids already stored on the product are skipped, so replays and client
+ * retries never add a stage twice. Updates are conditioned on the version read just before the bulk write;
+ * a product changed in between is retried on the next flush. Scans of one product are appended in timestamp
+ * order and, like POST /api/products/{id}/tracking, the last one sets its status and location.
+ */
+@Service
+public class TrackingIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingIngestService.class);
+
+    // Read before the bulk write: what change events diff against, the version guard and stored event ids
+    private static final String[] READ_FIELDS = {"name", "type", "batchId", "harvestDate", "originFarmId",
+            "originFarmName", "currentLocation", "destination", "status", "position", "version", "trackingHistory.eventId"};
+
+    public record Receipt(int accepted, long sequence) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductChangePublisher changePublisher;
+    private final TrackingJournal journal;
+    private final ConcurrentLinkedQueue<TrackingJournal.Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // Entries whose product changed between the read and the write; flusher thread only
+    private List<TrackingJournal.Entry> retry = new ArrayList<>();
+    private long drainedThrough;
+    private final int maxPending;
+    private final int maxScansPerRequest;
+    private final int flushBatchSize;
+    private final long flushBudgetMillis;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter applied;
+    private final Counter duplicates;
+    private final Counter dropped;
+    private final Counter retried;
+    private final Timer flushTimer;
+
+    public TrackingIngestService(MongoTemplate mongoTemplate,
+                                 ProductChangePublisher changePublisher,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${tracking.ingest.journal-dir:data/tracking-journal}") String journalDir,
+                                 @Value("${tracking.ingest.segment-bytes:67108864}") long segmentBytes,
+                                 @Value("${tracking.ingest.max-pending:200000}") int maxPending,
+                                 @Value("${tracking.ingest.max-scans-per-request:5000}") int maxScansPerRequest,
+                                 @Value("${tracking.ingest.flush-batch-size:2000}") int flushBatchSize,
+                                 @Value("${tracking.ingest.flush-budget-ms:1000}") long flushBudgetMillis) throws IOException {
+        this.mongoTemplate = mongoTemplate;
+        this.changePublisher = changePublisher;
+        this.maxPending = maxPending;
+        this.maxScansPerRequest = maxScansPerRequest;
+        this.flushBatchSize = flushBatchSize;
+        this.flushBudgetMillis = flushBudgetMillis;
+        this.journal = TrackingJournal.open(Path.of(journalDir), segmentBytes, objectMapper, entry -> {
+            pending.add(entry);
+            pendingCount.incrementAndGet();
+        });
+        if (pendingCount.get() > 0) {
+            log.info("Replaying {} journaled tracking scans", pendingCount.get());
+        }
+        this.accepted = meterRegistry.counter("tracking.ingest.scans", "result", "accepted");
+        this.rejected = meterRegistry.counter("tracking.ingest.scans", "result", "rejected");
+        this.applied = meterRegistry.counter("tracking.ingest.scans", "result", "applied");
+        this.duplicates = meterRegistry.counter("tracking.ingest.scans", "result", "duplicate");
+        this.dropped = meterRegistry.counter("tracking.ingest.scans", "result", "dropped");
+        this.retried = meterRegistry.counter("tracking.ingest.scans", "result", "retried");
+        this.flushTimer = Timer.builder("tracking.ingest.flush").register(meterRegistry);
+        Gauge.builder("tracking.ingest.pending", pendingCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public int maxScansPerRequest() {
+        return maxScansPerRequest;
+    }
+
+    /**
+     * Journal the scans and queue them for the next flush, null when the queue is full
+     */
+    public Receipt ingest(List<TrackingScan> scans) {
+        if (pendingCount.get() + scans.size() > maxPending) {
+            rejected.increment(scans.size());
+            return null;
+        }
+        List<Map.Entry<String, TrackingStage>> stages = scans.stream()
+                .map(scan -> Map.entry(scan.getProductId(), toStage(scan)))
+                .toList();
+        try {
+            // Queue under the journal's monitor so the queue stays in sequence order
+            synchronized (journal) {
+                List<TrackingJournal.Entry> entries = journal.append(stages);
+                pending.addAll(entries);
+                pendingCount.addAndGet(entries.size());
+                accepted.increment(entries.size());
+                return new Receipt(entries.size(), entries.get(entries.size() - 1).sequence());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal tracking scans", e);
+        }
+    }
+
+    /**
+     * Write queued scans to Mongo in batches until the queue is empty or the time budget is used
+     */
+    @Scheduled(fixedDelayString = "${tracking.ingest.flush-ms:200}")
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushBudgetMillis);
+        while (true) {
+            // With nothing new queued only the conflicts are retried, once per tick
+            boolean retriesOnly = pendingCount.get() == 0;
+            List<TrackingJournal.Entry> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                retry = flushTimer.record(() -> write(batch));
+            } catch (Exception e) {
+                log.warn("Failed to flush {} tracking scans, will retry: {}", batch.size(), e.getMessage());
+                retry = batch;
+            }
+            retried.increment(retry.size());
+            checkpoint();
+            if (retriesOnly || System.nanoTime() >= deadline) {
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> status() throws IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("pending", pendingCount.get());
+        status.put("retrying", retry.size());
+        status.put("lastSequence", journal.lastSequence());
+        status.put("checkpoint", journal.checkpointed());
+        status.put("journalSegments", journal.segmentCount());
+        status.put("journalBytes", journal.sizeBytes());
+        return status;
+    }
+
+    private List<TrackingJournal.Entry> nextBatch() {
+        List<TrackingJournal.Entry> batch = new ArrayList<>(retry);
+        retry = new ArrayList<>();
+        TrackingJournal.Entry entry;
+        while (batch.size() < flushBatchSize && (entry = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            drainedThrough = entry.sequence();
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    // Everything drained so far is in Mongo except the entries waiting for a retry
+    private void checkpoint() {
+        long through = drainedThrough;
+        for (TrackingJournal.Entry entry : retry) {
+            through = Math.min(through, entry.sequence() - 1);
+        }
+        try {
+            journal.checkpoint(through);
+        } catch (IOException e) {
+            log.warn("Failed to checkpoint the tracking journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply one batch with a single bulk write, returns the entries to retry
+     */
+    private List<TrackingJournal.Entry> write(List<TrackingJournal.Entry> batch) {
+        Map<String, List<TrackingJournal.Entry>> groups = new LinkedHashMap<>();
+        // Event ids are only unique per product; scanner-chosen ids may repeat across products
+        Set<String> seen = new HashSet<>();
+        for (TrackingJournal.Entry entry : batch) {
+            if (seen.add(entry.productId() + '\u0000' + entry.stage().getEventId())) {
+                groups.computeIfAbsent(entry.productId(), id -> new ArrayList<>()).add(entry);
+            } else {
+                duplicates.increment();
+            }
+        }
+
+        Query read = new Query(Criteria.where("_id").in(groups.keySet()));
+        read.fields().include(READ_FIELDS);
+        Map<String, Product> before = new HashMap<>();
+        mongoTemplate.find(read, Product.class).forEach(product -> before.put(product.getId(), product));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        Map<String, List<TrackingJournal.Entry>> written = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        groups.forEach((productId, entries) -> {
+            Product product = before.get(productId);
+            if (product == null) {
+                log.warn("Dropping {} tracking scans for unknown product {}", entries.size(), productId);
+                dropped.increment(entries.size());
+                return;
+            }
+            Set<String> stored = eventIdsOf(product);
+            List<TrackingJournal.Entry> fresh = entries.stream()
+                    .filter(entry -> !stored.contains(entry.stage().getEventId()))
+                    .sorted(Comparator.comparing(entry -> entry.stage().getTimestamp()))
+                    .toList();
+            duplicates.increment(entries.size() - fresh.size());
+            if (fresh.isEmpty()) {
+                return;
+            }
+            TrackingStage latest = fresh.get(fresh.size() - 1).stage();
+            Update update = new Update()
+                    .push("trackingHistory").each(fresh.stream().map(TrackingJournal.Entry::stage).toArray())
+                    .set("currentLocation", latest.getLocation())
+                    .set("status", latest.getStage())
+                    .set("lastModifiedAt", now)
+                    .inc("version", 1);
+            fresh.stream().map(TrackingJournal.Entry::stage).map(TrackingStage::getPosition)
+                    .filter(Objects::nonNull).reduce((first, second) -> second)
+                    .ifPresent(position -> update.set("position", position));
+            bulk.updateOne(
+                    new Query(Criteria.where("_id").is(productId).and("version").is(product.getVersion())),
+                    update);
+            written.put(productId, fresh);
+        });
+        if (written.isEmpty()) {
+            return List.of();
+        }
+        bulk.execute();
+
+        // Read the products back to tell applied updates from version conflicts and publish the changes
+        List<TrackingJournal.Entry> conflicts = new ArrayList<>();
+        Map<String, Product> after = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("_id").in(written.keySet())), Product.class)
+                .forEach(product -> after.put(product.getId(), product));
+        written.forEach((productId, entries) -> {
+            Product product = after.get(productId);
+            if (product == null) {
+                dropped.increment(entries.size());
+                return;
+            }
+            int first = indexOf(product.getTrackingHistory(), entries.get(0).stage().getEventId());
+            if (first < 0) {
+                conflicts.addAll(entries);
+                return;
+            }
+            applied.increment(entries.size());
+            publish(before.get(productId), product, first, entries.size());
+        });
+        return conflicts;
+    }
+
+    // One TRACKING_APPENDED per stage, each against the product as it was right after that stage
+    private void publish(Product before, Product after, int first, int count) {
+        Map<String, Object> previous = ProductChangePublisher.fieldsOf(before);
+        List<TrackingStage> history = after.getTrackingHistory();
+        GeoJsonPoint position = before.getPosition();
+        for (int i = first; i < first + count; i++) {
+            TrackingStage stage = history.get(i);
+            if (stage.getPosition() != null) {
+                position = stage.getPosition();
+            }
+            Product view = Product.builder()
+                    .id(after.getId())
+                    .name(after.getName())
+                    .type(after.getType())
+                    .batchId(after.getBatchId())
+                    .harvestDate(after.getHarvestDate())
+                    .originFarmId(after.getOriginFarmId())
+                    .originFarmName(after.getOriginFarmName())
+                    .currentLocation(stage.getLocation())
+                    .destination(after.getDestination())
+                    .status(stage.getStage())
+                    .position(position)
+                    .version(after.getVersion())
+                    .lastModifiedAt(after.getLastModifiedAt())
+                    .trackingHistory(history.subList(0, i + 1))
+                    .build();
+            changePublisher.trackingAppended(previous, view, stage);
+            previous = ProductChangePublisher.fieldsOf(view);
+        }
+    }
+
+    private static Set<String> eventIdsOf(Product product) {
+        Set<String> ids = new HashSet<>();
+        if (product.getTrackingHistory() != null) {
+            for (TrackingStage stage : product.getTrackingHistory()) {
+                if (stage != null && stage.getEventId() != null) {
+                    ids.add(stage.getEventId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int indexOf(List<TrackingStage> history, String eventId) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (eventId.equals(history.get(i).getEventId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TrackingStage toStage(TrackingScan scan) {
+        String eventId = scan.getEventId() != null ? scan.getEventId() : DigestUtils.md5DigestAsHex(
+                String.join("|", scan.getProductId(), scan.getStage(), scan.getLocation(), scan.getHandler(),
+                        scan.getTimestamp().toString()).getBytes(StandardCharsets.UTF_8));
+        return TrackingStage.builder()
+                .stage(scan.getStage())
+                .location(scan.getLocation())
+                .position(scan.getPosition())
+                .handler(scan.getHandler())
+                .timestamp(scan.getTimestamp() != null ? scan.getTimestamp() : LocalDateTime.now())
+                .notes(scan.getNotes())
+                .eventId(eventId)
+                .build();
+    }
+}
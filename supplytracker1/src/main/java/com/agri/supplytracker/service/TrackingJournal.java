@@ -0,0 +1,199 @@
+package com.agri.supplytracker.service;
+
+import com.agri.supplytracker.model.TrackingStage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of accepted tracking scans, one JSON line per entry, split into segments named
+ * after their first sequence number. Appends are fsynced before they return, so an acknowledged scan
+ * survives a crash. A checkpoint file records the highest sequence already written to Mongo; segments
+ * entirely at or below it are deleted and everything above it is replayed on open.
+ */
+public final class TrackingJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingJournal.class);
+    private static final String PREFIX = "tracking-";
+    private static final String SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+
+    public record Entry(long sequence, String productId, TrackingStage stage) {
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ObjectMapper objectMapper;
+    // First sequence of each segment, the last one is open for appends
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel current;
+    private long currentBytes;
+    private long lastSequence;
+    private long checkpoint;
+
+    private TrackingJournal(Path directory, long segmentBytes, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Open the journal in directory, handing every entry above the checkpoint to replay in sequence order
+     */
+    public static TrackingJournal open(Path directory, long segmentBytes, ObjectMapper objectMapper,
+                                       Consumer<Entry> replay) throws IOException {
+        Files.createDirectories(directory);
+        TrackingJournal journal = new TrackingJournal(directory, segmentBytes, objectMapper);
+        Path checkpointFile = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpointFile)) {
+            journal.checkpoint = Long.parseLong(Files.readString(checkpointFile).trim());
+        }
+        journal.lastSequence = journal.checkpoint;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                            && file.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(file -> journal.segments.put(firstSequence(file), file));
+        }
+        for (Path segment : journal.segments.values()) {
+            journal.replay(segment, replay);
+        }
+        journal.deleteFlushedSegments();
+        journal.roll();
+        return journal;
+    }
+
+    /**
+     * Assign sequence numbers to the scans, write them and fsync. Callers that need entries queued in
+     * sequence order hold the journal's monitor around this call and the enqueue.
+     */
+    public synchronized List<Entry> append(List<Map.Entry<String, TrackingStage>> scans) throws IOException {
+        if (currentBytes >= segmentBytes) {
+            roll();
+        }
+        List<Entry> entries = new ArrayList<>(scans.size());
+        StringBuilder lines = new StringBuilder(scans.size() * 256);
+        for (Map.Entry<String, TrackingStage> scan : scans) {
+            Entry entry = new Entry(++lastSequence, scan.getKey(), scan.getValue());
+            lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+            entries.add(entry);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        currentBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            current.write(buffer);
+        }
+        current.force(false);
+        return entries;
+    }
+
+    /**
+     * Record that every entry up to sequence is in Mongo and drop segments no longer needed for replay
+     */
+    public synchronized void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        Files.writeString(temp, Long.toString(sequence));
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequence;
+        deleteFlushedSegments();
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long checkpointed() {
+        return checkpoint;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long sizeBytes() throws IOException {
+        long total = 0;
+        for (Path segment : segments.values()) {
+            total += Files.size(segment);
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    // Reads entries until the end of the segment or the first torn line left by a crash mid-append
+    private void replay(Path segment, Consumer<Entry> replay) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (IOException e) {
+                    log.warn("Stopping replay of {} at an unreadable entry: {}", segment.getFileName(), e.getMessage());
+                    return;
+                }
+                lastSequence = Math.max(lastSequence, entry.sequence());
+                if (entry.sequence() > checkpoint) {
+                    replay.accept(entry);
+                }
+            }
+        }
+    }
+
+    // Start a new segment after the last assigned sequence. A leftover file with that name holds no
+    // complete entry (otherwise lastSequence would be past it), so it is truncated.
+    private void roll() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        long first = lastSequence + 1;
+        Path segment = directory.resolve(String.format("%s%020d%s", PREFIX, first, SUFFIX));
+        current = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        currentBytes = 0;
+        segments.put(first, segment);
+    }
+
+    // A closed segment ends right before the next one starts
+    private void deleteFlushedSegments() throws IOException {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            long next = segments.higherKey(oldest.getKey());
+            if (next - 1 > checkpoint) {
+                return;
+            }
+            Files.deleteIfExists(oldest.getValue());
+            segments.remove(oldest.getKey());
+        }
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}